@@ -0,0 +1,258 @@
+package io.github.mike10004.subprocess;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Service that splits a long argument list among as few subprocesses as the
+ * operating system's limit on command line length allows, in the manner of
+ * {@code xargs}, and launches them with bounded parallelism.
+ *
+ * <p>Each batch subprocess has the executable, working directory, environment, and
+ * arguments of a base subprocess, followed by as many of the additional arguments as
+ * fit. Arguments are packed greedily and in order, so concatenating the additional
+ * arguments of the batches yields the original list.</p>
+ *
+ * <pre>
+ * {@code
+ *     BatchedProcessResult<String, String> result = ArgumentBatcher.builder().build()
+ *             .launch(launcher, Subprocess.running("wc").arg("-l").build(), pathnames,
+ *                     StreamContexts.strings(UTF_8, null))
+ *             .get();
+ *     String counts = result.combine(String::concat, String::concat).content().stdout();
+ * }
+ * </pre>
+ *
+ * <p>The limit is estimated from the platform: on Linux and macOS, the total size of
+ * argument and environment strings and their pointers must not exceed {@code ARG_MAX},
+ * which is assumed to be 2MB and 1MB respectively, less 2048 bytes of headroom; on
+ * Windows, the command line must not exceed 32767 characters. Set the limit explicitly
+ * with {@link Builder#argMax(long)} if the platform is configured otherwise.</p>
+ */
+public final class ArgumentBatcher {
+
+    private static final int POINTER_SIZE = 8;
+    private static final int HEADROOM = 2048;
+    private static final int LINUX_MAX_ARG_STRLEN = 128 * 1024;
+
+    private final long argMax;
+    private final int maxArgumentsPerBatch;
+    private final int parallelism;
+    private final Platform platform;
+
+    private ArgumentBatcher(Builder builder) {
+        argMax = builder.argMax;
+        maxArgumentsPerBatch = builder.maxArgumentsPerBatch;
+        parallelism = builder.parallelism;
+        platform = Platform.current();
+    }
+
+    private enum Platform {
+
+        LINUX(2 * 1024 * 1024),
+        MAC(1024 * 1024),
+        WINDOWS(32767),
+        OTHER(256 * 1024);
+
+        public final long argMax;
+
+        Platform(long argMax) {
+            this.argMax = argMax;
+        }
+
+        public static Platform current() {
+            String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+            if (os.startsWith("windows")) {
+                return WINDOWS;
+            }
+            if (os.startsWith("linux")) {
+                return LINUX;
+            }
+            if (os.startsWith("mac")) {
+                return MAC;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * Creates a new builder whose limits are those estimated for the current platform.
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Estimates the limit on command line length for the current platform.
+     * @return the limit, in bytes (or characters, on Windows)
+     */
+    public static long estimateArgMax() {
+        return Platform.current().argMax;
+    }
+
+    /**
+     * Splits additional arguments among subprocesses based on a base subprocess.
+     * @param base the base subprocess
+     * @param arguments arguments to append, split among batches
+     * @return a list of subprocesses, one per batch; empty if there are no additional arguments
+     * @throws IllegalArgumentException if the base subprocess alone exceeds the limit,
+     * or if a single argument does not fit within the limit
+     */
+    public List<Subprocess> split(Subprocess base, List<String> arguments) {
+        requireNonNull(base, "base");
+        Defensive.requireAllNotNull(arguments, "arguments must be non-null");
+        long fixedCost = fixedCost(base);
+        Preconditions.checkArgument(fixedCost < argMax, "base subprocess alone exceeds limit of %s", argMax);
+        List<Subprocess> batches = new ArrayList<>();
+        List<String> baseArguments = base.arguments();
+        int start = 0;
+        while (start < arguments.size()) {
+            long total = fixedCost;
+            int end = start;
+            while (end < arguments.size() && end - start < maxArgumentsPerBatch) {
+                long cost = cost(arguments.get(end));
+                if (total + cost > argMax) {
+                    break;
+                }
+                total += cost;
+                end++;
+            }
+            Preconditions.checkArgument(end > start, "argument %s does not fit within limit of %s", start, argMax);
+            List<String> batchArguments = new ArrayList<>(baseArguments.size() + end - start);
+            batchArguments.addAll(baseArguments);
+            batchArguments.addAll(arguments.subList(start, end));
+            batches.add(base.withArguments(Collections.unmodifiableList(batchArguments)));
+            start = end;
+        }
+        return batches;
+    }
+
+    private long cost(String argument) {
+        if (platform == Platform.WINDOWS) {
+            // separating space and enclosing quotes
+            return argument.length() + 3;
+        }
+        int length = argument.getBytes(StandardCharsets.UTF_8).length + 1;
+        Preconditions.checkArgument(platform != Platform.LINUX || length <= LINUX_MAX_ARG_STRLEN, "argument exceeds maximum length of a single argument: %s bytes", length);
+        return length + POINTER_SIZE;
+    }
+
+    private long fixedCost(Subprocess base) {
+        long total = HEADROOM + cost(base.executable());
+        for (String argument : base.arguments()) {
+            total += cost(argument);
+        }
+        if (platform != Platform.WINDOWS) {
+            // the environment shares the limit on posix systems
+            for (Map.Entry<String, String> entry : base.effectiveEnvironment().entrySet()) {
+                total += entry.getKey().getBytes(StandardCharsets.UTF_8).length + 1
+                        + entry.getValue().getBytes(StandardCharsets.UTF_8).length + 1
+                        + POINTER_SIZE;
+            }
+            // null terminators of the argument and environment pointer arrays
+            total += 2 * POINTER_SIZE;
+        }
+        return total;
+    }
+
+    /**
+     * Splits additional arguments among subprocesses and launches them, running at most
+     * as many concurrently as the parallelism of this instance. The returned future
+     * completes when all batches have completed, or exceptionally if any batch could
+     * not be launched or awaited.
+     * @param launcher the launcher
+     * @param base the base subprocess
+     * @param arguments arguments to append, split among batches
+     * @param streamContext the stream context of each batch
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return a future result
+     * @see #split(Subprocess, List)
+     */
+    public <SO, SE> CompletableFuture<BatchedProcessResult<SO, SE>> launch(SubprocessLauncher launcher, Subprocess base, List<String> arguments, StreamContext<?, SO, SE> streamContext) {
+        requireNonNull(launcher, "launcher");
+        requireNonNull(streamContext, "streamContext");
+        List<Subprocess> subprocesses = split(base, arguments);
+        List<SubprocessJob<SO, SE>> jobs = new ArrayList<>(subprocesses.size());
+        subprocesses.forEach(subprocess -> jobs.add(SubprocessJob.of(subprocess, streamContext)));
+        BatchOptions options = BatchOptions.builder()
+                .concurrency(Math.max(1, Math.min(parallelism, subprocesses.size())))
+                .successExitCodes(code -> true)
+                .build();
+        return launcher.launchAll(jobs, options).future().thenApply(outcomes -> {
+            List<ProcessResult<SO, SE>> results = new ArrayList<>(Collections.nCopies(subprocesses.size(), null));
+            for (JobOutcome<SO, SE> outcome : outcomes) {
+                Throwable error = outcome.error();
+                if (error != null) {
+                    throw new SubprocessExecutionException("batch " + outcome.index() + " failed", error);
+                }
+                results.set(outcome.index(), outcome.result());
+            }
+            return new BatchedProcessResult<>(subprocesses, results);
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "ArgumentBatcher{argMax=" + argMax + ", maxArgumentsPerBatch=" + maxArgumentsPerBatch + ", parallelism=" + parallelism + "}";
+    }
+
+    /**
+     * Builder of batcher instances.
+     */
+    public static final class Builder {
+
+        private long argMax = estimateArgMax();
+        private int maxArgumentsPerBatch = Integer.MAX_VALUE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the limit on command line length. Default is estimated from the platform.
+         * @param val the limit, in bytes (or characters, on Windows)
+         * @return this builder instance
+         * @see #estimateArgMax()
+         */
+        public Builder argMax(long val) {
+            Preconditions.checkArgument(val > 0, "argMax must be positive");
+            argMax = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of additional arguments per batch. Default is unlimited.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder maxArgumentsPerBatch(int val) {
+            Preconditions.checkArgument(val > 0, "maxArgumentsPerBatch must be positive");
+            maxArgumentsPerBatch = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of batches to run concurrently. Default is the number of available processors.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder parallelism(int val) {
+            Preconditions.checkArgument(val > 0, "parallelism must be positive");
+            parallelism = val;
+            return this;
+        }
+
+        public ArgumentBatcher build() {
+            return new ArgumentBatcher(this);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Output stream that hands chunks of bytes to a dedicated thread that writes them
+ * to a delegate stream. The queue of pending chunks is bounded. When the queue is full,
+ * a writer either blocks until there is room or discards the chunk, depending on
+ * the overflow policy.
+ *
+ * <p>If the delegate stream throws an exception, subsequent chunks are discarded and the
+ * exception is rethrown by {@link #close()}. Unchecked exceptions are wrapped in an
+ * {@link IOException}. The writer thread keeps taking chunks until the stream is closed,
+ * so writers never block on a queue that nobody drains. Closing the stream waits for all queued
+ * chunks to be written and then closes the delegate.
+ */
+class AsyncOutputStream extends OutputStream {
+
+    private static final byte[] END = new byte[0];
+    private static final long PUT_POLL_MILLIS = 100;
+
+    private final OutputStream delegate;
+    private final BlockingQueue<byte[]> queue;
+    private final boolean discardOnOverflow;
+    private final Thread worker;
+    private final AtomicLong discardedBytes;
+    private volatile IOException failure;
+    // guarded by this, so that no chunk can be queued after END
+    private boolean closed;
+
+    /**
+     * Constructs an instance and starts its writer thread.
+     * @param delegate the stream to which chunks are written
+     * @param queueCapacity maximum number of chunks that may be pending
+     * @param discardOnOverflow true if chunks are to be discarded when the queue is full; false to block
+     * @param threadFactory the factory that creates the writer thread
+     */
+    public AsyncOutputStream(OutputStream delegate, int queueCapacity, boolean discardOnOverflow, ThreadFactory threadFactory) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        Preconditions.checkArgument(queueCapacity > 0, "queue capacity must be positive");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.discardOnOverflow = discardOnOverflow;
+        this.discardedBytes = new AtomicLong(0L);
+        this.worker = threadFactory.newThread(this::drain);
+        worker.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        enqueue(new byte[]{(byte) b});
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            enqueue(Arrays.copyOfRange(b, off, off + len));
+        }
+    }
+
+    /**
+     * Enqueues a chunk without copying it. The caller must not modify the array afterwards.
+     * The closed check and the enqueue happen under the lock that {@link #close()} holds
+     * while it enqueues the end marker, so a racing write either fails or is written.
+     * @param chunk the chunk
+     * @throws IOException if this stream is closed or the wait for room in the queue is interrupted
+     */
+    synchronized void enqueue(byte[] chunk) throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (!worker.isAlive()) {
+            throw workerFailure();
+        }
+        if (chunk.length == 0) {
+            return;
+        }
+        if (failure != null) {
+            discardedBytes.addAndGet(chunk.length);
+            return;
+        }
+        if (discardOnOverflow) {
+            if (!queue.offer(chunk)) {
+                discardedBytes.addAndGet(chunk.length);
+            }
+        } else {
+            try {
+                if (!put(chunk)) {
+                    throw workerFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for room in queue");
+            }
+        }
+    }
+
+    /**
+     * Puts a chunk in the queue, waiting for room as long as the writer thread is alive.
+     * @return true if the chunk was queued; false if the writer thread has terminated
+     */
+    private boolean put(byte[] chunk) throws InterruptedException {
+        while (!queue.offer(chunk, PUT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IOException workerFailure() {
+        IOException f = failure;
+        return f != null ? f : new IOException("writer thread terminated");
+    }
+
+    /**
+     * Gets the number of bytes discarded because the queue was full or the delegate failed.
+     * @return the count of discarded bytes
+     */
+    public long discardedBytes() {
+        return discardedBytes.get();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                byte[] chunk;
+                try {
+                    chunk = queue.take();
+                } catch (InterruptedException e) {
+                    // only happens if some other party interrupts the writer thread; keep draining until END
+                    recordFailure(new InterruptedIOException("writer thread interrupted"));
+                    continue;
+                }
+                if (chunk == END) {
+                    break;
+                }
+                if (failure != null) {
+                    discardedBytes.addAndGet(chunk.length);
+                    continue;
+                }
+                try {
+                    delegate.write(chunk);
+                    if (queue.isEmpty()) {
+                        delegate.flush();
+                    }
+                } catch (IOException e) {
+                    recordFailure(e);
+                    discardedBytes.addAndGet(chunk.length);
+                } catch (RuntimeException e) {
+                    recordFailure(new IOException("delegate stream failed", e));
+                    discardedBytes.addAndGet(chunk.length);
+                }
+            }
+        } finally {
+            try {
+                delegate.close();
+            } catch (IOException e) {
+                recordFailure(e);
+            } catch (RuntimeException e) {
+                recordFailure(new IOException("delegate stream failed to close", e));
+            }
+        }
+    }
+
+    private void recordFailure(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Returns immediately; the writer thread flushes the delegate whenever the queue drains.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Waits for pending chunks to be written and closes the delegate stream.
+     * The wait is not cut short by interruption, because callers of this method
+     * expect all bytes to be present in the delegate when it returns.
+     * @throws IOException if writing to or closing the delegate failed
+     */
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                while (true) {
+                    try {
+                        put(END);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        }
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        IOException f = failure;
+        if (f != null) {
+            throw f;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncOutputStream{" + delegate + "}";
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.mike10004.subprocess;
 
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -16,11 +18,18 @@ class BasicProcessMonitor<SO, SE> implements ProcessMonitor<SO, SE> {
 
     private final Process process;
     private final Future<ProcessResult<SO, SE>> future;
+    @Nullable
+    private final CompletableFuture<ProcessResult<SO, SE>> completion;
     private final ProcessTracker processTracker;
     private final StreamAttachmentSignal streamAttachmentSignal;
 
     public BasicProcessMonitor(Process process, Future<ProcessResult<SO, SE>> future, ProcessTracker processTracker, StreamAttachmentSignal streamAttachmentSignal) {
+        this(process, future, null, processTracker, streamAttachmentSignal);
+    }
+
+    public BasicProcessMonitor(Process process, Future<ProcessResult<SO, SE>> future, @Nullable CompletableFuture<ProcessResult<SO, SE>> completion, ProcessTracker processTracker, StreamAttachmentSignal streamAttachmentSignal) {
         this.future = requireNonNull(future);
+        this.completion = completion;
         this.process = requireNonNull(process);
         this.processTracker = requireNonNull(processTracker);
         this.streamAttachmentSignal = requireNonNull(streamAttachmentSignal);
@@ -31,6 +40,15 @@ class BasicProcessMonitor<SO, SE> implements ProcessMonitor<SO, SE> {
         return future;
     }
 
+    /**
+     * Gets a future that completes when the task of {@link #future()} finishes.
+     * @return the completion future, or null if this monitor was not given one
+     */
+    @Nullable
+    CompletableFuture<ProcessResult<SO, SE>> completion() {
+        return completion;
+    }
+
     @Override
     public ProcessDestructor destructor() {
         return new BasicProcessDestructor(process, processTracker);
@@ -72,7 +72,7 @@ public class BasicSubprocessLauncher implements SubprocessLauncher {
                 });
         Future<ProcessResult<SO, SE>> fullResultFuture = execution.getFuture();
         launchExecutorService.shutdown(); // previously submitted tasks are executed
-        ProcessMonitor<SO, SE> monitor = new BasicProcessMonitor<>(execution.getProcess(), fullResultFuture, processTracker, streamAttachmentSignal);
+        ProcessMonitor<SO, SE> monitor = new BasicProcessMonitor<>(execution.getProcess(), fullResultFuture, execution.getCompletion(), processTracker, streamAttachmentSignal);
         return monitor;
     }
 
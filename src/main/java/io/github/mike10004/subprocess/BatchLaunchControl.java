@@ -0,0 +1,204 @@
+package io.github.mike10004.subprocess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Class that runs a batch of jobs with a fixed number of worker threads. Each worker
+ * takes the next job from the source, launches it, and awaits its result, so that no
+ * more processes than workers are ever running. Jobs are taken from the source only
+ * when a worker is free, so the source may be arbitrarily long.
+ */
+class BatchLaunchControl<SO, SE> {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchLaunchControl.class);
+
+    private static final String THREAD_NAME_FORMAT = "subprocess-batch-%d";
+
+    private final SubprocessLauncher launcher;
+    private final Iterator<? extends SubprocessJob<SO, SE>> jobs;
+    private final BatchOptions options;
+    private final Object jobsLock = new Object();
+    private int nextIndex;
+    private volatile boolean stopped;
+    @Nullable
+    private volatile RuntimeException sourceError;
+    private final Set<ProcessMonitor<SO, SE>> running;
+    private final Set<ProcessMonitor<SO, SE>> destroyed;
+    private final BlockingQueue<Object> queue;
+    private final List<JobOutcome<SO, SE>> outcomes;
+    private final CompletableFuture<List<JobOutcome<SO, SE>>> future;
+    private final AtomicInteger activeWorkers;
+
+    /**
+     * Queue element that marks the end of the outcomes.
+     */
+    static final Object END = new Object();
+
+    public BatchLaunchControl(SubprocessLauncher launcher, Iterator<? extends SubprocessJob<SO, SE>> jobs, BatchOptions options) {
+        this.launcher = requireNonNull(launcher, "launcher");
+        this.jobs = requireNonNull(jobs, "jobs");
+        this.options = requireNonNull(options, "options");
+        running = ConcurrentHashMap.newKeySet();
+        destroyed = ConcurrentHashMap.newKeySet();
+        queue = new LinkedBlockingQueue<>();
+        outcomes = new ArrayList<>();
+        future = new CompletableFuture<>();
+        activeWorkers = new AtomicInteger();
+    }
+
+    public BatchMonitor<SO, SE> start() {
+        int workers = options.concurrency();
+        activeWorkers.set(workers);
+        ExecutorService executorService = Executors.newFixedThreadPool(workers, new ThreadFactoryBuilder()
+                .setNameFormat(THREAD_NAME_FORMAT)
+                .setDaemon(true)
+                .build());
+        for (int i = 0; i < workers; i++) {
+            executorService.execute(this::work);
+        }
+        executorService.shutdown();
+        return new BatchMonitor<>(this);
+    }
+
+    private static final class IndexedJob<SO, SE> {
+
+        public final int index;
+        public final SubprocessJob<SO, SE> job;
+
+        private IndexedJob(int index, SubprocessJob<SO, SE> job) {
+            this.index = index;
+            this.job = job;
+        }
+    }
+
+    private void work() {
+        try {
+            IndexedJob<SO, SE> next;
+            while ((next = poll()) != null) {
+                run(next.index, next.job);
+            }
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    @Nullable
+    private IndexedJob<SO, SE> poll() {
+        synchronized (jobsLock) {
+            if (stopped) {
+                return null;
+            }
+            try {
+                if (!jobs.hasNext()) {
+                    return null;
+                }
+                return new IndexedJob<>(nextIndex++, requireNonNull(jobs.next(), "job"));
+            } catch (RuntimeException e) {
+                log.debug("job source failed", e);
+                sourceError = e;
+                stop();
+                return null;
+            }
+        }
+    }
+
+    private void run(int index, SubprocessJob<SO, SE> job) {
+        ProcessMonitor<SO, SE> monitor;
+        try {
+            monitor = job.launch(launcher);
+        } catch (RuntimeException e) {
+            record(new JobOutcome<>(index, job, JobOutcome.Status.FAILED, null, e));
+            return;
+        }
+        running.add(monitor);
+        if (stopped) {
+            destroy(monitor);
+        }
+        ProcessResult<SO, SE> result;
+        try {
+            result = monitor.await();
+        } catch (InterruptedException e) {
+            destroy(monitor);
+            record(new JobOutcome<>(index, job, JobOutcome.Status.FAILED, null, e));
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            record(new JobOutcome<>(index, job, status(monitor, false), null, e));
+            return;
+        } finally {
+            running.remove(monitor);
+        }
+        record(new JobOutcome<>(index, job, status(monitor, options.isSuccess(result.exitCode())), result, null));
+    }
+
+    private JobOutcome.Status status(ProcessMonitor<SO, SE> monitor, boolean success) {
+        if (success) {
+            return JobOutcome.Status.SUCCEEDED;
+        }
+        return destroyed.remove(monitor) ? JobOutcome.Status.CANCELLED : JobOutcome.Status.FAILED;
+    }
+
+    private void record(JobOutcome<SO, SE> outcome) {
+        synchronized (outcomes) {
+            outcomes.add(outcome);
+        }
+        queue.add(outcome);
+        if (outcome.status() == JobOutcome.Status.FAILED && options.isFailFast()) {
+            stop();
+        }
+    }
+
+    private void destroy(ProcessMonitor<SO, SE> monitor) {
+        destroyed.add(monitor);
+        monitor.destructor().sendTermSignal();
+    }
+
+    /**
+     * Stops launching jobs and destroys the processes that are running.
+     */
+    public void stop() {
+        stopped = true;
+        running.forEach(this::destroy);
+    }
+
+    private void finish() {
+        queue.add(END);
+        RuntimeException error = sourceError;
+        if (error != null) {
+            future.completeExceptionally(error);
+            return;
+        }
+        List<JobOutcome<SO, SE>> all;
+        synchronized (outcomes) {
+            all = new ArrayList<>(outcomes);
+        }
+        future.complete(Collections.unmodifiableList(all));
+    }
+
+    public BlockingQueue<Object> queue() {
+        return queue;
+    }
+
+    public CompletableFuture<List<JobOutcome<SO, SE>>> future() {
+        return future;
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Monitor of a launched batch of jobs. Outcomes are available one at a time, in the
+ * order in which the jobs complete, from {@link #next()}, or all together from
+ * {@link #future()}.
+ * @param <SO> type of captured standard output contents
+ * @param <SE> type of captured standard error contents
+ * @see SubprocessLauncher#launchAll(Iterable, BatchOptions)
+ */
+public class BatchMonitor<SO, SE> {
+
+    private final BatchLaunchControl<SO, SE> control;
+
+    BatchMonitor(BatchLaunchControl<SO, SE> control) {
+        this.control = requireNonNull(control, "control");
+    }
+
+    /**
+     * Waits for the next job to complete.
+     * @return the outcome of the job, or null if all jobs have completed
+     * and their outcomes have been returned
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Nullable
+    public JobOutcome<SO, SE> next() throws InterruptedException {
+        return unwrap(control.queue().take());
+    }
+
+    /**
+     * Waits for the next job to complete, up to a timeout.
+     * @param timeout the timeout
+     * @param unit the timeout unit
+     * @return the outcome of the job, or null if all jobs have completed
+     * and their outcomes have been returned
+     * @throws TimeoutException if no job completes before the timeout elapses
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Nullable
+    public JobOutcome<SO, SE> next(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        Object element = control.queue().poll(timeout, unit);
+        if (element == null) {
+            throw new TimeoutException("no job completed within " + timeout + " " + unit);
+        }
+        return unwrap(element);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private JobOutcome<SO, SE> unwrap(Object element) {
+        if (element == BatchLaunchControl.END) {
+            BlockingQueue<Object> queue = control.queue();
+            queue.add(element); // so that later invocations also return null
+            return null;
+        }
+        return (JobOutcome<SO, SE>) element;
+    }
+
+    /**
+     * Gets a future that completes with the outcomes of all jobs, in completion order,
+     * when all jobs have completed. The future completes exceptionally if the job
+     * source throws an exception.
+     * @return the future
+     */
+    public CompletableFuture<List<JobOutcome<SO, SE>>> future() {
+        return control.future();
+    }
+
+    /**
+     * Waits for all jobs to complete.
+     * @return the outcomes of all jobs, in completion order
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws SubprocessExecutionException if the job source throws an exception
+     */
+    public List<JobOutcome<SO, SE>> await() throws InterruptedException {
+        try {
+            return future().get();
+        } catch (ExecutionException e) {
+            throw new SubprocessExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops launching jobs and sends a termination signal to the processes that are running.
+     * Jobs whose processes are terminated have status {@link JobOutcome.Status#CANCELLED}.
+     */
+    public void cancel() {
+        control.stop();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchMonitor{done=" + future().isDone() + "}";
+    }
+}
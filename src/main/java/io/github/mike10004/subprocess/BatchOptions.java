@@ -0,0 +1,115 @@
+package io.github.mike10004.subprocess;
+
+import java.util.function.IntPredicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Value class that represents options for launching a batch of jobs.
+ * @see SubprocessLauncher#launchAll(Iterable, BatchOptions)
+ */
+public final class BatchOptions {
+
+    private final int concurrency;
+    private final boolean failFast;
+    private final IntPredicate successExitCodes;
+
+    private BatchOptions(Builder builder) {
+        concurrency = builder.concurrency;
+        failFast = builder.failFast;
+        successExitCodes = builder.successExitCodes;
+    }
+
+    /**
+     * Creates a new builder.
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default options.
+     * @return options with default values
+     */
+    public static BatchOptions defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Gets the maximum number of processes that run concurrently.
+     * @return the concurrency limit
+     */
+    public int concurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Checks whether the batch stops at the first failure.
+     * @return true if the batch fails fast
+     */
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    boolean isSuccess(int exitCode) {
+        return successExitCodes.test(exitCode);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOptions{concurrency=" + concurrency + ", failFast=" + failFast + "}";
+    }
+
+    /**
+     * Builder of batch options.
+     */
+    public static final class Builder {
+
+        private int concurrency = Runtime.getRuntime().availableProcessors();
+        private boolean failFast;
+        private IntPredicate successExitCodes = code -> code == 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of processes that run concurrently. Default is the
+         * number of available processors.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder concurrency(int val) {
+            Preconditions.checkArgument(val > 0, "concurrency must be positive");
+            concurrency = val;
+            return this;
+        }
+
+        /**
+         * Sets whether the batch stops at the first failure. If true, no further jobs
+         * are launched after a job fails, and processes still running are destroyed.
+         * If false, all jobs are run regardless of failures. Default is false.
+         * @param val true to fail fast
+         * @return this builder instance
+         */
+        public Builder failFast(boolean val) {
+            failFast = val;
+            return this;
+        }
+
+        /**
+         * Sets the predicate that determines which exit codes indicate success.
+         * Default accepts only zero.
+         * @param val the predicate
+         * @return this builder instance
+         */
+        public Builder successExitCodes(IntPredicate val) {
+            successExitCodes = requireNonNull(val, "successExitCodes");
+            return this;
+        }
+
+        public BatchOptions build() {
+            return new BatchOptions(this);
+        }
+    }
+}
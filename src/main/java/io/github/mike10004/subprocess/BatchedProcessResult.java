@@ -0,0 +1,92 @@
+package io.github.mike10004.subprocess;
+
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Result of a subprocess whose arguments were split into batches, each launched
+ * as a separate process. The results of each batch are available in batch order,
+ * which is the order of the arguments.
+ * @param <SO> type of the captured standard output contents
+ * @param <SE> type of the captured standard error contents
+ * @see ArgumentBatcher
+ */
+public class BatchedProcessResult<SO, SE> {
+
+    private final List<Subprocess> subprocesses;
+    private final List<ProcessResult<SO, SE>> batches;
+
+    BatchedProcessResult(List<Subprocess> subprocesses, List<ProcessResult<SO, SE>> batches) {
+        Preconditions.checkArgument(subprocesses.size() == batches.size(), "one result per subprocess is required");
+        this.subprocesses = Defensive.immutableCopyOf(subprocesses);
+        this.batches = Defensive.immutableCopyOf(batches);
+    }
+
+    /**
+     * Gets the subprocesses that were launched, one per batch.
+     * @return an immutable list of subprocesses, in batch order
+     */
+    public List<Subprocess> subprocesses() {
+        return subprocesses;
+    }
+
+    /**
+     * Gets the results of the batches.
+     * @return an immutable list of results, in batch order
+     */
+    public List<ProcessResult<SO, SE>> batches() {
+        return batches;
+    }
+
+    /**
+     * Gets the exit codes of the batches.
+     * @return a list of exit codes, in batch order
+     */
+    public List<Integer> exitCodes() {
+        return batches.stream().map(ProcessResult::exitCode).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the overall exit code, which is the first nonzero exit code of a batch,
+     * or zero if every batch exited with zero.
+     * @return the exit code
+     */
+    public int exitCode() {
+        for (ProcessResult<SO, SE> batch : batches) {
+            if (batch.exitCode() != 0) {
+                return batch.exitCode();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Combines the results of the batches into one result, as if a single process
+     * had been launched. The exit code is {@link #exitCode()}.
+     * @param stdoutCombiner function that combines the standard output content of adjacent batches
+     * @param stderrCombiner function that combines the standard error content of adjacent batches
+     * @return the combined result
+     * @throws IllegalStateException if there are no batches
+     */
+    public ProcessResult<SO, SE> combine(BinaryOperator<SO> stdoutCombiner, BinaryOperator<SE> stderrCombiner) {
+        if (batches.isEmpty()) {
+            throw new IllegalStateException("no batches to combine");
+        }
+        SO stdout = batches.get(0).content().stdout();
+        SE stderr = batches.get(0).content().stderr();
+        for (ProcessResult<SO, SE> batch : batches.subList(1, batches.size())) {
+            stdout = stdoutCombiner.apply(stdout, batch.content().stdout());
+            stderr = stderrCombiner.apply(stderr, batch.content().stderr());
+        }
+        return ProcessResult.direct(exitCode(), stdout, stderr);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchedProcessResult{" +
+                "batches=" + batches.size() +
+                ", exitCodes=" + exitCodes() +
+                '}';
+    }
+}
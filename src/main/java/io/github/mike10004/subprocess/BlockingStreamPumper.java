@@ -17,6 +17,7 @@
  */
 package io.github.mike10004.subprocess;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -66,7 +67,7 @@ class BlockingStreamPumper implements Runnable {
         }
         finished = false;
 
-        final byte[] buf = new byte[bufferSize];
+        final byte[] buf = BufferPool.shared().acquireArray(bufferSize);
 
         int length;
         try {
@@ -75,7 +76,7 @@ class BlockingStreamPumper implements Runnable {
                     break;
                 }
 
-                length = is.read(buf);
+                length = is.read(buf, 0, bufferSize);
                 if (length <= 0 || Thread.interrupted()) {
                     break;
                 }
@@ -93,7 +94,7 @@ class BlockingStreamPumper implements Runnable {
                     if (Thread.interrupted()) {
                         break;
                     }
-                    length = is.read(buf, 0, Math.min(length, buf.length));
+                    length = is.read(buf, 0, Math.min(length, bufferSize));
                     if (length <= 0) {
                         break;
                     }
@@ -109,6 +110,8 @@ class BlockingStreamPumper implements Runnable {
             if (closeWhenExhausted) {
                 Streams.close(os);
             }
+            // pump threads exit when the process ends, so a thread-local cache would never be reused
+            BufferPool.shared().releaseArrayShared(buf);
             finished = true;
             finish = false;
             synchronized (this) {
@@ -142,7 +145,6 @@ class BlockingStreamPumper implements Runnable {
      * @param bufferSize the buffer size to use.
      * @throws IllegalStateException if the StreamPumper is already running.
      */
-    @SuppressWarnings("unused")
     public synchronized void setBufferSize(int bufferSize) {
         if (started) {
             throw new IllegalStateException("Cannot set buffer size on a running StreamPumper");
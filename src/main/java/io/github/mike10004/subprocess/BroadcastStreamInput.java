@@ -0,0 +1,161 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream input whose content is held once in memory outside the Java heap and shared
+ * by every stream opened from it. This is intended for feeding the same large input to
+ * many concurrent processes: each process's standard input is fed at its own pace from
+ * its own view of the shared region, and nothing is copied onto the heap in advance.
+ *
+ * <p>A file is mapped into memory in chunks of up to 1GB, so files larger than 2GB are
+ * supported. The content of a mapped file must not be modified while the input is in use.
+ */
+public final class BroadcastStreamInput implements StreamInput {
+
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    private final List<ByteBuffer> chunks;
+    private final long size;
+
+    private BroadcastStreamInput(List<ByteBuffer> chunks) {
+        this.chunks = Collections.unmodifiableList(chunks);
+        long total = 0;
+        for (ByteBuffer chunk : chunks) {
+            total += chunk.remaining();
+        }
+        this.size = total;
+    }
+
+    /**
+     * Creates an input whose content is a file, mapped into memory once.
+     * @param path the file
+     * @return a new input
+     * @throws IOException if the file cannot be mapped
+     */
+    public static BroadcastStreamInput mapFile(Path path) throws IOException {
+        return mapFile(path, MAX_CHUNK_SIZE);
+    }
+
+    @VisibleForTesting
+    static BroadcastStreamInput mapFile(Path path, long chunkSize) throws IOException {
+        Preconditions.checkArgument(chunkSize > 0 && chunkSize <= Integer.MAX_VALUE, "chunk size out of range");
+        List<ByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            for (long position = 0; position < fileSize; position += chunkSize) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, fileSize - position));
+                chunks.add(chunk);
+            }
+        }
+        return new BroadcastStreamInput(chunks);
+    }
+
+    /**
+     * Creates an input whose content is the remaining bytes of a buffer. The buffer is
+     * shared, not copied, and its position is not modified. A direct buffer keeps the
+     * content off the Java heap.
+     * @param buffer the buffer
+     * @return a new input
+     */
+    public static BroadcastStreamInput wrap(ByteBuffer buffer) {
+        requireNonNull(buffer, "buffer");
+        return new BroadcastStreamInput(Collections.singletonList(buffer.slice().asReadOnlyBuffer()));
+    }
+
+    /**
+     * Loads the content of a mapped file into physical memory, so that the processes
+     * being fed do not each incur page faults. This is a hint to the operating system.
+     * @return this instance
+     */
+    public BroadcastStreamInput preload() {
+        for (ByteBuffer chunk : chunks) {
+            if (chunk instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) chunk).load();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the length of the content.
+     * @return the length in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new BroadcastInputStream();
+    }
+
+    private class BroadcastInputStream extends InputStream {
+
+        private int chunkIndex;
+        private ByteBuffer current;
+
+        private boolean advance() {
+            while (current == null || !current.hasRemaining()) {
+                if (chunkIndex >= chunks.size()) {
+                    return false;
+                }
+                current = chunks.get(chunkIndex++).duplicate();
+            }
+            return true;
+        }
+
+        @Override
+        public int read() {
+            if (!advance()) {
+                return -1;
+            }
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            while (skipped < n && advance()) {
+                int step = (int) Math.min(n - skipped, current.remaining());
+                current.position(current.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.remaining();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastStreamInput{size=" + size + ", chunks=" + chunks.size() + "}";
+    }
+}
@@ -0,0 +1,344 @@
+package io.github.mike10004.subprocess;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pool of reusable buffers for copying stream data. Buffers are grouped into size
+ * classes that are powers of two from 128 bytes to 512KB; requests are rounded up
+ * to the nearest size class, and requests larger than the largest class are served by
+ * allocating a buffer that is not pooled. Each thread keeps a small cache of buffers
+ * it has released, and buffers beyond that go to a shared pool of bounded size.
+ * A thread's cache is lost when the thread exits, so short-lived threads, such as
+ * those that pump process streams, should release buffers with
+ * {@link #releaseArrayShared(byte[])}, which bypasses the cache.
+ *
+ * <p>Heap buffers are provided as byte arrays and direct buffers as {@link ByteBuffer}s.
+ * A buffer must not be used after it has been released.
+ */
+public final class BufferPool {
+
+    private static final int MIN_SIZE_SHIFT = 7;
+    private static final int MAX_SIZE_SHIFT = 19;
+    private static final int NUM_SIZE_CLASSES = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+    private static final int THREAD_CACHE_CAPACITY = 4;
+    private static final int DEFAULT_SHARED_CAPACITY = 64;
+
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_SHARED_CAPACITY);
+
+    private final SizeClass<byte[]>[] heapClasses;
+    private final SizeClass<ByteBuffer>[] directClasses;
+    private final ThreadLocal<ThreadCache> threadCaches;
+    private final LongAdder threadCacheHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unpooled = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    /**
+     * Constructs a new pool.
+     * @param sharedCapacity maximum number of buffers of each size class and kind retained in the shared pool
+     */
+    @SuppressWarnings("unchecked")
+    BufferPool(int sharedCapacity) {
+        Preconditions.checkArgument(sharedCapacity >= 0, "capacity must be nonnegative");
+        heapClasses = new SizeClass[NUM_SIZE_CLASSES];
+        directClasses = new SizeClass[NUM_SIZE_CLASSES];
+        for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+            heapClasses[i] = new SizeClass<>(sharedCapacity);
+            directClasses[i] = new SizeClass<>(sharedCapacity);
+        }
+        threadCaches = new ThreadLocal<>();
+    }
+
+    /**
+     * Gets the pool shared by all users of this library.
+     * @return the shared pool
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    static int sizeClassIndex(int size) {
+        if (size <= (1 << MIN_SIZE_SHIFT)) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        if (shift > MAX_SIZE_SHIFT) {
+            return -1;
+        }
+        return shift - MIN_SIZE_SHIFT;
+    }
+
+    /**
+     * Gets the cache of the current thread, creating it if necessary.
+     */
+    private ThreadCache localCache() {
+        ThreadCache cache = threadCaches.get();
+        if (cache == null) {
+            cache = new ThreadCache();
+            threadCaches.set(cache);
+        }
+        return cache;
+    }
+
+    private static int sizeOf(int sizeClassIndex) {
+        return 1 << (sizeClassIndex + MIN_SIZE_SHIFT);
+    }
+
+    /**
+     * Acquires a heap buffer of at least the given length.
+     * @param minLength the minimum length
+     * @return a buffer
+     */
+    public byte[] acquireArray(int minLength) {
+        Preconditions.checkArgument(minLength >= 0, "length must be nonnegative");
+        int index = sizeClassIndex(minLength);
+        if (index < 0) {
+            unpooled.increment();
+            return new byte[minLength];
+        }
+        ThreadCache local = threadCaches.get();
+        byte[] buffer = local == null ? null : local.heap[index].poll();
+        if (buffer != null) {
+            threadCacheHits.increment();
+            return buffer;
+        }
+        buffer = heapClasses[index].poll();
+        if (buffer != null) {
+            sharedHits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return new byte[sizeOf(index)];
+    }
+
+    /**
+     * Returns a heap buffer to the pool. Arrays whose lengths are not
+     * size classes of this pool are ignored.
+     * @param buffer the buffer
+     */
+    public void releaseArray(byte[] buffer) {
+        requireNonNull(buffer, "buffer");
+        int index = sizeClassIndex(buffer.length);
+        if (index < 0 || sizeOf(index) != buffer.length) {
+            return;
+        }
+        Queue<byte[]> local = localCache().heap[index];
+        if (local.size() < THREAD_CACHE_CAPACITY) {
+            local.add(buffer);
+        } else if (!heapClasses[index].offer(buffer)) {
+            discards.increment();
+        }
+    }
+
+    /**
+     * Returns a heap buffer to the shared pool, bypassing the cache of the current
+     * thread. Use this method on threads that exit soon after releasing the buffer.
+     * Arrays whose lengths are not size classes of this pool are ignored.
+     * @param buffer the buffer
+     */
+    public void releaseArrayShared(byte[] buffer) {
+        requireNonNull(buffer, "buffer");
+        int index = sizeClassIndex(buffer.length);
+        if (index < 0 || sizeOf(index) != buffer.length) {
+            return;
+        }
+        if (!heapClasses[index].offer(buffer)) {
+            discards.increment();
+        }
+    }
+
+    /**
+     * Acquires a direct buffer whose capacity is at least the given length.
+     * The buffer is cleared and its limit is set to the requested length.
+     * @param minLength the minimum length
+     * @return a buffer
+     */
+    public ByteBuffer acquireDirect(int minLength) {
+        Preconditions.checkArgument(minLength >= 0, "length must be nonnegative");
+        int index = sizeClassIndex(minLength);
+        ByteBuffer buffer;
+        if (index < 0) {
+            unpooled.increment();
+            buffer = ByteBuffer.allocateDirect(minLength);
+        } else {
+            ThreadCache local = threadCaches.get();
+            buffer = local == null ? null : local.direct[index].poll();
+            if (buffer != null) {
+                threadCacheHits.increment();
+            } else {
+                buffer = directClasses[index].poll();
+                if (buffer != null) {
+                    sharedHits.increment();
+                } else {
+                    misses.increment();
+                    buffer = ByteBuffer.allocateDirect(sizeOf(index));
+                }
+            }
+        }
+        buffer.clear();
+        buffer.limit(minLength);
+        return buffer;
+    }
+
+    /**
+     * Returns a direct buffer to the pool. Buffers that were not acquired from a pool
+     * of this kind are ignored.
+     * @param buffer the buffer
+     */
+    public void releaseDirect(ByteBuffer buffer) {
+        requireNonNull(buffer, "buffer");
+        if (!buffer.isDirect() || buffer.isReadOnly()) {
+            return;
+        }
+        int index = sizeClassIndex(buffer.capacity());
+        if (index < 0 || sizeOf(index) != buffer.capacity()) {
+            return;
+        }
+        Queue<ByteBuffer> local = localCache().direct[index];
+        if (local.size() < THREAD_CACHE_CAPACITY) {
+            local.add(buffer);
+        } else if (!directClasses[index].offer(buffer)) {
+            discards.increment();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the counts of pool activity.
+     * @return the metrics
+     */
+    public Metrics metrics() {
+        return new Metrics(threadCacheHits.sum(), sharedHits.sum(), misses.sum(), unpooled.sum(), discards.sum());
+    }
+
+    private static class SizeClass<B> {
+
+        private final Queue<B> queue;
+        private final AtomicInteger size;
+        private final int capacity;
+
+        public SizeClass(int capacity) {
+            this.capacity = capacity;
+            queue = new ConcurrentLinkedQueue<>();
+            size = new AtomicInteger();
+        }
+
+        public B poll() {
+            B buffer = queue.poll();
+            if (buffer != null) {
+                size.decrementAndGet();
+            }
+            return buffer;
+        }
+
+        public boolean offer(B buffer) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            queue.add(buffer);
+            return true;
+        }
+    }
+
+    private static class ThreadCache {
+
+        @SuppressWarnings("unchecked")
+        private final Queue<byte[]>[] heap = new Queue[NUM_SIZE_CLASSES];
+        @SuppressWarnings("unchecked")
+        private final Queue<ByteBuffer>[] direct = new Queue[NUM_SIZE_CLASSES];
+
+        public ThreadCache() {
+            for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+                heap[i] = new ArrayDeque<>(THREAD_CACHE_CAPACITY);
+                direct[i] = new ArrayDeque<>(THREAD_CACHE_CAPACITY);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of counts of buffer pool activity.
+     */
+    public static final class Metrics {
+
+        private final long threadCacheHits;
+        private final long sharedHits;
+        private final long misses;
+        private final long unpooled;
+        private final long discards;
+
+        private Metrics(long threadCacheHits, long sharedHits, long misses, long unpooled, long discards) {
+            this.threadCacheHits = threadCacheHits;
+            this.sharedHits = sharedHits;
+            this.misses = misses;
+            this.unpooled = unpooled;
+            this.discards = discards;
+        }
+
+        /**
+         * Gets the number of acquisitions served from the acquiring thread's cache.
+         * @return the count
+         */
+        public long threadCacheHits() {
+            return threadCacheHits;
+        }
+
+        /**
+         * Gets the number of acquisitions served from the shared pool.
+         * @return the count
+         */
+        public long sharedHits() {
+            return sharedHits;
+        }
+
+        /**
+         * Gets the total number of acquisitions served by reusing a buffer.
+         * @return the count
+         */
+        public long hits() {
+            return threadCacheHits + sharedHits;
+        }
+
+        /**
+         * Gets the number of acquisitions that required a new pooled buffer to be allocated.
+         * @return the count
+         */
+        public long misses() {
+            return misses;
+        }
+
+        /**
+         * Gets the number of acquisitions too large to be pooled.
+         * @return the count
+         */
+        public long unpooled() {
+            return unpooled;
+        }
+
+        /**
+         * Gets the number of released buffers dropped because the pool was full.
+         * @return the count
+         */
+        public long discards() {
+            return discards;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "threadCacheHits=" + threadCacheHits +
+                    ", sharedHits=" + sharedHits +
+                    ", misses=" + misses +
+                    ", unpooled=" + unpooled +
+                    ", discards=" + discards +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory pipe of bytes. Any number of threads may write to the pipe, and
+ * one thread reads from it through the {@link #source() source stream}. Writers block
+ * while the pipe is full, and the reader blocks while it is empty. A read returns
+ * all the bytes that are available, up to the requested length, so many small writes
+ * may be consumed by a single read.
+ *
+ * <p>Closing the sink causes the reader to see end-of-stream after consuming the
+ * remaining bytes. Closing the source causes subsequent writes to fail.
+ */
+class BytePipe {
+
+    private final byte[] ring;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private int head;
+    private int count;
+    private boolean sinkClosed;
+    private boolean sourceClosed;
+
+    public BytePipe(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+        ring = new byte[capacity];
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * Writes bytes, blocking as necessary until they have all been placed in the pipe.
+     * A write no larger than the pipe capacity is placed in the pipe all at once, so
+     * it is never interleaved with bytes from concurrent writes.
+     * @param b the array
+     * @param off offset in the array
+     * @param len number of bytes to write
+     * @throws IOException if either end of the pipe is closed or the wait is interrupted
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            while (len > 0) {
+                checkWritable();
+                int n = Math.min(len, ring.length);
+                while (ring.length - count < n) {
+                    await(notFull);
+                    checkWritable();
+                }
+                put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes bytes only if there is room for all of them within the timeout.
+     * @param b the array
+     * @param off offset in the array
+     * @param len number of bytes to write
+     * @param timeout maximum time to wait for room
+     * @param unit timeout unit
+     * @return true if the bytes were written; false if there was not enough room
+     * @throws IOException if either end of the pipe is closed or the wait is interrupted
+     */
+    public boolean offer(byte[] b, int off, int len, long timeout, TimeUnit unit) throws IOException {
+        Preconditions.checkArgument(len <= ring.length, "length %s exceeds pipe capacity %s", len, ring.length);
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            checkWritable();
+            while (ring.length - count < len) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                try {
+                    remainingNanos = notFull.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for room in pipe");
+                }
+                checkWritable();
+            }
+            put(b, off, len);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(byte[] b, int off, int len) {
+        int tail = (head + count) % ring.length;
+        int first = Math.min(len, ring.length - tail);
+        System.arraycopy(b, off, ring, tail, first);
+        System.arraycopy(b, off + first, ring, 0, len - first);
+        count += len;
+        notEmpty.signal();
+    }
+
+    private void checkWritable() throws IOException {
+        if (sinkClosed) {
+            throw new IOException("pipe closed");
+        }
+        if (sourceClosed) {
+            throw new IOException("pipe reader closed");
+        }
+    }
+
+    private void await(Condition condition) throws InterruptedIOException {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting on pipe");
+        }
+    }
+
+    /**
+     * Waits until the reader has consumed all bytes written so far.
+     * @param timeout maximum time to wait
+     * @param unit timeout unit
+     * @return true if the pipe is empty; false if the timeout elapsed first
+     * @throws IOException if the reader closed the pipe before consuming all bytes or the wait is interrupted
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws IOException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (count > 0) {
+                if (sourceClosed) {
+                    throw new IOException("pipe reader closed with " + count + " bytes unread");
+                }
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                try {
+                    remainingNanos = notFull.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for pipe to drain");
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of bytes written but not yet read.
+     * @return the count
+     */
+    public int pending() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the writing end of the pipe. The reader sees end-of-stream after
+     * consuming the remaining bytes.
+     */
+    public void closeSink() {
+        lock.lock();
+        try {
+            sinkClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (sinkClosed || sourceClosed) {
+                    return -1;
+                }
+                await(notEmpty);
+            }
+            return take(b, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads bytes, waiting up to a timeout for some to be available.
+     * @param b the array
+     * @param off offset in the array
+     * @param len maximum number of bytes to read; must be positive
+     * @param timeout maximum time to wait for bytes
+     * @param unit timeout unit
+     * @return number of bytes read; 0 if the timeout elapsed first; -1 at end of stream
+     * @throws IOException if the wait is interrupted
+     */
+    public int read(byte[] b, int off, int len, long timeout, TimeUnit unit) throws IOException {
+        Preconditions.checkArgument(len > 0, "length must be positive");
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (sinkClosed || sourceClosed) {
+                    return -1;
+                }
+                if (remainingNanos <= 0) {
+                    return 0;
+                }
+                try {
+                    remainingNanos = notEmpty.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting on pipe");
+                }
+            }
+            return take(b, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int take(byte[] b, int off, int len) {
+        int n = Math.min(len, count);
+        int first = Math.min(n, ring.length - head);
+        System.arraycopy(ring, head, b, off, first);
+        System.arraycopy(ring, 0, b, off + first, n - first);
+        head = (head + n) % ring.length;
+        count -= n;
+        notFull.signalAll();
+        return n;
+    }
+
+    private void closeSource() {
+        lock.lock();
+        try {
+            sourceClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a stream that writes bytes to this pipe. Closing the stream closes the sink.
+     * @return the sink stream
+     */
+    public OutputStream sink() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                BytePipe.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                BytePipe.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                closeSink();
+            }
+        };
+    }
+
+    /**
+     * Gets the stream from which bytes written to this pipe are read.
+     * @return the source stream
+     */
+    public InputStream source() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                return n == -1 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return BytePipe.this.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                return pending();
+            }
+
+            @Override
+            public void close() {
+                closeSource();
+            }
+        };
+    }
+}
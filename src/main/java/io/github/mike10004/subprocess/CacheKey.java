@@ -0,0 +1,128 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Key that identifies a process execution for the purpose of caching its result.
+ * A key is a SHA-256 digest of the executable, arguments, effective environment, working
+ * directory, whether standard error is merged into standard output, a digest of the
+ * standard input, and digests of any files declared as inputs. Keys are equal if their
+ * digests are equal.
+ *
+ * <p>The effective environment is the environment the process would start with, so
+ * for the {@link Subprocess.EnvironmentMode#INHERITED inherited} and
+ * {@link Subprocess.EnvironmentMode#SNAPSHOT snapshot} modes it includes the variables
+ * of the JVM, such as {@code PATH}, minus removed variables. Executions in JVMs with
+ * different environments therefore have different keys, which matters for caches that
+ * persist across JVMs. Use {@link Subprocess.EnvironmentMode#EMPTY} with explicit variables
+ * for keys that depend only on the subprocess definition.</p>
+ */
+public final class CacheKey {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private final String digest;
+
+    private CacheKey(String digest) {
+        this.digest = requireNonNull(digest, "digest");
+    }
+
+    /**
+     * Computes the key of an execution.
+     * @param subprocess the subprocess
+     * @param mergeErrors whether standard error is merged into standard output
+     * @param inputDigest digest of standard input, or null if there is no input
+     * @return the key
+     */
+    static CacheKey compute(Subprocess subprocess, boolean mergeErrors, @Nullable byte[] inputDigest) {
+        return compute(subprocess, mergeErrors, inputDigest, Collections.emptyMap());
+    }
+
+    /**
+     * Computes the key of an execution that reads files declared as its inputs.
+     * @param subprocess the subprocess
+     * @param mergeErrors whether standard error is merged into standard output
+     * @param inputDigest digest of standard input, or null if there is no input
+     * @param inputFileDigests map of declared input file pathnames to content digests
+     * @return the key
+     */
+    static CacheKey compute(Subprocess subprocess, boolean mergeErrors, @Nullable byte[] inputDigest, Map<String, byte[]> inputFileDigests) {
+        MessageDigest md = Hashing.newDigest(ALGORITHM);
+        update(md, subprocess.executable());
+        List<String> arguments = subprocess.arguments();
+        update(md, String.valueOf(arguments.size()));
+        arguments.forEach(argument -> update(md, argument));
+        Map<String, String> environment = new TreeMap<>(subprocess.effectiveEnvironment());
+        update(md, String.valueOf(environment.size()));
+        environment.forEach((name, value) -> {
+            update(md, name);
+            update(md, value);
+        });
+        @Nullable File workingDirectory = subprocess.workingDirectory();
+        update(md, workingDirectory == null ? "" : workingDirectory.getAbsolutePath());
+        update(md, String.valueOf(mergeErrors));
+        if (inputDigest == null) {
+            md.update((byte) 0);
+        } else {
+            md.update((byte) 1);
+            md.update(inputDigest);
+        }
+        Map<String, byte[]> sortedInputFileDigests = new TreeMap<>(inputFileDigests);
+        update(md, String.valueOf(sortedInputFileDigests.size()));
+        sortedInputFileDigests.forEach((pathname, digest) -> {
+            update(md, pathname);
+            md.update(digest);
+        });
+        return new CacheKey(Hashing.toHex(md.digest()));
+    }
+
+    /**
+     * Creates a new message digest of the kind used for standard input digests.
+     * @return a new digest
+     */
+    static MessageDigest newInputDigest() {
+        return Hashing.newDigest(ALGORITHM);
+    }
+
+    private static void update(MessageDigest md, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // length prefix keeps adjacent fields from running together
+        int length = bytes.length;
+        md.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        md.update(bytes);
+    }
+
+    /**
+     * Gets the key digest.
+     * @return the digest as a lowercase hexadecimal string
+     */
+    public String digest() {
+        return digest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CacheKey)) return false;
+        return digest.equals(((CacheKey) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return digest.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheKey{" + digest + "}";
+    }
+}
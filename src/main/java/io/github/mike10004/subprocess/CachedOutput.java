@@ -0,0 +1,80 @@
+package io.github.mike10004.subprocess;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Exit code and raw output of a process execution, as held by a {@link ResultCache}.
+ * Instances are immutable.
+ */
+public final class CachedOutput {
+
+    private final int exitCode;
+    private final byte[] stdout;
+    private final byte[] stderr;
+
+    private CachedOutput(int exitCode, byte[] stdout, byte[] stderr) {
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    /**
+     * Creates an instance.
+     * @param exitCode the exit code
+     * @param stdout the standard output content
+     * @param stderr the standard error content
+     * @return a new instance
+     */
+    public static CachedOutput of(int exitCode, byte[] stdout, byte[] stderr) {
+        return new CachedOutput(exitCode, requireNonNull(stdout, "stdout").clone(), requireNonNull(stderr, "stderr").clone());
+    }
+
+    static CachedOutput wrap(int exitCode, byte[] stdout, byte[] stderr) {
+        return new CachedOutput(exitCode, stdout, stderr);
+    }
+
+    /**
+     * Gets the exit code.
+     * @return the exit code
+     */
+    public int exitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Gets a copy of the standard output content.
+     * @return the content
+     */
+    public byte[] stdout() {
+        return stdout.clone();
+    }
+
+    /**
+     * Gets a copy of the standard error content.
+     * @return the content
+     */
+    public byte[] stderr() {
+        return stderr.clone();
+    }
+
+    /**
+     * Gets the total length of the content.
+     * @return the number of bytes of standard output and standard error
+     */
+    public long size() {
+        return (long) stdout.length + stderr.length;
+    }
+
+    byte[] stdoutUnsafe() {
+        return stdout;
+    }
+
+    byte[] stderrUnsafe() {
+        return stderr;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedOutput{exitCode=" + exitCode + ", stdout=" + stdout.length + " bytes, stderr=" + stderr.length + " bytes}";
+    }
+}
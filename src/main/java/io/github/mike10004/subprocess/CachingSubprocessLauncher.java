@@ -0,0 +1,552 @@
+package io.github.mike10004.subprocess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+import static io.github.mike10004.subprocess.ProcessMissionControl.isPiped;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Launcher that decorates another launcher, caching execution results so that repeated
+ * executions of the same deterministic program with the same input do not launch new
+ * processes. Executions are identified by a {@link CacheKey} computed from the subprocess
+ * definition, the environment the process would start with, and a digest of standard input.
+ *
+ * <p>On a cache hit, the cached output is written to the sinks of a stream control produced
+ * by the caller's stream context, so the result has the same form as that of a real execution.
+ * Concurrent launches of the same execution are collapsed onto a single process, and the other
+ * launches receive its output once it completes. Monitors of results that did not come from a
+ * process of their own report a stand-in process that cannot be destroyed.
+ *
+ * <p>Executions are cached only if their output is pumped through the stream control, rather
+ * than redirected elsewhere, and their standard input is either absent, supplied through the
+ * stream control, or redirected from a file. Other executions are passed to the decorated
+ * launcher unchanged. Standard input supplied through the stream control is read into memory
+ * in order to compute its digest.
+ *
+ * <p>Files that a program reads can be declared as inputs with
+ * {@link Builder#declaredInputs(Function)}; their content digests become part of the key,
+ * so a cached result is not used after a declared input changes. A file's digest is
+ * recomputed only when its size or modification time changes. Combined with a
+ * {@link DiskResultCache}, this allows results to be reused across JVM runs.
+ */
+public class CachingSubprocessLauncher implements SubprocessLauncher {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingSubprocessLauncher.class);
+
+    private final SubprocessLauncher delegate;
+    private final ResultCache cache;
+    private final IntPredicate cacheableExitCode;
+    private final int maxOutputBytes;
+    private final Function<? super Subprocess, ? extends Collection<Path>> declaredInputs;
+    private final ConcurrentMap<Path, FileDigest> fileDigests;
+    private final ProcessTracker replayTracker;
+    private final ExecutorService executorService;
+    private final ConcurrentMap<CacheKey, CompletableFuture<Optional<CachedOutput>>> inFlight;
+
+    private CachingSubprocessLauncher(Builder builder) {
+        delegate = builder.delegate;
+        cache = builder.cache;
+        cacheableExitCode = builder.cacheableExitCode;
+        maxOutputBytes = builder.maxOutputBytes;
+        declaredInputs = builder.declaredInputs;
+        fileDigests = new ConcurrentHashMap<>();
+        replayTracker = new BasicProcessTracker();
+        executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("subprocess-cache-%d")
+                .setDaemon(true)
+                .build());
+        inFlight = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a new builder.
+     * @param delegate the launcher that launches processes on cache misses
+     * @return a new builder
+     */
+    public static Builder builder(SubprocessLauncher delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Gets the cache.
+     * @return the cache
+     */
+    public ResultCache cache() {
+        return cache;
+    }
+
+    @Override
+    public <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> launch(Subprocess subprocess, StreamContext<C, SO, SE> streamContext) throws SubprocessException {
+        C control;
+        try {
+            control = streamContext.produceControl();
+        } catch (IOException e) {
+            throw new SubprocessLaunchException("failed to produce output context", e);
+        }
+        if (!isCacheable(control)) {
+            return delegate.launch(subprocess, given(control, streamContext, control));
+        }
+        PreparedInput input;
+        Map<String, byte[]> inputFileDigests;
+        try {
+            input = prepareInput(control);
+            inputFileDigests = digestDeclaredInputs(subprocess);
+        } catch (IOException e) {
+            throw new SubprocessLaunchException("failed to read execution input", e);
+        }
+        CacheKey key = CacheKey.compute(subprocess, control.redirectErrorStream(), input.digest, inputFileDigests);
+        @Nullable CachedOutput cached = cache.get(key);
+        if (cached != null) {
+            return replayed(replayNow(cached, control, streamContext));
+        }
+        CompletableFuture<Optional<CachedOutput>> leaderOutput = new CompletableFuture<>();
+        CompletableFuture<Optional<CachedOutput>> existing = inFlight.putIfAbsent(key, leaderOutput);
+        if (existing != null) {
+            return replayed(existing.thenApplyAsync(output -> {
+                try {
+                    if (output.isPresent()) {
+                        return replay(output.get(), control, streamContext);
+                    }
+                    // the shared execution's output was too large to record, so run this one separately
+                    return delegate.launch(subprocess, given(new RecordingStreamControl<>(control, input.bytes, 0), streamContext, control)).await();
+                } catch (IOException | InterruptedException | SubprocessException e) {
+                    throw new CompletionException(e);
+                }
+            }, executorService));
+        }
+        cached = cache.get(key);
+        if (cached != null) {
+            // another execution completed between the first lookup and the in-flight registration
+            inFlight.remove(key, leaderOutput);
+            leaderOutput.complete(Optional.of(cached));
+            return replayed(replayNow(cached, control, streamContext));
+        }
+        return lead(subprocess, streamContext, control, input, key, leaderOutput);
+    }
+
+    private <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> lead(Subprocess subprocess, StreamContext<C, SO, SE> streamContext, C control, PreparedInput input,
+                                                                          CacheKey key, CompletableFuture<Optional<CachedOutput>> leaderOutput) {
+        RecordingStreamControl<C> recording = new RecordingStreamControl<>(control, input.bytes, maxOutputBytes);
+        // the output is published before the leader's own result is transformed, so that a launch
+        // of the same execution after the leader's result is available always finds it in the cache
+        StreamContext<RecordingStreamControl<C>, SO, SE> publishingContext = new StreamContext<RecordingStreamControl<C>, SO, SE>() {
+            @Override
+            public RecordingStreamControl<C> produceControl() {
+                return recording;
+            }
+
+            @Override
+            public StreamContent<SO, SE> transform(int exitCode, RecordingStreamControl<C> ctx) {
+                try {
+                    Optional<CachedOutput> output = recording.toCachedOutput(exitCode);
+                    if (output.isPresent() && cacheableExitCode.test(exitCode)) {
+                        store(key, output.get());
+                    }
+                    leaderOutput.complete(output);
+                } catch (RuntimeException e) {
+                    leaderOutput.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, leaderOutput);
+                }
+                return streamContext.transform(exitCode, control);
+            }
+        };
+        ProcessMonitor<SO, SE> monitor;
+        try {
+            monitor = delegate.launch(subprocess, publishingContext);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leaderOutput);
+            leaderOutput.completeExceptionally(e);
+            throw e;
+        }
+        // releases launches waiting on the leader if it fails before its output is published
+        @Nullable CompletableFuture<ProcessResult<SO, SE>> completion = monitor instanceof BasicProcessMonitor
+                ? ((BasicProcessMonitor<SO, SE>) monitor).completion() : null;
+        if (completion != null) {
+            completion.whenComplete((result, error) -> {
+                if (error != null) {
+                    leaderOutput.completeExceptionally(error);
+                }
+                inFlight.remove(key, leaderOutput);
+            });
+        } else {
+            // the delegate's monitors do not signal completion, so a thread must wait for it
+            executorService.execute(() -> {
+                try {
+                    monitor.future().get();
+                } catch (ExecutionException e) {
+                    leaderOutput.completeExceptionally(e.getCause());
+                } catch (InterruptedException e) {
+                    leaderOutput.completeExceptionally(e);
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.remove(key, leaderOutput);
+                }
+            });
+        }
+        return monitor;
+    }
+
+    /**
+     * Stores an output in the cache. A failure to store the output does not affect the
+     * result of the execution or of the launches waiting on it.
+     */
+    private void store(CacheKey key, CachedOutput output) {
+        try {
+            cache.put(key, output);
+        } catch (RuntimeException e) {
+            log.warn("failed to store result in cache", e);
+        }
+    }
+
+    private static boolean isCacheable(StreamControl control) {
+        boolean outputPiped = isPiped(control.redirectOutput()) && (control.redirectErrorStream() || isPiped(control.redirectError()));
+        Redirect.Type inputType = control.redirectInput().type();
+        return outputPiped && (inputType == Redirect.Type.PIPE || inputType == Redirect.Type.READ);
+    }
+
+    private static class PreparedInput {
+
+        /**
+         * Standard input content read from the stream control, or null if input is absent or redirected from a file.
+         */
+        @Nullable
+        public final byte[] bytes;
+
+        @Nullable
+        public final byte[] digest;
+
+        private PreparedInput(@Nullable byte[] bytes, @Nullable byte[] digest) {
+            this.bytes = bytes;
+            this.digest = digest;
+        }
+    }
+
+    private static PreparedInput prepareInput(StreamControl control) throws IOException {
+        MessageDigest md = CacheKey.newInputDigest();
+        Redirect redirect = control.redirectInput();
+        if (redirect.type() == Redirect.Type.READ) {
+            File file = redirect.file();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), md)) {
+                Streams.copy(in, Streams.nullOutputStream());
+            }
+            return new PreparedInput(null, md.digest());
+        }
+        @Nullable InputStream source = control.openStdinSource();
+        if (source == null) {
+            return new PreparedInput(null, null);
+        }
+        byte[] bytes;
+        try (InputStream in = source) {
+            bytes = Streams.toByteArray(in);
+        }
+        return new PreparedInput(bytes, md.digest(bytes));
+    }
+
+    private static class FileDigest {
+
+        public final long size;
+        public final long lastModified;
+        public final byte[] digest;
+
+        private FileDigest(long size, long lastModified, byte[] digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    private static final byte[] MISSING_FILE_DIGEST = new byte[0];
+
+    private Map<String, byte[]> digestDeclaredInputs(Subprocess subprocess) throws IOException {
+        Collection<Path> files = declaredInputs.apply(subprocess);
+        if (files.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, byte[]> digests = new HashMap<>();
+        for (Path file : files) {
+            Path absoluteFile = file.toAbsolutePath();
+            digests.put(absoluteFile.toString(), digestFile(absoluteFile));
+        }
+        return digests;
+    }
+
+    private byte[] digestFile(Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            fileDigests.remove(file);
+            return MISSING_FILE_DIGEST;
+        }
+        long size = attributes.size(), lastModified = attributes.lastModifiedTime().toMillis();
+        FileDigest memo = fileDigests.get(file);
+        if (memo != null && memo.size == size && memo.lastModified == lastModified) {
+            return memo.digest;
+        }
+        MessageDigest md = CacheKey.newInputDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+            Streams.copy(in, Streams.nullOutputStream());
+        }
+        byte[] digest = md.digest();
+        fileDigests.put(file, new FileDigest(size, lastModified, digest));
+        return digest;
+    }
+
+    private static <C extends StreamControl, D extends StreamControl, SO, SE> StreamContext<D, SO, SE> given(D control, StreamContext<C, SO, SE> streamContext, C inner) {
+        return new StreamContext<D, SO, SE>() {
+            @Override
+            public D produceControl() {
+                return control;
+            }
+
+            @Override
+            public StreamContent<SO, SE> transform(int exitCode, D context) {
+                return streamContext.transform(exitCode, inner);
+            }
+        };
+    }
+
+    private static <C extends StreamControl, SO, SE> ProcessResult<SO, SE> replay(CachedOutput output, C control, StreamContext<C, SO, SE> streamContext) throws IOException {
+        try (OutputStream stdout = control.openStdoutSink()) {
+            stdout.write(output.stdoutUnsafe());
+        }
+        if (!control.redirectErrorStream()) {
+            try (OutputStream stderr = control.openStderrSink()) {
+                stderr.write(output.stderrUnsafe());
+            }
+        }
+        return ProcessResult.direct(output.exitCode(), streamContext.transform(output.exitCode(), control));
+    }
+
+    private static <C extends StreamControl, SO, SE> CompletableFuture<ProcessResult<SO, SE>> replayNow(CachedOutput output, C control, StreamContext<C, SO, SE> streamContext) {
+        CompletableFuture<ProcessResult<SO, SE>> future = new CompletableFuture<>();
+        try {
+            future.complete(replay(output, control, streamContext));
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <SO, SE> ProcessMonitor<SO, SE> replayed(CompletableFuture<ProcessResult<SO, SE>> result) {
+        StreamAttachmentSignal signal = new StreamAttachmentLatch();
+        signal.notifyStreamsAttached();
+        return new BasicProcessMonitor<>(new ReplayedProcess(result), result, replayTracker, signal);
+    }
+
+    /**
+     * Stream control that records the output pumped to another control's sinks
+     * and supplies previously read standard input.
+     */
+    private static class RecordingStreamControl<C extends StreamControl> implements StreamControl {
+
+        private final C delegate;
+        @Nullable
+        private final byte[] input;
+        private final BoundedRecorder stdout, stderr;
+
+        public RecordingStreamControl(C delegate, @Nullable byte[] input, int maxOutputBytes) {
+            this.delegate = requireNonNull(delegate, "delegate");
+            this.input = input;
+            stdout = new BoundedRecorder(maxOutputBytes);
+            stderr = new BoundedRecorder(maxOutputBytes);
+        }
+
+        @Override
+        public OutputStream openStdoutSink() throws IOException {
+            return stdout.tee(delegate.openStdoutSink());
+        }
+
+        @Override
+        public OutputStream openStderrSink() throws IOException {
+            return stderr.tee(delegate.openStderrSink());
+        }
+
+        @Nullable
+        @Override
+        public InputStream openStdinSource() throws IOException {
+            return input == null ? delegate.openStdinSource() : new ByteArrayInputStream(input);
+        }
+
+        @Override
+        public Redirect redirectOutput() {
+            return delegate.redirectOutput();
+        }
+
+        @Override
+        public Redirect redirectError() {
+            return delegate.redirectError();
+        }
+
+        @Override
+        public Redirect redirectInput() {
+            return delegate.redirectInput();
+        }
+
+        @Override
+        public boolean redirectErrorStream() {
+            return delegate.redirectErrorStream();
+        }
+
+        public Optional<CachedOutput> toCachedOutput(int exitCode) {
+            if (stdout.overflowed() || stderr.overflowed()) {
+                return Optional.empty();
+            }
+            return Optional.of(CachedOutput.wrap(exitCode, stdout.toByteArray(), stderr.toByteArray()));
+        }
+    }
+
+    private static class BoundedRecorder {
+
+        private final int limit;
+        private final ByteArrayOutputStream buffer;
+        private boolean overflowed;
+
+        public BoundedRecorder(int limit) {
+            this.limit = limit;
+            buffer = new ByteArrayOutputStream();
+        }
+
+        private synchronized void record(byte[] b, int off, int len) {
+            if (overflowed) {
+                return;
+            }
+            if (buffer.size() + len > limit) {
+                overflowed = true;
+                buffer.reset();
+                return;
+            }
+            buffer.write(b, off, len);
+        }
+
+        public synchronized boolean overflowed() {
+            return overflowed;
+        }
+
+        public synchronized byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+
+        public OutputStream tee(OutputStream sink) {
+            return new FilterOutputStream(sink) {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    record(b, off, len);
+                }
+            };
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingSubprocessLauncher{delegate=" + delegate + ", cache=" + cache + "}";
+    }
+
+    /**
+     * Builder of caching launcher instances.
+     */
+    public static final class Builder {
+
+        private final SubprocessLauncher delegate;
+        private ResultCache cache;
+        private IntPredicate cacheableExitCode = exitCode -> exitCode == 0;
+        private int maxOutputBytes = 16 * 1024 * 1024;
+        private Function<? super Subprocess, ? extends Collection<Path>> declaredInputs = subprocess -> Collections.emptyList();
+
+        private Builder(SubprocessLauncher delegate) {
+            this.delegate = requireNonNull(delegate, "delegate");
+        }
+
+        /**
+         * Sets the cache. Default is a {@link MemoryResultCache} with default settings.
+         * @param val the cache
+         * @return this builder instance
+         */
+        public Builder cache(ResultCache val) {
+            cache = requireNonNull(val, "cache");
+            return this;
+        }
+
+        /**
+         * Sets the predicate that determines which exit codes are cached. By default only
+         * results with exit code zero are cached. Results with other exit codes are still
+         * shared with concurrent launches of the same execution.
+         * @param val the predicate
+         * @return this builder instance
+         */
+        public Builder cacheExitCodes(IntPredicate val) {
+            cacheableExitCode = requireNonNull(val, "predicate");
+            return this;
+        }
+
+        /**
+         * Sets the maximum length of standard output, and separately of standard error,
+         * that is recorded for caching. Executions that produce more are not cached.
+         * Default is 16MB.
+         * @param val the maximum in bytes
+         * @return this builder instance
+         */
+        public Builder maxOutputBytes(int val) {
+            Preconditions.checkArgument(val >= 0, "maxOutputBytes must be nonnegative");
+            maxOutputBytes = val;
+            return this;
+        }
+
+        /**
+         * Sets the function that provides the files a subprocess reads as inputs.
+         * The content of each file is part of the cache key. A declared file that
+         * does not exist is also part of the key, so creating it causes a cache miss.
+         * @param val function that maps a subprocess to its input files
+         * @return this builder instance
+         */
+        public Builder declaredInputs(Function<? super Subprocess, ? extends Collection<Path>> val) {
+            declaredInputs = requireNonNull(val, "declaredInputs");
+            return this;
+        }
+
+        public CachingSubprocessLauncher build() {
+            if (cache == null) {
+                cache = MemoryResultCache.builder().build();
+            }
+            return new CachingSubprocessLauncher(this);
+        }
+    }
+}
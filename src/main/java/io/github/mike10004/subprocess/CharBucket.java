@@ -0,0 +1,197 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream output that decodes bytes into characters as they are written. Multibyte
+ * sequences split across writes are carried over to the next write. Malformed input and
+ * unmappable characters are replaced, as in {@link String#String(byte[], Charset)}.
+ * ASCII and ISO-8859-1 bytes are decoded without a charset decoder.
+ */
+class CharBucket implements StreamOutput {
+
+    private static final int DECODE_BUFFER_SIZE = 1024;
+
+    private final Charset charset;
+    private final StringBuilder collector;
+
+    public CharBucket(Charset charset, int initialCapacity) {
+        this.charset = requireNonNull(charset, "charset");
+        this.collector = new StringBuilder(initialCapacity);
+    }
+
+    @Override
+    public OutputStream openStream() {
+        return new DecodingOutputStream();
+    }
+
+    /**
+     * Gets the characters decoded so far. The decoding is complete only
+     * after the stream opened by this instance has been closed.
+     * @return the decoded characters
+     */
+    public String dump() {
+        synchronized (collector) {
+            return collector.toString();
+        }
+    }
+
+    private enum FastPath {
+        NONE, LATIN1, ASCII, ASCII_PREFIX
+    }
+
+    private static FastPath fastPathFor(Charset charset) {
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            return FastPath.LATIN1;
+        }
+        if (StandardCharsets.US_ASCII.equals(charset)) {
+            return FastPath.ASCII;
+        }
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return FastPath.ASCII_PREFIX;
+        }
+        return FastPath.NONE;
+    }
+
+    private class DecodingOutputStream extends OutputStream {
+
+        private final FastPath fastPath;
+        private final CharsetDecoder decoder;
+        private final CharBuffer decoded;
+        private byte[] pending;
+        private int pendingLength;
+        private boolean closed;
+
+        public DecodingOutputStream() {
+            fastPath = fastPathFor(charset);
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoded = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+            pending = new byte[16];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            synchronized (collector) {
+                switch (fastPath) {
+                    case LATIN1:
+                        appendLatin1(b, off, len);
+                        return;
+                    case ASCII:
+                        appendAscii(b, off, len);
+                        return;
+                    case ASCII_PREFIX:
+                        if (pendingLength == 0) {
+                            int asciiLength = asciiPrefixLength(b, off, len);
+                            appendLatin1(b, off, asciiLength);
+                            off += asciiLength;
+                            len -= asciiLength;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (len > 0) {
+                    decode(b, off, len, false);
+                }
+            }
+        }
+
+        private int asciiPrefixLength(byte[] b, int off, int len) {
+            int i = 0;
+            while (i < len && b[off + i] >= 0) {
+                i++;
+            }
+            return i;
+        }
+
+        private void appendLatin1(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                collector.append((char) (b[i] & 0xFF));
+            }
+        }
+
+        private void appendAscii(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                byte value = b[i];
+                collector.append(value >= 0 ? (char) value : '\uFFFD');
+            }
+        }
+
+        private void decode(byte[] b, int off, int len, boolean endOfInput) {
+            ByteBuffer in;
+            if (pendingLength > 0) {
+                byte[] combined = Arrays.copyOf(pending, pendingLength + len);
+                System.arraycopy(b, off, combined, pendingLength, len);
+                in = ByteBuffer.wrap(combined);
+                pendingLength = 0;
+            } else {
+                in = ByteBuffer.wrap(b, off, len);
+            }
+            while (true) {
+                CoderResult result = decoder.decode(in, decoded, endOfInput);
+                drainDecoded();
+                if (!result.isOverflow()) {
+                    break;
+                }
+            }
+            if (endOfInput) {
+                while (decoder.flush(decoded).isOverflow()) {
+                    drainDecoded();
+                }
+                drainDecoded();
+            } else if (in.hasRemaining()) {
+                int remaining = in.remaining();
+                if (pending.length < remaining) {
+                    pending = new byte[remaining];
+                }
+                in.get(pending, 0, remaining);
+                pendingLength = remaining;
+            }
+        }
+
+        private void drainDecoded() {
+            decoded.flip();
+            collector.append(decoded);
+            decoded.clear();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (collector) {
+                if (fastPath != FastPath.LATIN1 && fastPath != FastPath.ASCII) {
+                    decode(new byte[0], 0, 0, true);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CharBucket[" + charset + "]";
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.mike10004.subprocess;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Enumeration of formats in which captured output may be compressed.
+ * @see CompressionSettings
+ */
+public enum CompressionFormat {
+
+    /**
+     * Gzip format, as produced by {@link GZIPOutputStream}.
+     */
+    GZIP(".gz") {
+        @Override
+        OutputStream compress(OutputStream out, int level, int bufferSize) throws IOException {
+            return new GZIPOutputStream(out, bufferSize) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        @Override
+        InputStream decompress(InputStream in, int bufferSize) throws IOException {
+            return new GZIPInputStream(in, bufferSize);
+        }
+    },
+
+    /**
+     * Zlib format, as produced by {@link DeflaterOutputStream}.
+     */
+    DEFLATE(".deflate") {
+        @Override
+        OutputStream compress(OutputStream out, int level, int bufferSize) {
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, bufferSize) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        InputStream decompress(InputStream in, int bufferSize) {
+            return new InflaterInputStream(in, new Inflater(), bufferSize) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private static final int DEFAULT_DECOMPRESSION_BUFFER_SIZE = 8192;
+
+    private final String suffix;
+
+    CompressionFormat(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * Gets the conventional filename suffix for files in this format.
+     * @return the suffix, including the leading dot
+     */
+    public String suffix() {
+        return suffix;
+    }
+
+    abstract OutputStream compress(OutputStream out, int level, int bufferSize) throws IOException;
+
+    abstract InputStream decompress(InputStream in, int bufferSize) throws IOException;
+
+    /**
+     * Returns a source of the decompressed content of a file in this format.
+     * The file is not read until a stream is opened.
+     * @param file the compressed file
+     * @return a stream input
+     */
+    public StreamInput decompressing(File file) {
+        requireNonNull(file, "file");
+        return new StreamInput() {
+            @Override
+            public InputStream openStream() throws IOException {
+                InputStream in = new BufferedInputStream(new FileInputStream(file), DEFAULT_DECOMPRESSION_BUFFER_SIZE);
+                try {
+                    return decompress(in, DEFAULT_DECOMPRESSION_BUFFER_SIZE);
+                } catch (IOException | RuntimeException e) {
+                    Streams.close(in);
+                    throw e;
+                }
+            }
+
+            @Override
+            public String toString() {
+                return String.format("DecompressingStreamInput{%s, %s}", CompressionFormat.this, file);
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.mike10004.subprocess;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Value class that represents settings for compressing process output as it is captured.
+ * Compression is performed on a dedicated thread, separate from the thread that reads
+ * the process output pipe, so that compression does not slow the pump.
+ * @see SubprocessLaunchSupport#outputCompressedFiles(File, File, CompressionSettings)
+ */
+public final class CompressionSettings {
+
+    private static final ThreadFactory COMPRESSOR_THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("output-compressor-%d")
+            .setDaemon(true)
+            .build();
+
+    private final CompressionFormat format;
+    private final int level;
+    private final int bufferSize;
+    private final int queueCapacity;
+
+    private CompressionSettings(Builder builder) {
+        format = builder.format;
+        level = builder.level;
+        bufferSize = builder.bufferSize;
+        queueCapacity = builder.queueCapacity;
+    }
+
+    /**
+     * Returns settings that use gzip format with the default compression level and buffer sizes.
+     * @return the settings
+     */
+    public static CompressionSettings gzip() {
+        return builder(CompressionFormat.GZIP).build();
+    }
+
+    public static Builder builder(CompressionFormat format) {
+        return new Builder(format);
+    }
+
+    public CompressionFormat format() {
+        return format;
+    }
+
+    public int level() {
+        return level;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Opens a stream that compresses bytes on a dedicated thread and writes them to a file.
+     * Closing the stream waits for all bytes to be compressed and written.
+     * @param file the destination file
+     * @return an open output stream
+     * @throws IOException on I/O error
+     */
+    OutputStream openCompressingStream(File file) throws IOException {
+        OutputStream fileStream = new BufferedOutputStream(new FileOutputStream(file), bufferSize);
+        OutputStream compressor;
+        try {
+            compressor = format.compress(fileStream, level, bufferSize);
+        } catch (IOException | RuntimeException e) {
+            Streams.close(fileStream);
+            throw e;
+        }
+        return new AsyncOutputStream(compressor, queueCapacity, false, COMPRESSOR_THREAD_FACTORY);
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionSettings{" +
+                "format=" + format +
+                ", level=" + level +
+                ", bufferSize=" + bufferSize +
+                ", queueCapacity=" + queueCapacity +
+                '}';
+    }
+
+    /**
+     * Builder of settings instances. By default, the compression level is
+     * {@link Deflater#DEFAULT_COMPRESSION}, the buffer size is 64KB, and up to
+     * 1024 chunks may be waiting for the compressor thread.
+     */
+    public static final class Builder {
+
+        private final CompressionFormat format;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int bufferSize = 64 * 1024;
+        private int queueCapacity = 1024;
+
+        private Builder(CompressionFormat format) {
+            this.format = requireNonNull(format, "format");
+        }
+
+        /**
+         * Sets the compression level.
+         * @param val a level from 0 to 9, or -1 for the default level
+         * @return this builder instance
+         */
+        public Builder level(int val) {
+            Preconditions.checkArgument(val == Deflater.DEFAULT_COMPRESSION || (val >= Deflater.NO_COMPRESSION && val <= Deflater.BEST_COMPRESSION), "invalid level: %s", val);
+            level = val;
+            return this;
+        }
+
+        /**
+         * Sets the size of the compressor buffer and the file output buffer.
+         * @param val the buffer size in bytes
+         * @return this builder instance
+         */
+        public Builder bufferSize(int val) {
+            Preconditions.checkArgument(val > 0, "buffer size must be positive");
+            bufferSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of chunks that may be waiting for the compressor thread.
+         * When the queue is full, the pump waits for the compressor to catch up.
+         * @param val the capacity
+         * @return this builder instance
+         */
+        public Builder queueCapacity(int val) {
+            Preconditions.checkArgument(val > 0, "queue capacity must be positive");
+            queueCapacity = val;
+            return this;
+        }
+
+        public CompressionSettings build() {
+            return new CompressionSettings(this);
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package io.github.mike10004.subprocess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pool of long-lived worker processes that answer requests written to standard input
+ * with responses printed on standard output. Reusing a worker avoids the cost of
+ * launching a new process, such as an interpreter, for every request.
+ *
+ * <pre>
+ * {@code
+ *     try (CoprocessPool pool = CoprocessPool.builder(launcher, Subprocess.running("jq").args("-c", "--unbuffered", ".name").build())
+ *             .maxSize(4)
+ *             .build()) {
+ *         try (CoprocessPool.Worker worker = pool.borrow()) {
+ *             String name = worker.request("{\"name\":\"foo\"}", UTF_8);
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>Requests and responses are framed either as lines or as payloads prefixed by their
+ * length; see {@link Framing}. A worker must answer each request with exactly one response
+ * and must flush its standard output after each response. Worker standard error is
+ * discarded.</p>
+ *
+ * <p>A worker is borrowed with {@link #borrow()} and returned by closing it. Workers are
+ * launched on demand, up to the maximum size of the pool. A worker is retired, and
+ * later replaced, when its process has exited, when a request fails with an I/O error,
+ * when it has served the maximum number of requests, or when it fails a health check.
+ * If a response timeout is set, a worker that does not accept a request and finish
+ * its response within the timeout is treated as failed, so a hung worker cannot block
+ * a borrower or a health check indefinitely. Retiring a worker closes its standard
+ * input and waits briefly for it to exit before destroying it.</p>
+ */
+public final class CoprocessPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CoprocessPool.class);
+
+    private static final int PIPE_CAPACITY = 64 * 1024;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * Enumeration of ways in which requests and responses are delimited.
+     */
+    public enum Framing {
+
+        /**
+         * Each request and response is a line terminated by a newline. Payloads may not
+         * contain a newline. A carriage return preceding the newline of a response is removed.
+         */
+        LINE,
+
+        /**
+         * Each request and response is preceded by its length in bytes, as a four-byte
+         * big-endian integer.
+         */
+        LENGTH_PREFIXED
+    }
+
+    private final SubprocessLauncher launcher;
+    private final Subprocess subprocess;
+    private final Framing framing;
+    private final int maxSize;
+    private final long maxRequestsPerWorker;
+    @Nullable
+    private final byte[] healthCheckRequest;
+    @Nullable
+    private final Predicate<byte[]> healthCheckExpectation;
+    private final long healthCheckIntervalNanos;
+    private final long shutdownTimeoutMillis;
+    private final long responseTimeoutNanos;
+    private final Object lock = new Object();
+    private final Deque<Worker> idle;
+    private final Set<Worker> workers;
+    private int size;
+    private long spawnCount;
+    private boolean closed;
+
+    private CoprocessPool(Builder builder) {
+        launcher = builder.launcher;
+        subprocess = builder.subprocess;
+        framing = builder.framing;
+        maxSize = builder.maxSize;
+        maxRequestsPerWorker = builder.maxRequestsPerWorker;
+        healthCheckRequest = builder.healthCheckRequest;
+        healthCheckExpectation = builder.healthCheckExpectation;
+        healthCheckIntervalNanos = builder.healthCheckInterval.toNanos();
+        shutdownTimeoutMillis = builder.shutdownTimeout.toMillis();
+        responseTimeoutNanos = builder.responseTimeout == null ? 0 : builder.responseTimeout.toNanos();
+        idle = new ArrayDeque<>();
+        workers = new HashSet<>();
+    }
+
+    /**
+     * Creates a new builder.
+     * @param launcher the launcher of worker processes
+     * @param subprocess the worker subprocess
+     * @return a new builder
+     */
+    public static Builder builder(SubprocessLauncher launcher, Subprocess subprocess) {
+        return new Builder(launcher, subprocess);
+    }
+
+    /**
+     * Borrows a worker, waiting as long as necessary for one to be available.
+     * @return a worker, to be returned by {@link Worker#close()}
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws SubprocessLaunchException if a new worker cannot be launched
+     * @throws IllegalStateException if this pool is closed
+     */
+    public Worker borrow() throws InterruptedException {
+        try {
+            return borrow(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("unexpected timeout", e);
+        }
+    }
+
+    /**
+     * Borrows a worker, waiting up to a timeout for one to be available.
+     * @param timeout the timeout
+     * @param unit the timeout unit
+     * @return a worker, to be returned by {@link Worker#close()}
+     * @throws TimeoutException if no worker is available before the timeout elapses
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws SubprocessLaunchException if a new worker cannot be launched
+     * @throws IllegalStateException if this pool is closed
+     */
+    public Worker borrow(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        while (true) {
+            Worker candidate;
+            synchronized (lock) {
+                while (true) {
+                    Preconditions.checkState(!closed, "pool is closed");
+                    candidate = idle.pollFirst();
+                    if (candidate != null || size < maxSize) {
+                        break;
+                    }
+                    if (remainingNanos <= 0) {
+                        throw new TimeoutException("no worker available within " + timeout + " " + unit);
+                    }
+                    long start = System.nanoTime();
+                    TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+                    remainingNanos -= System.nanoTime() - start;
+                }
+                if (candidate == null) {
+                    size++;
+                }
+            }
+            if (candidate == null) {
+                return spawn();
+            }
+            if (isHealthy(candidate)) {
+                candidate.borrowed = true;
+                return candidate;
+            }
+            log.debug("retiring unhealthy worker {}", candidate);
+            retire(candidate);
+        }
+    }
+
+    private Worker spawn() {
+        Worker worker;
+        try {
+            worker = new Worker();
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                size--;
+                lock.notifyAll();
+            }
+            throw e;
+        }
+        worker.borrowed = true;
+        boolean wasClosed;
+        synchronized (lock) {
+            spawnCount++;
+            wasClosed = closed;
+            if (!wasClosed) {
+                workers.add(worker);
+            } else {
+                size--;
+            }
+        }
+        if (wasClosed) {
+            worker.destroy();
+            throw new IllegalStateException("pool is closed");
+        }
+        return worker;
+    }
+
+    private boolean isHealthy(Worker worker) {
+        if (!worker.isAlive()) {
+            return false;
+        }
+        if (healthCheckRequest == null || System.nanoTime() - worker.lastUsedNanos < healthCheckIntervalNanos) {
+            return true;
+        }
+        try {
+            return requireNonNull(healthCheckExpectation).test(worker.exchange(healthCheckRequest));
+        } catch (IOException e) {
+            log.debug("health check of {} failed", worker, e);
+            return false;
+        }
+    }
+
+    private void release(Worker worker) {
+        Preconditions.checkState(worker.borrowed, "worker has already been returned");
+        worker.borrowed = false;
+        worker.lastUsedNanos = System.nanoTime();
+        boolean reusable = worker.isAlive() && worker.requestCount < maxRequestsPerWorker;
+        synchronized (lock) {
+            if (reusable && !closed && workers.contains(worker)) {
+                idle.addFirst(worker);
+                lock.notifyAll();
+                return;
+            }
+        }
+        retire(worker);
+    }
+
+    private void retire(Worker worker) {
+        synchronized (lock) {
+            if (!workers.remove(worker)) {
+                return;
+            }
+            idle.remove(worker);
+            size--;
+            lock.notifyAll();
+        }
+        worker.destroy();
+    }
+
+    /**
+     * Borrows a worker, sends it a request, and returns the worker.
+     * @param payload the request
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if the current thread is interrupted while waiting for a worker
+     * @see #borrow()
+     */
+    public byte[] request(byte[] payload) throws IOException, InterruptedException {
+        try (Worker worker = borrow()) {
+            return worker.request(payload);
+        }
+    }
+
+    /**
+     * Borrows a worker, sends it a request, and returns the worker.
+     * @param payload the request
+     * @param charset charset with which to encode the request and decode the response
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if the current thread is interrupted while waiting for a worker
+     * @see #borrow()
+     */
+    public String request(String payload, Charset charset) throws IOException, InterruptedException {
+        try (Worker worker = borrow()) {
+            return worker.request(payload, charset);
+        }
+    }
+
+    /**
+     * Gets the number of live workers, including those that are borrowed.
+     * @return the count
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * Gets the number of workers that are not borrowed.
+     * @return the count
+     */
+    public int idleCount() {
+        synchronized (lock) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Gets the number of workers launched since this pool was created.
+     * @return the count
+     */
+    public long spawnCount() {
+        synchronized (lock) {
+            return spawnCount;
+        }
+    }
+
+    /**
+     * Closes this pool and retires all workers, including those that are borrowed.
+     * Requests in progress on borrowed workers fail.
+     */
+    @Override
+    public void close() {
+        List<Worker> all;
+        synchronized (lock) {
+            closed = true;
+            all = new ArrayList<>(workers);
+            lock.notifyAll();
+        }
+        all.forEach(this::retire);
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "CoprocessPool{framing=" + framing + ", size=" + size + ", idle=" + idle.size() + ", maxSize=" + maxSize + ", closed=" + closed + "}";
+        }
+    }
+
+    /**
+     * Worker process borrowed from a pool. A worker must be used by one thread at a time.
+     */
+    public final class Worker implements AutoCloseable {
+
+        private final InteractiveStreamInput stdin;
+        private final BytePipe stdoutPipe;
+        private final ResponseStream stdoutSource;
+        private final DataInputStream stdout;
+        private final ProcessMonitor<Void, Void> monitor;
+        private volatile boolean borrowed;
+        private volatile boolean broken;
+        private volatile long requestCount;
+        private volatile long lastUsedNanos;
+
+        private Worker() {
+            stdin = InteractiveStreamInput.create(PIPE_CAPACITY);
+            stdoutPipe = new BytePipe(PIPE_CAPACITY);
+            stdoutSource = new ResponseStream();
+            stdout = new DataInputStream(new BufferedInputStream(stdoutSource));
+            NonCapturingStreamContext<PredefinedStreamControl> streamContext =
+                    () -> new PredefinedStreamControl(stdoutPipe::sink, StreamOutput.abyss(), stdin);
+            monitor = launcher.launch(subprocess, streamContext);
+            lastUsedNanos = System.nanoTime();
+        }
+
+        /**
+         * Sends a request and waits for the response. If an I/O error occurs, the
+         * worker is retired when it is returned to the pool.
+         * @param payload the request
+         * @return the response
+         * @throws InterruptedIOException if a response timeout is set and the request is
+         * not accepted and the response is not complete before it elapses
+         * @throws IOException if the request cannot be written or the response cannot be read,
+         * for example because the process has exited
+         * @throws IllegalArgumentException if the framing is {@link Framing#LINE} and the payload contains a newline
+         */
+        public byte[] request(byte[] payload) throws IOException {
+            byte[] response = exchange(payload);
+            requestCount++;
+            return response;
+        }
+
+        /**
+         * Sends a request and waits for the response.
+         * @param payload the request
+         * @param charset charset with which to encode the request and decode the response
+         * @return the response
+         * @throws IOException if the request cannot be written or the response cannot be read
+         * @see #request(byte[])
+         */
+        public String request(String payload, Charset charset) throws IOException {
+            return new String(request(payload.getBytes(charset)), charset);
+        }
+
+        private byte[] exchange(byte[] payload) throws IOException {
+            requireNonNull(payload, "payload");
+            if (broken) {
+                throw new IOException("worker is no longer usable");
+            }
+            byte[] frame = frame(payload);
+            try {
+                long deadlineNanos = System.nanoTime() + responseTimeoutNanos;
+                writeFrame(frame, deadlineNanos);
+                stdoutSource.deadlineNanos = deadlineNanos;
+                return framing == Framing.LINE ? readLine() : readLengthPrefixed();
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        private void writeFrame(byte[] frame, long deadlineNanos) throws IOException {
+            if (responseTimeoutNanos == 0) {
+                stdin.write(frame);
+                return;
+            }
+            for (int off = 0; off < frame.length; off += PIPE_CAPACITY) {
+                byte[] chunk = frame.length <= PIPE_CAPACITY ? frame : Arrays.copyOfRange(frame, off, Math.min(frame.length, off + PIPE_CAPACITY));
+                if (!stdin.offer(chunk, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new InterruptedIOException("request not accepted within " + Duration.ofNanos(responseTimeoutNanos));
+                }
+            }
+        }
+
+        private byte[] frame(byte[] payload) {
+            if (framing == Framing.LINE) {
+                for (byte b : payload) {
+                    Preconditions.checkArgument(b != '\n', "payload may not contain newline in line framing");
+                }
+                byte[] frame = new byte[payload.length + 1];
+                System.arraycopy(payload, 0, frame, 0, payload.length);
+                frame[payload.length] = '\n';
+                return frame;
+            }
+            return ByteBuffer.allocate(4 + payload.length).putInt(payload.length).put(payload).array();
+        }
+
+        private byte[] readLine() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            int b;
+            while ((b = stdout.read()) != '\n') {
+                if (b == -1) {
+                    throw new EOFException("worker closed standard output before end of response");
+                }
+                buffer.write(b);
+            }
+            byte[] line = buffer.toByteArray();
+            if (line.length > 0 && line[line.length - 1] == '\r') {
+                byte[] trimmed = new byte[line.length - 1];
+                System.arraycopy(line, 0, trimmed, 0, trimmed.length);
+                return trimmed;
+            }
+            return line;
+        }
+
+        private byte[] readLengthPrefixed() throws IOException {
+            int length = stdout.readInt();
+            if (length < 0 || length > MAX_FRAME_LENGTH) {
+                throw new IOException("invalid response length " + length);
+            }
+            byte[] response = new byte[length];
+            stdout.readFully(response);
+            return response;
+        }
+
+        /**
+         * Stream of worker standard output that fails a read when the response
+         * timeout of the current request elapses.
+         */
+        private class ResponseStream extends InputStream {
+
+            private final InputStream source = stdoutPipe.source();
+            private long deadlineNanos;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                return n == -1 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (responseTimeoutNanos == 0 || len == 0) {
+                    return source.read(b, off, len);
+                }
+                int n = stdoutPipe.read(b, off, len, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (n == 0) {
+                    throw new InterruptedIOException("no response within " + Duration.ofNanos(responseTimeoutNanos));
+                }
+                return n;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return source.available();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        }
+
+        /**
+         * Checks whether the process is alive and no request has failed.
+         * @return true if the worker is usable
+         */
+        public boolean isAlive() {
+            return !broken && monitor.process().isAlive();
+        }
+
+        /**
+         * Gets the number of requests this worker has served.
+         * @return the count
+         */
+        public long requestCount() {
+            return requestCount;
+        }
+
+        /**
+         * Gets the monitor of the worker process.
+         * @return the process monitor
+         */
+        public ProcessMonitor<Void, Void> monitor() {
+            return monitor;
+        }
+
+        private void destroy() {
+            broken = true;
+            stdin.close();
+            // unread output is discarded, so that the stdout pump does not block on a full pipe
+            Streams.closeAllAndIgnoreErrors(stdoutSource);
+            try {
+                monitor.await(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException | RuntimeException e) {
+                log.debug("worker did not exit after end of input; destroying", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            monitor.destructor().sendTermSignal()
+                    .await(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .kill()
+                    .tryAwaitKill(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                monitor.await(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | RuntimeException e) {
+                log.warn("worker process could not be awaited after destruction", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Returns this worker to the pool.
+         * @throws IllegalStateException if this worker has already been returned
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        @Override
+        public String toString() {
+            return "Worker{requests=" + requestCount + ", alive=" + isAlive() + ", borrowed=" + borrowed + "}";
+        }
+    }
+
+    /**
+     * Builder of pools.
+     */
+    public static final class Builder {
+
+        private final SubprocessLauncher launcher;
+        private final Subprocess subprocess;
+        private Framing framing = Framing.LINE;
+        private int maxSize = Runtime.getRuntime().availableProcessors();
+        private long maxRequestsPerWorker = Long.MAX_VALUE;
+        @Nullable
+        private byte[] healthCheckRequest;
+        @Nullable
+        private Predicate<byte[]> healthCheckExpectation;
+        private Duration healthCheckInterval = Duration.ZERO;
+        private Duration shutdownTimeout = Duration.ofSeconds(1);
+        @Nullable
+        private Duration responseTimeout;
+
+        private Builder(SubprocessLauncher launcher, Subprocess subprocess) {
+            this.launcher = requireNonNull(launcher, "launcher");
+            this.subprocess = requireNonNull(subprocess, "subprocess");
+        }
+
+        /**
+         * Sets the framing of requests and responses. Default is {@link Framing#LINE}.
+         * @param val the framing
+         * @return this builder instance
+         */
+        public Builder framing(Framing val) {
+            framing = requireNonNull(val, "framing");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of live workers. Default is the number of available processors.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder maxSize(int val) {
+            Preconditions.checkArgument(val > 0, "maxSize must be positive");
+            maxSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the number of requests after which a worker is retired when it is returned.
+         * Default is unlimited.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder maxRequestsPerWorker(long val) {
+            Preconditions.checkArgument(val > 0, "maxRequestsPerWorker must be positive");
+            maxRequestsPerWorker = val;
+            return this;
+        }
+
+        /**
+         * Sets the health check performed on an idle worker before it is borrowed.
+         * The request is sent to the worker, and the worker is retired if the request
+         * fails or the response does not satisfy the expectation. Health check
+         * requests do not count toward the maximum requests per worker. By default,
+         * a worker is only checked to be alive.
+         * @param request the health check request
+         * @param expectation predicate that a healthy response satisfies
+         * @return this builder instance
+         */
+        public Builder healthCheck(byte[] request, Predicate<byte[]> expectation) {
+            healthCheckRequest = requireNonNull(request, "request").clone();
+            healthCheckExpectation = requireNonNull(expectation, "expectation");
+            return this;
+        }
+
+        /**
+         * Sets the minimum time since a worker was last used after which it is health-checked
+         * before being borrowed. Default is zero, meaning every borrow is checked.
+         * @param val the interval
+         * @return this builder instance
+         * @see #healthCheck(byte[], Predicate)
+         */
+        public Builder healthCheckInterval(Duration val) {
+            requireNonNull(val, "healthCheckInterval");
+            Preconditions.checkArgument(!val.isNegative(), "healthCheckInterval must be nonnegative");
+            healthCheckInterval = val;
+            return this;
+        }
+
+        /**
+         * Sets the time a retired worker is given to exit after its standard input is
+         * closed, and again after it is sent a termination signal. Default is 1 second.
+         * @param val the timeout
+         * @return this builder instance
+         */
+        public Builder shutdownTimeout(Duration val) {
+            requireNonNull(val, "shutdownTimeout");
+            Preconditions.checkArgument(!val.isNegative(), "shutdownTimeout must be nonnegative");
+            shutdownTimeout = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to wait for a worker to accept a request and finish its
+         * response, including health checks. A worker that exceeds the timeout is retired.
+         * By default, there is no timeout.
+         * @param val the timeout
+         * @return this builder instance
+         */
+        public Builder responseTimeout(Duration val) {
+            requireNonNull(val, "responseTimeout");
+            Preconditions.checkArgument(!val.isNegative() && !val.isZero(), "responseTimeout must be positive");
+            responseTimeout = val;
+            return this;
+        }
+
+        public CoprocessPool build() {
+            return new CoprocessPool(this);
+        }
+    }
+}
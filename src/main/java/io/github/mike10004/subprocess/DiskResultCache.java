@@ -0,0 +1,332 @@
+package io.github.mike10004.subprocess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Result cache that stores entries as files in a directory, so that they survive restarts
+ * of the JVM and may be shared by multiple JVMs. Each entry is stored in a file named by
+ * its key digest. Entries are written to a temporary file and then moved into place, so a
+ * reader never sees a partially written entry.
+ *
+ * <p>The cache is bounded by the total size of its entry files. When a write exceeds the
+ * bound, the entries least recently read or written are deleted. Reading an entry updates
+ * its file modification time to record its use.
+ *
+ * <p>Keys include the effective environment of the process, so a JVM whose environment
+ * differs, for example in {@code PATH} or {@code LANG}, does not reuse entries written
+ * by another. To share entries among machines whose environments differ in irrelevant
+ * ways, use {@link Subprocess.EnvironmentMode#EMPTY} and set the relevant variables
+ * explicitly; see {@link CacheKey}.
+ */
+public class DiskResultCache implements ResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskResultCache.class);
+
+    private static final int MAGIC = 0x53504331;
+    private static final String ENTRY_SUFFIX = ".entry";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Object sizeLock = new Object();
+    private long estimatedBytes = -1;
+
+    private DiskResultCache(Builder builder) {
+        directory = builder.directory;
+        maxBytes = builder.maxBytes;
+    }
+
+    /**
+     * Creates a new builder.
+     * @param directory the directory in which entries are stored; it is created if it does not exist
+     * @return a new builder
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    @VisibleForTesting
+    Path entryFile(CacheKey key) {
+        String digest = key.digest();
+        return directory.resolve(digest.substring(0, 2)).resolve(digest + ENTRY_SUFFIX);
+    }
+
+    @Nullable
+    @Override
+    public CachedOutput get(CacheKey key) {
+        Path file = entryFile(requireNonNull(key, "key"));
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("failed to read cache entry {}: {}", file, e.toString());
+            return null;
+        }
+        CachedOutput output = decode(bytes);
+        if (output == null) {
+            log.warn("deleting corrupt cache entry {}", file);
+            delete(file);
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignore) {
+            // the entry may have been evicted by another process
+        }
+        return output;
+    }
+
+    @Override
+    public void put(CacheKey key, CachedOutput output) {
+        requireNonNull(output, "output");
+        Path file = entryFile(requireNonNull(key, "key"));
+        long size;
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), key.digest(), ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                    encode(output, out);
+                }
+                size = Files.size(tempFile);
+                try {
+                    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to write cache entry " + file, e);
+        }
+        boolean overLimit;
+        synchronized (sizeLock) {
+            if (estimatedBytes < 0) {
+                estimatedBytes = scanTotalBytes();
+            } else {
+                estimatedBytes += size;
+            }
+            overLimit = estimatedBytes > maxBytes;
+        }
+        if (overLimit) {
+            evict();
+        }
+    }
+
+    private static void encode(CachedOutput output, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(output.exitCode());
+        byte[] stdout = output.stdoutUnsafe(), stderr = output.stderrUnsafe();
+        data.writeInt(stdout.length);
+        data.write(stdout);
+        data.writeInt(stderr.length);
+        data.write(stderr);
+        data.flush();
+    }
+
+    @Nullable
+    private static CachedOutput decode(byte[] bytes) {
+        try {
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (data.readInt() != MAGIC) {
+                return null;
+            }
+            int exitCode = data.readInt();
+            byte[] stdout = readChunk(data, bytes.length);
+            byte[] stderr = readChunk(data, bytes.length);
+            if (data.available() > 0) {
+                return null;
+            }
+            return CachedOutput.wrap(exitCode, stdout, stderr);
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("BUG: reading from byte array should not throw", e);
+        }
+    }
+
+    private static byte[] readChunk(DataInputStream data, int limit) throws IOException {
+        int length = data.readInt();
+        if (length < 0 || length > limit) {
+            throw new EOFException("invalid length " + length);
+        }
+        byte[] chunk = new byte[length];
+        data.readFully(chunk);
+        return chunk;
+    }
+
+    private List<Path> listEntryFiles() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(ENTRY_SUFFIX)).collect(Collectors.toList());
+        }
+    }
+
+    private long scanTotalBytes() {
+        try {
+            long total = 0;
+            for (Path file : listEntryFiles()) {
+                total += sizeOf(file);
+            }
+            return total;
+        } catch (IOException e) {
+            log.warn("failed to scan cache directory {}: {}", directory, e.toString());
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static class EntryFile {
+
+        public final Path path;
+        public final long size;
+        public final long lastModified;
+
+        private EntryFile(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    /**
+     * Deletes least recently used entries until the total size is within the bound.
+     * Entry sizes are scanned afresh, because other processes may share the directory.
+     */
+    private void evict() {
+        synchronized (sizeLock) {
+            List<EntryFile> entries = new ArrayList<>();
+            try {
+                for (Path file : listEntryFiles()) {
+                    try {
+                        entries.add(new EntryFile(file, Files.readAttributes(file, BasicFileAttributes.class)));
+                    } catch (NoSuchFileException ignore) {
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("failed to scan cache directory {}: {}", directory, e.toString());
+                return;
+            }
+            entries.sort(Comparator.comparingLong(e -> e.lastModified));
+            long total = entries.stream().mapToLong(e -> e.size).sum();
+            for (EntryFile entry : entries) {
+                if (total <= maxBytes) {
+                    break;
+                }
+                delete(entry.path);
+                total -= entry.size;
+            }
+            estimatedBytes = total;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("failed to delete cache entry {}: {}", file, e.toString());
+        }
+    }
+
+    @Override
+    public void invalidate(CacheKey key) {
+        Path file = entryFile(requireNonNull(key, "key"));
+        long size = sizeOf(file);
+        delete(file);
+        synchronized (sizeLock) {
+            if (estimatedBytes >= 0) {
+                estimatedBytes = Math.max(0, estimatedBytes - size);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (sizeLock) {
+            try {
+                listEntryFiles().forEach(DiskResultCache::delete);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to scan cache directory " + directory, e);
+            }
+            estimatedBytes = 0;
+        }
+    }
+
+    /**
+     * Gets the directory in which entries are stored.
+     * @return the directory
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public String toString() {
+        return "DiskResultCache{directory=" + directory + ", maxBytes=" + maxBytes + "}";
+    }
+
+    /**
+     * Builder of disk result cache instances.
+     */
+    public static final class Builder {
+
+        private final Path directory;
+        private long maxBytes = 1024L * 1024 * 1024;
+
+        private Builder(Path directory) {
+            this.directory = requireNonNull(directory, "directory");
+        }
+
+        /**
+         * Sets the maximum total size of entry files. Default is 1GB.
+         * @param val the maximum in bytes
+         * @return this builder instance
+         */
+        public Builder maxBytes(long val) {
+            Preconditions.checkArgument(val >= 0, "maxBytes must be nonnegative");
+            maxBytes = val;
+            return this;
+        }
+
+        public DiskResultCache build() {
+            return new DiskResultCache(this);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Service that resolves executable names against a search path and checks working
+ * directories, caching the results. A cached resolution is trusted for a time to live;
+ * after that, it is revalidated by comparing the modification times of the search path
+ * directories that were examined, and of the resolved file, with those recorded when the
+ * executable was resolved. If none has changed, the resolution is renewed without
+ * searching again. Failed resolutions are cached in the same way, so that repeated
+ * attempts to launch a missing executable fail without searching the path.
+ *
+ * <p>Use with a {@link ResolvingSubprocessLauncher} to resolve executables at launch,
+ * or use {@link #running(String)} to create subprocess definitions that name the
+ * resolved executable file.</p>
+ */
+public final class ExecutableResolver {
+
+    private final List<File> searchPath;
+    private final List<String> extensions;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, Resolution> resolutions;
+    private final Map<File, DirectoryCheck> directoryChecks;
+
+    private ExecutableResolver(Builder builder) {
+        searchPath = Collections.unmodifiableList(new ArrayList<>(builder.searchPath));
+        extensions = Collections.unmodifiableList(new ArrayList<>(builder.extensions));
+        ttl = builder.ttl;
+        clock = builder.clock;
+        resolutions = new ConcurrentHashMap<>();
+        directoryChecks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a resolver with default settings.
+     * @return a new resolver
+     */
+    public static ExecutableResolver create() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a new builder whose search path is taken from the {@code PATH} environment variable.
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks whether an executable string is a bare name, which the operating system
+     * would resolve against the search path, rather than a pathname.
+     * @param executable the executable string
+     * @return true if the string contains no name separator
+     */
+    static boolean isBareName(String executable) {
+        return executable.indexOf('/') < 0 && executable.indexOf(File.separatorChar) < 0;
+    }
+
+    /**
+     * Resolves an executable name against the search path.
+     * @param executable the executable name
+     * @return the executable file
+     * @throws ExecutableNotFoundException if no executable file by the given name is on the search path
+     */
+    public File resolve(String executable) throws ExecutableNotFoundException {
+        requireNonNull(executable, "executable");
+        Preconditions.checkArgument(isBareName(executable), "not a bare executable name: %s", executable);
+        long now = clock.millis();
+        Resolution resolution = resolutions.get(executable);
+        if (resolution == null || !resolution.renewIfUnchanged(now, ttl.toMillis())) {
+            resolution = search(executable, now);
+            resolutions.put(executable, resolution);
+        }
+        if (resolution.file == null) {
+            throw new ExecutableNotFoundException(executable);
+        }
+        return resolution.file;
+    }
+
+    private Resolution search(String executable, long now) {
+        List<File> examined = new ArrayList<>();
+        for (File directory : searchPath) {
+            examined.add(directory);
+            for (String extension : extensions) {
+                File file = new File(directory, executable + extension);
+                if (file.isFile() && file.canExecute()) {
+                    return new Resolution(file, examined, now + ttl.toMillis());
+                }
+            }
+        }
+        return new Resolution(null, examined, now + ttl.toMillis());
+    }
+
+    /**
+     * Checks whether a working directory exists and is a directory.
+     * @param workingDirectory the working directory; null means the working directory of the JVM
+     * @return true if the argument is null or is a directory
+     */
+    public boolean isDirectory(@Nullable File workingDirectory) {
+        if (workingDirectory == null) {
+            return true;
+        }
+        long now = clock.millis();
+        DirectoryCheck check = directoryChecks.get(workingDirectory);
+        if (check == null || now >= check.expiresAtMillis) {
+            check = new DirectoryCheck(workingDirectory.isDirectory(), now + ttl.toMillis());
+            directoryChecks.put(workingDirectory, check);
+        }
+        return check.directory;
+    }
+
+    /**
+     * Constructs a subprocess builder for the resolved executable file.
+     * @param executable the executable name
+     * @return a new builder
+     * @throws ExecutableNotFoundException if no executable file by the given name is on the search path
+     */
+    public Subprocess.Builder running(String executable) throws ExecutableNotFoundException {
+        return Subprocess.running(resolve(executable).getPath());
+    }
+
+    /**
+     * Discards all cached resolutions and working directory checks.
+     */
+    public void invalidateAll() {
+        resolutions.clear();
+        directoryChecks.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutableResolver{searchPath=" + searchPath + ", ttl=" + ttl + "}";
+    }
+
+    private static final class Resolution {
+
+        @Nullable
+        public final File file;
+        private final long fileModified;
+        private final File[] directories;
+        private final long[] directoriesModified;
+        private volatile long expiresAtMillis;
+
+        private Resolution(@Nullable File file, List<File> directories, long expiresAtMillis) {
+            this.file = file;
+            this.fileModified = file == null ? 0 : file.lastModified();
+            this.directories = directories.toArray(new File[0]);
+            this.directoriesModified = lastModified(this.directories);
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private static long[] lastModified(File[] files) {
+            long[] times = new long[files.length];
+            for (int i = 0; i < files.length; i++) {
+                times[i] = files[i].lastModified();
+            }
+            return times;
+        }
+
+        /**
+         * Checks whether this resolution may still be used, renewing it if it has
+         * expired but nothing it depends on has been modified.
+         */
+        public boolean renewIfUnchanged(long now, long ttlMillis) {
+            long expiry = expiresAtMillis;
+            if (now < expiry) {
+                return true;
+            }
+            if (file != null && file.lastModified() != fileModified) {
+                return false;
+            }
+            if (!Arrays.equals(lastModified(directories), directoriesModified)) {
+                return false;
+            }
+            expiresAtMillis = now + ttlMillis;
+            return true;
+        }
+    }
+
+    private static final class DirectoryCheck {
+
+        public final boolean directory;
+        public final long expiresAtMillis;
+
+        private DirectoryCheck(boolean directory, long expiresAtMillis) {
+            this.directory = directory;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Exception thrown when an executable name cannot be resolved.
+     */
+    public static class ExecutableNotFoundException extends SubprocessLaunchException {
+
+        public ExecutableNotFoundException(String executable) {
+            super("executable not found on search path: " + executable);
+        }
+    }
+
+    /**
+     * Builder of resolver instances.
+     */
+    public static final class Builder {
+
+        private List<File> searchPath;
+        private List<String> extensions;
+        private Duration ttl = Duration.ofSeconds(10);
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+            searchPath = parseSearchPath(System.getenv("PATH"));
+            extensions = defaultExtensions();
+        }
+
+        private static List<File> parseSearchPath(@Nullable String path) {
+            List<File> directories = new ArrayList<>();
+            if (path != null) {
+                for (String element : path.split(File.pathSeparator)) {
+                    if (!element.isEmpty()) {
+                        directories.add(new File(element));
+                    }
+                }
+            }
+            return directories;
+        }
+
+        private static List<String> defaultExtensions() {
+            if (File.separatorChar != '\\') {
+                return Collections.singletonList("");
+            }
+            List<String> extensions = new ArrayList<>();
+            extensions.add("");
+            String pathext = System.getenv("PATHEXT");
+            for (String extension : (pathext == null ? ".COM;.EXE;.BAT;.CMD" : pathext).split(";")) {
+                if (!extension.isEmpty()) {
+                    extensions.add(extension.toLowerCase(Locale.ROOT));
+                }
+            }
+            return extensions;
+        }
+
+        /**
+         * Sets the directories to search, in order.
+         * @param val the directories
+         * @return this builder instance
+         */
+        public Builder searchPath(List<File> val) {
+            Defensive.requireAllNotNull(val, "search path directories must be non-null");
+            searchPath = new ArrayList<>(val);
+            return this;
+        }
+
+        /**
+         * Sets the directories to search from a string in the format of the {@code PATH} environment variable.
+         * @param val the path string
+         * @return this builder instance
+         */
+        public Builder searchPath(String val) {
+            searchPath = parseSearchPath(requireNonNull(val, "path"));
+            return this;
+        }
+
+        /**
+         * Sets the time for which a resolution or working directory check is trusted before
+         * it is revalidated. Default is 10 seconds.
+         * @param val the time to live
+         * @return this builder instance
+         */
+        public Builder ttl(Duration val) {
+            Preconditions.checkArgument(!val.isNegative(), "ttl must be nonnegative");
+            ttl = val;
+            return this;
+        }
+
+        /**
+         * Sets the clock with which expiry is determined.
+         * @param val the clock
+         * @return this builder instance
+         */
+        public Builder clock(Clock val) {
+            clock = requireNonNull(val, "clock");
+            return this;
+        }
+
+        public ExecutableResolver build() {
+            return new ExecutableResolver(this);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.mike10004.subprocess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Class that schedules the nodes of a job graph. A node becomes ready when all of its
+ * dependencies have succeeded, and ready nodes are launched in priority order while
+ * fewer nodes than the concurrency limit are running. Each running process is awaited
+ * on a thread of its own, and all state transitions happen while holding the lock
+ * of this instance.
+ */
+class GraphExecution<SO, SE> {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphExecution.class);
+
+    private static final String THREAD_NAME_FORMAT = "subprocess-graph-%d";
+
+    private final JobGraph<SO, SE> graph;
+    private final SubprocessLauncher launcher;
+    private final BatchOptions options;
+    private final int[] pending;
+    private final long[] readyNanos;
+    private final long[] startNanos;
+    private final NodeResult<?, ?>[] results;
+    private final PriorityQueue<Integer> ready;
+    private final Map<Integer, ProcessMonitor<SO, SE>> running;
+    private final Set<Integer> destroyed;
+    private final CompletableFuture<GraphResult<SO, SE>> future;
+    private final ExecutorService executorService;
+    private long launchNanos;
+    private boolean stopped;
+
+    public GraphExecution(JobGraph<SO, SE> graph, SubprocessLauncher launcher, BatchOptions options) {
+        this.graph = requireNonNull(graph, "graph");
+        this.launcher = requireNonNull(launcher, "launcher");
+        this.options = requireNonNull(options, "options");
+        int n = graph.size();
+        pending = new int[n];
+        readyNanos = new long[n];
+        startNanos = new long[n];
+        results = new NodeResult<?, ?>[n];
+        Comparator<Integer> order = Comparator.naturalOrder();
+        if (graph.isCriticalPathFirst()) {
+            order = Comparator.<Integer>comparingLong(graph::criticalPathCost).reversed().thenComparing(order);
+        }
+        ready = new PriorityQueue<>(order);
+        running = new LinkedHashMap<>();
+        destroyed = new HashSet<>();
+        future = new CompletableFuture<>();
+        executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat(THREAD_NAME_FORMAT)
+                .setDaemon(true)
+                .build());
+    }
+
+    public synchronized void start() {
+        launchNanos = System.nanoTime();
+        for (int i = 0; i < graph.size(); i++) {
+            pending[i] = graph.dependencyIndexes(i).length;
+            if (pending[i] == 0) {
+                markReady(i, launchNanos);
+            }
+        }
+        schedule();
+    }
+
+    private void markReady(int index, long now) {
+        readyNanos[index] = now;
+        ready.add(index);
+    }
+
+    private void schedule() {
+        while (!stopped && running.size() < options.concurrency() && !ready.isEmpty()) {
+            launch(ready.remove());
+        }
+        if (running.isEmpty() && (stopped || ready.isEmpty())) {
+            complete();
+        }
+    }
+
+    private void launch(int index) {
+        startNanos[index] = System.nanoTime();
+        ProcessMonitor<SO, SE> monitor;
+        try {
+            monitor = graph.job(index).launch(launcher);
+        } catch (RuntimeException e) {
+            log.debug("failed to launch node {}", graph.id(index), e);
+            finish(index, NodeResult.Status.FAILED, null, e);
+            return;
+        }
+        running.put(index, monitor);
+        executorService.execute(() -> await(index, monitor));
+    }
+
+    private void await(int index, ProcessMonitor<SO, SE> monitor) {
+        ProcessResult<SO, SE> result = null;
+        Throwable error = null;
+        try {
+            result = monitor.await();
+        } catch (InterruptedException e) {
+            monitor.destructor().sendTermSignal();
+            error = e;
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        synchronized (this) {
+            running.remove(index);
+            NodeResult.Status status;
+            if (result != null && options.isSuccess(result.exitCode())) {
+                status = NodeResult.Status.SUCCEEDED;
+            } else {
+                status = destroyed.contains(index) ? NodeResult.Status.CANCELLED : NodeResult.Status.FAILED;
+            }
+            finish(index, status, result, error);
+            schedule();
+        }
+    }
+
+    private void finish(int index, NodeResult.Status status, @Nullable ProcessResult<SO, SE> result, @Nullable Throwable error) {
+        long now = System.nanoTime();
+        results[index] = new NodeResult<>(graph.id(index), status, result, error,
+                offset(readyNanos[index]), offset(startNanos[index]), offset(now));
+        if (status == NodeResult.Status.SUCCEEDED) {
+            for (int dependent : graph.dependentIndexes(index)) {
+                if (--pending[dependent] == 0 && results[dependent] == null) {
+                    markReady(dependent, now);
+                }
+            }
+        } else {
+            skipDependents(index);
+            if (status == NodeResult.Status.FAILED && options.isFailFast()) {
+                stop();
+            }
+        }
+    }
+
+    private void skipDependents(int index) {
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(index);
+        while (!queue.isEmpty()) {
+            for (int dependent : graph.dependentIndexes(queue.remove())) {
+                if (results[dependent] == null) {
+                    results[dependent] = new NodeResult<>(graph.id(dependent), NodeResult.Status.SKIPPED, null, null, null, null, null);
+                    queue.add(dependent);
+                }
+            }
+        }
+    }
+
+    private Duration offset(long nanos) {
+        return Duration.ofNanos(nanos - launchNanos);
+    }
+
+    /**
+     * Stops launching nodes and sends a termination signal to the processes that are running.
+     * @return the processes that were running
+     */
+    public synchronized List<Process> stop() {
+        stopped = true;
+        List<Process> processes = new ArrayList<>(running.size());
+        running.forEach((index, monitor) -> {
+            destroyed.add(index);
+            monitor.destructor().sendTermSignal();
+            processes.add(monitor.process());
+        });
+        if (running.isEmpty()) {
+            complete();
+        }
+        return processes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete() {
+        if (future.isDone()) {
+            return;
+        }
+        ready.clear();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new NodeResult<>(graph.id(i), NodeResult.Status.CANCELLED, null, null,
+                        pending[i] == 0 ? offset(readyNanos[i]) : null, null, null);
+            }
+        }
+        executorService.shutdown();
+        List<NodeResult<SO, SE>> list = new ArrayList<>(results.length);
+        Arrays.stream(results).forEach(result -> list.add((NodeResult<SO, SE>) result));
+        future.complete(new GraphResult<>(list, offset(System.nanoTime())));
+    }
+
+    public CompletableFuture<GraphResult<SO, SE>> future() {
+        return future;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.mike10004.subprocess;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Monitor of a launched job graph.
+ * @param <SO> type of captured standard output contents
+ * @param <SE> type of captured standard error contents
+ * @see JobGraph#launch(SubprocessLauncher, BatchOptions)
+ */
+public class GraphMonitor<SO, SE> {
+
+    private final GraphExecution<SO, SE> execution;
+
+    GraphMonitor(GraphExecution<SO, SE> execution) {
+        this.execution = requireNonNull(execution, "execution");
+    }
+
+    /**
+     * Gets a future that completes with the result of the graph when every node has
+     * finished, been skipped, or been cancelled.
+     * @return the future
+     */
+    public CompletableFuture<GraphResult<SO, SE>> future() {
+        return execution.future();
+    }
+
+    /**
+     * Waits for the graph to finish.
+     * @return the graph result
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public GraphResult<SO, SE> await() throws InterruptedException {
+        try {
+            return future().get();
+        } catch (ExecutionException e) {
+            throw new SubprocessExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits for the graph to finish, up to a timeout.
+     * @param timeout the timeout
+     * @param unit the timeout unit
+     * @return the graph result
+     * @throws TimeoutException if the graph does not finish before the timeout elapses
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public GraphResult<SO, SE> await(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        try {
+            return future().get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw new SubprocessExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops launching nodes and sends a termination signal to the processes that are running.
+     * Nodes that had not finished have status {@link NodeResult.Status#CANCELLED}.
+     */
+    public void cancel() {
+        execution.stop();
+    }
+
+    /**
+     * Stops launching nodes and attempts to destroy the processes that are running,
+     * waiting for each to terminate.
+     * @param timeoutPerProcess the timeout per process
+     * @param unit the timeout unit
+     * @return a list of processes that are still alive
+     * @see ProcessTracker#destroyAll(Iterable, long, TimeUnit)
+     */
+    public List<Process> destroyAll(long timeoutPerProcess, TimeUnit unit) {
+        return ProcessTracker.destroyAll(execution.stop(), timeoutPerProcess, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphMonitor{done=" + future().isDone() + "}";
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.mike10004.subprocess;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Result of the execution of a job graph.
+ * @param <SO> type of captured standard output content
+ * @param <SE> type of captured standard error content
+ * @see JobGraph
+ */
+public final class GraphResult<SO, SE> {
+
+    private final Map<String, NodeResult<SO, SE>> nodes;
+    private final Duration elapsed;
+
+    GraphResult(List<NodeResult<SO, SE>> nodes, Duration elapsed) {
+        Map<String, NodeResult<SO, SE>> map = new LinkedHashMap<>();
+        nodes.forEach(node -> map.put(node.id(), node));
+        this.nodes = Collections.unmodifiableMap(map);
+        this.elapsed = requireNonNull(elapsed, "elapsed");
+    }
+
+    /**
+     * Gets the results of the nodes.
+     * @return an immutable map of node identifier to result, in the order in which nodes were added to the graph
+     */
+    public Map<String, NodeResult<SO, SE>> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the result of a node.
+     * @param id the node identifier
+     * @return the result
+     * @throws IllegalArgumentException if the graph has no such node
+     */
+    public NodeResult<SO, SE> node(String id) {
+        NodeResult<SO, SE> node = nodes.get(id);
+        Preconditions.checkArgument(node != null, "no such node: %s", id);
+        return node;
+    }
+
+    /**
+     * Gets the results of nodes with a given status.
+     * @param status the status
+     * @return a list of results, in the order in which nodes were added to the graph
+     */
+    public List<NodeResult<SO, SE>> withStatus(NodeResult.Status status) {
+        return nodes.values().stream().filter(node -> node.status() == status).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the time from launch of the graph until the last node finished.
+     * @return the elapsed time
+     */
+    public Duration elapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Checks whether every node succeeded.
+     * @return true if every node succeeded
+     */
+    public boolean isSuccess() {
+        return nodes.values().stream().allMatch(NodeResult::isSuccess);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphResult{" +
+                "nodes=" + nodes.size() +
+                ", success=" + isSuccess() +
+                ", elapsed=" + elapsed +
+                '}';
+    }
+}
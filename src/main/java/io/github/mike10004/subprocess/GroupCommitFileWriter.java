@@ -0,0 +1,559 @@
+package io.github.mike10004.subprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writer that performs file writes for many output streams on a single shared thread.
+ * Streams opened by this writer do not write to their files directly; instead, bytes
+ * are appended to a per-file queue, and the writer thread drains each queue with a
+ * single gathered write to a file channel. Small writes are coalesced into larger
+ * buffers as they are queued. This reduces the number of write operations issued when
+ * many processes produce output concurrently.
+ *
+ * <p>Files are not forced to the storage device unless {@link #sync()} is invoked or
+ * the writer is configured to force files when their streams are closed.
+ * Closing a stream opened by this writer waits until all of its bytes have been written.
+ * Closing the writer waits for all open streams' bytes to be written and stops the
+ * writer thread; streams cannot be opened after that.
+ */
+public class GroupCommitFileWriter implements AutoCloseable {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 8192;
+    private static final int DEFAULT_MAX_BATCH_BUFFERS = 256;
+    private static final long DEFAULT_MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+    private final int segmentSize;
+    private final int maxBatchBuffers;
+    private final long maxPendingBytesPerFile;
+    private final boolean forceOnClose;
+    private final ReentrantLock lock;
+    private final Condition workAvailable;
+    private final Condition progress;
+    private final Set<Entry> entries;
+    private final Deque<SyncRequest> syncQueue;
+    private final Thread worker;
+    private long syncRequests, syncsCompleted;
+    private IOException syncFailure;
+    private boolean shutdown;
+
+    private GroupCommitFileWriter(Builder builder) {
+        segmentSize = builder.segmentSize;
+        maxBatchBuffers = builder.maxBatchBuffers;
+        maxPendingBytesPerFile = builder.maxPendingBytesPerFile;
+        forceOnClose = builder.forceOnClose;
+        lock = new ReentrantLock();
+        workAvailable = lock.newCondition();
+        progress = lock.newCondition();
+        entries = new LinkedHashSet<>();
+        syncQueue = new ArrayDeque<>();
+        worker = builder.threadFactory.newThread(this::run);
+        worker.start();
+    }
+
+    /**
+     * Creates a writer with default settings.
+     * @return a new writer
+     */
+    public static GroupCommitFileWriter create() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a new builder of writers.
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Opens a stream that writes to the given file, truncating it if it exists.
+     * @param file the file
+     * @return a new output stream
+     * @throws IOException if the file cannot be opened or this writer is closed
+     */
+    public OutputStream open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Entry entry = new Entry(file, channel);
+        lock.lock();
+        try {
+            if (shutdown) {
+                Streams.close(channel);
+                throw new IOException("writer is closed");
+            }
+            entries.add(entry);
+        } finally {
+            lock.unlock();
+        }
+        return new EntryOutputStream(entry);
+    }
+
+    /**
+     * Creates a stream output whose streams are opened by this writer.
+     * @param file the file
+     * @return a stream output
+     */
+    public StreamOutput streamOutput(File file) {
+        requireNonNull(file, "file");
+        return () -> open(file);
+    }
+
+    /**
+     * Waits until all bytes queued so far have been written and forces every open file
+     * to the storage device.
+     * @throws IOException if forcing a file fails or waiting is interrupted
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IOException("writer is closed");
+            }
+            long ticket = ++syncRequests;
+            Map<Entry, Long> targets = new HashMap<>();
+            for (Entry entry : entries) {
+                targets.put(entry, entry.queuedBytes);
+            }
+            syncQueue.addLast(new SyncRequest(ticket, targets));
+            workAvailable.signal();
+            while (syncsCompleted < ticket) {
+                awaitProgress();
+            }
+            IOException failure = syncFailure;
+            syncFailure = null;
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitProgress() throws InterruptedIOException {
+        try {
+            progress.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for writer");
+        }
+    }
+
+    private void enqueue(Entry entry, byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            while (entry.pendingBytes >= maxPendingBytesPerFile && entry.failure == null) {
+                awaitProgress();
+            }
+            if (entry.failure != null) {
+                throw entry.failure;
+            }
+            if (shutdown) {
+                throw new IOException("writer is closed");
+            }
+            boolean wasIdle = entry.pending.isEmpty();
+            ByteBuffer tail = entry.pending.peekLast();
+            while (len > 0) {
+                if (tail == null || !tail.hasRemaining()) {
+                    tail = ByteBuffer.allocate(Math.max(segmentSize, Math.min(len, maxSegmentSize())));
+                    entry.pending.addLast(tail);
+                }
+                int n = Math.min(len, tail.remaining());
+                tail.put(b, off, n);
+                off += n;
+                len -= n;
+                entry.pendingBytes += n;
+                entry.queuedBytes += n;
+            }
+            if (wasIdle) {
+                workAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int maxSegmentSize() {
+        return segmentSize * 16;
+    }
+
+    private void closeEntry(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            if (!entry.closeRequested) {
+                entry.closeRequested = true;
+                workAvailable.signal();
+            }
+            boolean interrupted = false;
+            while (!entry.closed) {
+                try {
+                    progress.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (entry.failure != null) {
+                throw entry.failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasWork() {
+        if (syncRequests > syncsCompleted) {
+            return true;
+        }
+        for (Entry entry : entries) {
+            if (!entry.pending.isEmpty() || entry.closeRequested) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the ticket of the latest sync request whose bytes have all been written.
+     * A request is complete once every entry it covers has written past the queue
+     * position recorded when the request was made, or has failed.
+     */
+    private long completedSyncTicket() {
+        long ticket = syncsCompleted;
+        for (SyncRequest request : syncQueue) {
+            for (Map.Entry<Entry, Long> target : request.targets.entrySet()) {
+                Entry entry = target.getKey();
+                if (entry.writtenBytes < target.getValue() && entry.failure == null) {
+                    return ticket;
+                }
+            }
+            ticket = request.ticket;
+        }
+        return ticket;
+    }
+
+    private void run() {
+        List<Entry> batchEntries = new ArrayList<>();
+        List<ByteBuffer[]> batches = new ArrayList<>();
+        List<FileChannel> syncChannels = new ArrayList<>();
+        while (true) {
+            long syncTicket;
+            lock.lock();
+            try {
+                while (!hasWork() && !shutdown) {
+                    workAvailable.awaitUninterruptibly();
+                }
+                if (!hasWork() && shutdown) {
+                    progress.signalAll();
+                    return;
+                }
+                for (Entry entry : entries) {
+                    if (!entry.pending.isEmpty()) {
+                        int count = Math.min(maxBatchBuffers, entry.pending.size());
+                        ByteBuffer[] batch = new ByteBuffer[count];
+                        for (int i = 0; i < count; i++) {
+                            batch[i] = entry.pending.removeFirst();
+                            batch[i].flip();
+                        }
+                        batchEntries.add(entry);
+                        batches.add(batch);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < batchEntries.size(); i++) {
+                batchEntries.get(i).writeBatch(batches.get(i));
+            }
+            lock.lock();
+            try {
+                for (int i = 0; i < batchEntries.size(); i++) {
+                    Entry entry = batchEntries.get(i);
+                    for (ByteBuffer buffer : batches.get(i)) {
+                        entry.pendingBytes -= buffer.limit();
+                        entry.writtenBytes += buffer.limit();
+                    }
+                }
+                for (Entry entry : new ArrayList<>(entries)) {
+                    if (entry.closeRequested && entry.pending.isEmpty()) {
+                        entry.finish(forceOnClose);
+                        entries.remove(entry);
+                    }
+                }
+                syncTicket = completedSyncTicket();
+                if (syncTicket > syncsCompleted) {
+                    for (Entry entry : entries) {
+                        syncChannels.add(entry.channel);
+                    }
+                }
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batchEntries.clear();
+            batches.clear();
+            if (syncTicket > syncsCompleted) {
+                // channels are only closed on this thread, so they can be forced without holding the lock
+                IOException syncError = null;
+                for (FileChannel channel : syncChannels) {
+                    try {
+                        channel.force(false);
+                    } catch (IOException e) {
+                        if (syncError == null) {
+                            syncError = e;
+                        }
+                    }
+                }
+                syncChannels.clear();
+                lock.lock();
+                try {
+                    while (!syncQueue.isEmpty() && syncQueue.peekFirst().ticket <= syncTicket) {
+                        syncQueue.removeFirst();
+                    }
+                    syncFailure = syncError;
+                    syncsCompleted = syncTicket;
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for all bytes of open streams to be written, closes their files, and
+     * stops the writer thread.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            for (Entry entry : entries) {
+                entry.closeRequested = true;
+            }
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Entry {
+
+        private final File file;
+        private final FileChannel channel;
+        private final Deque<ByteBuffer> pending;
+        private long pendingBytes;
+        private long queuedBytes;
+        private long writtenBytes;
+        private boolean closeRequested;
+        private boolean closed;
+        private volatile IOException failure;
+
+        private Entry(File file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+            this.pending = new ArrayDeque<>();
+        }
+
+        private void writeBatch(ByteBuffer[] batch) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                ByteBuffer last = batch[batch.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(batch);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private void finish(boolean force) {
+            try {
+                if (force && failure == null) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+                closed = true;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" + file + "}";
+        }
+    }
+
+    private static class SyncRequest {
+
+        private final long ticket;
+        private final Map<Entry, Long> targets;
+
+        private SyncRequest(long ticket, Map<Entry, Long> targets) {
+            this.ticket = ticket;
+            this.targets = targets;
+        }
+    }
+
+    private class EntryOutputStream extends OutputStream {
+
+        private final Entry entry;
+        private boolean closed;
+
+        private EntryOutputStream(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            if (len > 0) {
+                enqueue(entry, b, off, len);
+            }
+        }
+
+        /**
+         * Returns immediately; queued bytes are written by the writer thread.
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                closeEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Builder of group commit writers. By default, small writes are coalesced into 8KB
+     * buffers, up to 256 buffers are written per gathered write, writers block when
+     * more than 4MB is pending for a file, and files are not forced on close.
+     */
+    public static final class Builder {
+
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private int maxBatchBuffers = DEFAULT_MAX_BATCH_BUFFERS;
+        private long maxPendingBytesPerFile = DEFAULT_MAX_PENDING_BYTES;
+        private boolean forceOnClose;
+        private ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("group-commit-writer-%d")
+                .setDaemon(true)
+                .build();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the size of the buffers into which small writes are coalesced.
+         * @param val the size in bytes
+         * @return this builder instance
+         */
+        public Builder segmentSize(int val) {
+            Preconditions.checkArgument(val > 0, "segment size must be positive");
+            segmentSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of buffers written to a file in a single gathered write.
+         * @param val the count
+         * @return this builder instance
+         */
+        public Builder maxBatchBuffers(int val) {
+            Preconditions.checkArgument(val > 0, "max batch buffers must be positive");
+            maxBatchBuffers = val;
+            return this;
+        }
+
+        /**
+         * Sets the number of pending bytes for a single file beyond which writers block.
+         * @param val the byte count
+         * @return this builder instance
+         */
+        public Builder maxPendingBytesPerFile(long val) {
+            Preconditions.checkArgument(val > 0, "max pending bytes must be positive");
+            maxPendingBytesPerFile = val;
+            return this;
+        }
+
+        /**
+         * Sets whether each file is forced to the storage device when its stream is closed.
+         * @param val true to force files on close
+         * @return this builder instance
+         */
+        public Builder forceOnClose(boolean val) {
+            forceOnClose = val;
+            return this;
+        }
+
+        /**
+         * Sets the factory that creates the writer thread.
+         * @param val the thread factory
+         * @return this builder instance
+         */
+        public Builder threadFactory(ThreadFactory val) {
+            threadFactory = requireNonNull(val, "threadFactory");
+            return this;
+        }
+
+        public GroupCommitFileWriter build() {
+            return new GroupCommitFileWriter(this);
+        }
+    }
+}
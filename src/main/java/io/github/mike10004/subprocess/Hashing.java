@@ -0,0 +1,38 @@
+package io.github.mike10004.subprocess;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Static utility methods relating to message digests.
+ */
+class Hashing {
+
+    private Hashing() {}
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Creates a new message digest instance.
+     * @param algorithm the algorithm name
+     * @return a new digest
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    public static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("digest algorithm not supported: " + algorithm, e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            chars[i * 2] = HEX_DIGITS[b >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[b & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream input whose content is written while the process is running. Pass an instance
+ * as the standard input source when launching a process, and then write to it from any
+ * thread. Bytes are held in a bounded buffer until the thread that feeds process standard
+ * input takes them; that thread takes everything buffered at once, so many small writes
+ * are delivered to the process with few system calls.
+ *
+ * <p>When the buffer is full, {@link #write(byte[]) write} blocks until there is room and
+ * {@link #offer(byte[], long, TimeUnit) offer} gives up after a timeout, so a producer can
+ * detect that the process is not keeping up. Call {@link #close()} to signal end of input.
+ * Writes fail with an exception after the process has terminated.
+ *
+ * <p>An instance may be used as the standard input of only one process, and its stream may
+ * be opened only once.
+ */
+public class InteractiveStreamInput implements StreamInput, AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final BytePipe pipe;
+    private final AtomicBoolean opened;
+
+    private InteractiveStreamInput(int capacity) {
+        pipe = new BytePipe(capacity);
+        opened = new AtomicBoolean(false);
+    }
+
+    /**
+     * Creates a new instance with a 64KB buffer.
+     * @return a new instance
+     */
+    public static InteractiveStreamInput create() {
+        return create(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param capacity maximum number of bytes buffered before writers block
+     * @return a new instance
+     */
+    public static InteractiveStreamInput create(int capacity) {
+        return new InteractiveStreamInput(capacity);
+    }
+
+    /**
+     * Opens the stream from which the process standard input is fed.
+     * @return the stream
+     * @throws IOException if the stream has already been opened
+     */
+    @Override
+    public InputStream openStream() throws IOException {
+        if (!opened.compareAndSet(false, true)) {
+            throw new IOException("interactive input may only be opened once");
+        }
+        return pipe.source();
+    }
+
+    /**
+     * Writes bytes, blocking while the buffer is full.
+     * @param bytes the bytes
+     * @throws IOException if this input is closed, the process has terminated, or the wait is interrupted
+     */
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes bytes, blocking while the buffer is full. A write no larger than the
+     * buffer capacity is never interleaved with bytes from concurrent writes.
+     * @param bytes the array
+     * @param off offset in the array
+     * @param len number of bytes to write
+     * @throws IOException if this input is closed, the process has terminated, or the wait is interrupted
+     */
+    public void write(byte[] bytes, int off, int len) throws IOException {
+        requireNonNull(bytes, "bytes");
+        if (off < 0 || len < 0 || off + len > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        pipe.write(bytes, off, len);
+    }
+
+    /**
+     * Encodes text and writes it, blocking while the buffer is full.
+     * @param text the text
+     * @param charset the charset
+     * @throws IOException if this input is closed, the process has terminated, or the wait is interrupted
+     */
+    public void write(CharSequence text, Charset charset) throws IOException {
+        write(text.toString().getBytes(charset));
+    }
+
+    /**
+     * Writes bytes if the buffer has room for all of them within the given time.
+     * @param bytes the bytes; must be no larger than the buffer capacity
+     * @param timeout maximum time to wait for room
+     * @param unit timeout unit
+     * @return true if the bytes were written; false if the buffer remained too full
+     * @throws IOException if this input is closed, the process has terminated, or the wait is interrupted
+     * @throws IllegalArgumentException if the bytes would never fit in the buffer
+     */
+    public boolean offer(byte[] bytes, long timeout, TimeUnit unit) throws IOException {
+        return pipe.offer(bytes, 0, bytes.length, timeout, unit);
+    }
+
+    /**
+     * Waits until all bytes written so far have been taken by the thread that feeds
+     * process standard input.
+     * @param timeout maximum time to wait
+     * @param unit timeout unit
+     * @return true if all bytes were taken; false if the timeout elapsed first
+     * @throws IOException if the process terminated before taking all bytes or the wait is interrupted
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws IOException {
+        return pipe.awaitDrained(timeout, unit);
+    }
+
+    /**
+     * Gets the number of bytes written but not yet taken.
+     * @return the count
+     */
+    public int pendingBytes() {
+        return pipe.pending();
+    }
+
+    /**
+     * Gets the number of bytes that can be written without blocking.
+     * @return the count
+     */
+    public int remainingCapacity() {
+        return pipe.capacity() - pipe.pending();
+    }
+
+    /**
+     * Signals the end of input. Bytes already written are still delivered, and then
+     * the process standard input stream is closed.
+     */
+    @Override
+    public void close() {
+        pipe.closeSink();
+    }
+
+    @Override
+    public String toString() {
+        return "InteractiveStreamInput{capacity=" + pipe.capacity() + ", pending=" + pipe.pending() + "}";
+    }
+}
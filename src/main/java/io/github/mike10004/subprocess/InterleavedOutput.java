@@ -0,0 +1,189 @@
+package io.github.mike10004.subprocess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Output captured from both process standard output and standard error as a single
+ * sequence of chunks, in the order in which the chunks were received. Each chunk is
+ * the data from one read of one of the streams, tagged with the stream it came from
+ * and the time it was received.
+ *
+ * <p>The two streams are read by separate threads, so the order of chunks is the order
+ * in which the reads completed. That is the order in which the process wrote them only
+ * to the extent that the process flushed each stream before writing to the other. For
+ * exact ordering of the merged data without the stream of origin, use
+ * {@link StreamContexts#mergedStrings(Charset, StreamInput)} instead.
+ */
+public final class InterleavedOutput {
+
+    /**
+     * Enumeration of process output streams.
+     */
+    public enum Origin {
+        STDOUT, STDERR
+    }
+
+    /**
+     * Chunk of data read from one of the process output streams.
+     */
+    public static final class Chunk {
+
+        private final Origin origin;
+        private final long elapsedNanos;
+        private final byte[] data;
+
+        private Chunk(Origin origin, long elapsedNanos, byte[] data) {
+            this.origin = origin;
+            this.elapsedNanos = elapsedNanos;
+            this.data = data;
+        }
+
+        /**
+         * Gets the stream the chunk was read from.
+         * @return the origin
+         */
+        public Origin origin() {
+            return origin;
+        }
+
+        /**
+         * Gets the time the chunk was received, relative to the start of capture.
+         * @return the elapsed time in nanoseconds
+         */
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Gets the number of bytes in the chunk.
+         * @return the length
+         */
+        public int length() {
+            return data.length;
+        }
+
+        /**
+         * Gets a copy of the chunk data.
+         * @return the data
+         */
+        public byte[] data() {
+            return data.clone();
+        }
+
+        /**
+         * Decodes the chunk data. A multibyte character split across chunks is not decoded correctly.
+         * @param charset the charset
+         * @return the decoded text
+         */
+        public String toString(Charset charset) {
+            return new String(data, charset);
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk{" + origin + ", length=" + data.length + ", elapsedNanos=" + elapsedNanos + "}";
+        }
+    }
+
+    private final List<Chunk> chunks;
+
+    private InterleavedOutput(List<Chunk> chunks) {
+        this.chunks = Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * Gets the chunks in the order they were received.
+     * @return an unmodifiable list of chunks
+     */
+    public List<Chunk> chunks() {
+        return chunks;
+    }
+
+    /**
+     * Concatenates the data of all chunks.
+     * @return the bytes
+     */
+    public byte[] bytes() {
+        return concat(Arrays.asList(Origin.values()));
+    }
+
+    /**
+     * Concatenates the data of chunks from one stream.
+     * @param origin the stream
+     * @return the bytes
+     */
+    public byte[] bytes(Origin origin) {
+        return concat(Collections.singletonList(requireNonNull(origin, "origin")));
+    }
+
+    private byte[] concat(List<Origin> origins) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Chunk chunk : chunks) {
+            if (origins.contains(chunk.origin)) {
+                out.write(chunk.data, 0, chunk.data.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the concatenated data of all chunks.
+     * @param charset the charset
+     * @return the text
+     */
+    public String toString(Charset charset) {
+        return new String(bytes(), charset);
+    }
+
+    @Override
+    public String toString() {
+        return "InterleavedOutput{chunks=" + chunks.size() + "}";
+    }
+
+    /**
+     * Recorder of chunks from both process output streams into a single sequence.
+     */
+    static class Recorder {
+
+        private final long startNanos;
+        private final List<Chunk> chunks;
+
+        public Recorder() {
+            startNanos = System.nanoTime();
+            chunks = new ArrayList<>();
+        }
+
+        public StreamOutput streamOutput(Origin origin) {
+            requireNonNull(origin, "origin");
+            return () -> new OutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    if (len > 0) {
+                        record(origin, Arrays.copyOfRange(b, off, off + len));
+                    }
+                }
+            };
+        }
+
+        private synchronized void record(Origin origin, byte[] data) {
+            chunks.add(new Chunk(origin, System.nanoTime() - startNanos, data));
+        }
+
+        public synchronized InterleavedOutput toOutput() {
+            return new InterleavedOutput(new ArrayList<>(chunks));
+        }
+    }
+}
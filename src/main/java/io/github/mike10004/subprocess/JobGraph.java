@@ -0,0 +1,315 @@
+package io.github.mike10004.subprocess;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable directed acyclic graph of jobs in which each edge is a dependency. When the
+ * graph is launched, a job is launched once all of its dependencies have succeeded. If
+ * a job fails, the jobs that depend on it, directly or transitively, are skipped.
+ *
+ * <pre>
+ * {@code
+ *     JobGraph<String, String> graph = JobGraph.<String, String>builder()
+ *             .node("generate", generateJob)
+ *             .node("compile", compileJob)
+ *             .node("test", testJob)
+ *             .dependsOn("compile", "generate")
+ *             .dependsOn("test", "compile")
+ *             .build();
+ *     GraphResult<String, String> result = graph.launch(launcher, BatchOptions.defaults()).await();
+ * }
+ * </pre>
+ *
+ * <p>Among the jobs that are ready, those on the longest remaining path through the
+ * graph are launched first, unless critical path prioritization is disabled, in which
+ * case jobs are launched in the order in which they were added. The length of a path
+ * is the sum of the costs of its jobs; give jobs a {@link Builder#cost(String, long) cost}
+ * proportional to their expected duration to improve the schedule. The default cost is 1.</p>
+ * @param <SO> type of captured standard output content
+ * @param <SE> type of captured standard error content
+ */
+public final class JobGraph<SO, SE> {
+
+    private final List<String> ids;
+    private final List<SubprocessJob<SO, SE>> jobs;
+    private final int[][] dependencies;
+    private final int[][] dependents;
+    private final long[] criticalPathCosts;
+    private final boolean criticalPathFirst;
+
+    private JobGraph(Builder<SO, SE> builder) {
+        ids = Collections.unmodifiableList(new ArrayList<>(builder.jobs.keySet()));
+        jobs = Collections.unmodifiableList(new ArrayList<>(builder.jobs.values()));
+        int n = ids.size();
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            indexes.put(ids.get(i), i);
+        }
+        List<List<Integer>> dependentLists = new ArrayList<>(n);
+        dependencies = new int[n][];
+        for (int i = 0; i < n; i++) {
+            dependentLists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            Set<String> prerequisites = builder.dependencies.getOrDefault(ids.get(i), Collections.emptySet());
+            dependencies[i] = new int[prerequisites.size()];
+            int k = 0;
+            for (String prerequisite : prerequisites) {
+                Integer p = indexes.get(prerequisite);
+                Preconditions.checkArgument(p != null, "node %s depends on undefined node %s", ids.get(i), prerequisite);
+                dependencies[i][k++] = p;
+                dependentLists.get(p).add(i);
+            }
+        }
+        dependents = new int[n][];
+        for (int i = 0; i < n; i++) {
+            dependents[i] = dependentLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        long[] costs = new long[n];
+        for (int i = 0; i < n; i++) {
+            costs[i] = builder.costs.getOrDefault(ids.get(i), 1L);
+        }
+        criticalPathCosts = computeCriticalPathCosts(topologicalOrder(), costs);
+        criticalPathFirst = builder.criticalPathFirst;
+    }
+
+    /**
+     * Sorts the nodes so that each node follows its dependencies.
+     * @throws IllegalArgumentException if the graph has a cycle
+     */
+    private int[] topologicalOrder() {
+        int n = ids.size();
+        int[] pending = new int[n];
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            pending[i] = dependencies[i].length;
+            if (pending[i] == 0) {
+                ready.add(i);
+            }
+        }
+        int[] order = new int[n];
+        int count = 0;
+        while (!ready.isEmpty()) {
+            int i = ready.remove();
+            order[count++] = i;
+            for (int d : dependents[i]) {
+                if (--pending[d] == 0) {
+                    ready.add(d);
+                }
+            }
+        }
+        if (count < n) {
+            List<String> blocked = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (pending[i] > 0) {
+                    blocked.add(ids.get(i));
+                }
+            }
+            throw new IllegalArgumentException("dependency cycle among or upstream of nodes " + blocked);
+        }
+        return order;
+    }
+
+    private long[] computeCriticalPathCosts(int[] order, long[] costs) {
+        long[] pathCosts = new long[order.length];
+        for (int k = order.length - 1; k >= 0; k--) {
+            int i = order[k];
+            long longest = 0;
+            for (int d : dependents[i]) {
+                longest = Math.max(longest, pathCosts[d]);
+            }
+            pathCosts[i] = costs[i] + longest;
+        }
+        return pathCosts;
+    }
+
+    /**
+     * Creates a new builder.
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return a new builder
+     */
+    public static <SO, SE> Builder<SO, SE> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Gets the node identifiers.
+     * @return an immutable list of identifiers, in the order in which nodes were added
+     */
+    public List<String> nodes() {
+        return ids;
+    }
+
+    /**
+     * Gets the identifiers of the nodes on which a node depends.
+     * @param id the node identifier
+     * @return a list of identifiers
+     */
+    public List<String> dependencies(String id) {
+        int i = indexOf(id);
+        List<String> result = new ArrayList<>(dependencies[i].length);
+        Arrays.stream(dependencies[i]).forEach(p -> result.add(ids.get(p)));
+        return result;
+    }
+
+    /**
+     * Gets the cost of the longest path from a node to the end of the graph, including
+     * the cost of the node itself. Nodes with greater costs are launched first.
+     * @param id the node identifier
+     * @return the critical path cost
+     */
+    public long criticalPathCost(String id) {
+        return criticalPathCosts[indexOf(id)];
+    }
+
+    private int indexOf(String id) {
+        int i = ids.indexOf(requireNonNull(id, "id"));
+        Preconditions.checkArgument(i >= 0, "no such node: %s", id);
+        return i;
+    }
+
+    /**
+     * Launches the graph. The concurrency limit of the options bounds the number of
+     * jobs running at once, and the success predicate of the options determines which
+     * exit codes count as success. If the options fail fast, the first failure cancels
+     * the whole graph; otherwise only the dependents of a failed job are skipped.
+     * @param launcher launcher of jobs that are not bound to a launcher
+     * @param options the options
+     * @return a monitor of the graph execution
+     */
+    public GraphMonitor<SO, SE> launch(SubprocessLauncher launcher, BatchOptions options) {
+        GraphExecution<SO, SE> execution = new GraphExecution<>(this, launcher, options);
+        execution.start();
+        return new GraphMonitor<>(execution);
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    String id(int index) {
+        return ids.get(index);
+    }
+
+    SubprocessJob<SO, SE> job(int index) {
+        return jobs.get(index);
+    }
+
+    int[] dependencyIndexes(int index) {
+        return dependencies[index];
+    }
+
+    int[] dependentIndexes(int index) {
+        return dependents[index];
+    }
+
+    long criticalPathCost(int index) {
+        return criticalPathCosts[index];
+    }
+
+    boolean isCriticalPathFirst() {
+        return criticalPathFirst;
+    }
+
+    @Override
+    public String toString() {
+        return "JobGraph{nodes=" + ids.size() + ", criticalPathFirst=" + criticalPathFirst + "}";
+    }
+
+    /**
+     * Builder of job graphs.
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     */
+    public static final class Builder<SO, SE> {
+
+        private final Map<String, SubprocessJob<SO, SE>> jobs = new LinkedHashMap<>();
+        private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        private final Map<String, Long> costs = new LinkedHashMap<>();
+        private boolean criticalPathFirst = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a node.
+         * @param id the node identifier, which must be unique in the graph
+         * @param job the job
+         * @return this builder instance
+         */
+        public Builder<SO, SE> node(String id, SubprocessJob<SO, SE> job) {
+            requireNonNull(id, "id");
+            requireNonNull(job, "job");
+            Preconditions.checkArgument(!jobs.containsKey(id), "duplicate node: %s", id);
+            jobs.put(id, job);
+            return this;
+        }
+
+        /**
+         * Adds dependencies of a node. Nodes may be referenced before they are added,
+         * but every node must be added before the graph is built.
+         * @param id the node identifier
+         * @param prerequisites identifiers of the nodes that must succeed before this node is launched
+         * @return this builder instance
+         */
+        public Builder<SO, SE> dependsOn(String id, String... prerequisites) {
+            requireNonNull(id, "id");
+            Set<String> set = dependencies.computeIfAbsent(id, k -> new LinkedHashSet<>());
+            for (String prerequisite : prerequisites) {
+                set.add(requireNonNull(prerequisite, "prerequisite"));
+            }
+            return this;
+        }
+
+        /**
+         * Sets the cost of a node, used to prioritize nodes on the critical path.
+         * Default is 1.
+         * @param id the node identifier
+         * @param cost the cost, such as the expected duration in milliseconds
+         * @return this builder instance
+         */
+        public Builder<SO, SE> cost(String id, long cost) {
+            Preconditions.checkArgument(cost >= 0, "cost must be nonnegative");
+            costs.put(requireNonNull(id, "id"), cost);
+            return this;
+        }
+
+        /**
+         * Sets whether ready nodes on longer paths are launched first. If false, ready
+         * nodes are launched in the order in which they were added. Default is true.
+         * @param val true to prioritize the critical path
+         * @return this builder instance
+         */
+        public Builder<SO, SE> criticalPathFirst(boolean val) {
+            criticalPathFirst = val;
+            return this;
+        }
+
+        /**
+         * Builds the graph.
+         * @return a new graph
+         * @throws IllegalArgumentException if a dependency or cost refers to an undefined node, or the graph has a cycle
+         */
+        public JobGraph<SO, SE> build() {
+            for (String id : dependencies.keySet()) {
+                Preconditions.checkArgument(jobs.containsKey(id), "dependencies defined for undefined node %s", id);
+            }
+            for (String id : costs.keySet()) {
+                Preconditions.checkArgument(jobs.containsKey(id), "cost defined for undefined node %s", id);
+            }
+            return new JobGraph<>(this);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Outcome of a job launched as part of a batch.
+ * @param <SO> type of captured standard output content
+ * @param <SE> type of captured standard error content
+ * @see SubprocessLauncher#launchAll(Iterable, BatchOptions)
+ */
+public final class JobOutcome<SO, SE> {
+
+    /**
+     * Enumeration of job statuses.
+     */
+    public enum Status {
+
+        /**
+         * The process exited with a code that the batch options consider successful.
+         */
+        SUCCEEDED,
+
+        /**
+         * The process could not be launched or awaited, or it exited with a code that
+         * the batch options do not consider successful.
+         */
+        FAILED,
+
+        /**
+         * The process was destroyed because another job failed and the batch fails fast.
+         */
+        CANCELLED
+    }
+
+    private final int index;
+    private final SubprocessJob<SO, SE> job;
+    private final Status status;
+    @Nullable
+    private final ProcessResult<SO, SE> result;
+    @Nullable
+    private final Throwable error;
+
+    JobOutcome(int index, SubprocessJob<SO, SE> job, Status status, @Nullable ProcessResult<SO, SE> result, @Nullable Throwable error) {
+        this.index = index;
+        this.job = requireNonNull(job, "job");
+        this.status = requireNonNull(status, "status");
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * Gets the position of the job in the sequence of submitted jobs.
+     * @return the zero-based index
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Gets the job.
+     * @return the job
+     */
+    public SubprocessJob<SO, SE> job() {
+        return job;
+    }
+
+    /**
+     * Gets the status.
+     * @return the status
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Gets the process result.
+     * @return the result, or null if the process could not be launched or awaited
+     */
+    @Nullable
+    public ProcessResult<SO, SE> result() {
+        return result;
+    }
+
+    /**
+     * Gets the error that prevented the process from being launched or awaited.
+     * @return the error, or null if the process ran to completion
+     */
+    @Nullable
+    public Throwable error() {
+        return error;
+    }
+
+    /**
+     * Checks whether the status is {@link Status#SUCCEEDED}.
+     * @return true if the job succeeded
+     */
+    public boolean isSuccess() {
+        return status == Status.SUCCEEDED;
+    }
+
+    @Override
+    public String toString() {
+        return "JobOutcome{" +
+                "index=" + index +
+                ", status=" + status +
+                ", exitCode=" + (result == null ? null : result.exitCode()) +
+                (error == null ? "" : ", error=" + error) +
+                '}';
+    }
+}
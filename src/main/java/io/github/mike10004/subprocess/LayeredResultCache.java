@@ -0,0 +1,52 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+class LayeredResultCache implements ResultCache {
+
+    private final ResultCache fast;
+    private final ResultCache slow;
+
+    public LayeredResultCache(ResultCache fast, ResultCache slow) {
+        this.fast = requireNonNull(fast, "fast");
+        this.slow = requireNonNull(slow, "slow");
+    }
+
+    @Nullable
+    @Override
+    public CachedOutput get(CacheKey key) {
+        CachedOutput output = fast.get(key);
+        if (output == null) {
+            output = slow.get(key);
+            if (output != null) {
+                fast.put(key, output);
+            }
+        }
+        return output;
+    }
+
+    @Override
+    public void put(CacheKey key, CachedOutput output) {
+        slow.put(key, output);
+        fast.put(key, output);
+    }
+
+    @Override
+    public void invalidate(CacheKey key) {
+        fast.invalidate(key);
+        slow.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        fast.invalidateAll();
+        slow.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        return "LayeredResultCache{fast=" + fast + ", slow=" + slow + "}";
+    }
+}
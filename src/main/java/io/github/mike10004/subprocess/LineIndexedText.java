@@ -0,0 +1,225 @@
+package io.github.mike10004.subprocess;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Captured text with an index of line offsets. The text is stored as the bytes that
+ * were captured, and lines are decoded only when they are accessed. Lines are terminated
+ * by {@code \n} or {@code \r\n}; terminators are not included in the lines. A final
+ * line without a terminator counts as a line, and empty text has zero lines.
+ *
+ * <p>Instances are immutable. Views returned by {@link #lines(int, int)} decode each line
+ * every time it is accessed.
+ */
+public final class LineIndexedText {
+
+    private final byte[] data;
+    private final int length;
+    private final int[] lineStarts;
+    private final int terminatedLines;
+    private final int lineCount;
+    private final Charset charset;
+
+    private LineIndexedText(byte[] data, int length, int[] lineStarts, int terminatedLines, Charset charset) {
+        this.data = data;
+        this.length = length;
+        this.lineStarts = lineStarts;
+        this.terminatedLines = terminatedLines;
+        this.lineCount = terminatedLines + (lineStarts[terminatedLines] < length ? 1 : 0);
+        this.charset = charset;
+    }
+
+    /**
+     * Checks that a charset encodes and decodes line feeds as single {@code 0x0A} bytes,
+     * so that line boundaries can be found without decoding. This holds for ASCII-compatible
+     * charsets such as UTF-8 and ISO-8859-1, but not for UTF-16 or UTF-32.
+     * @param charset the charset
+     * @return true if the charset can be indexed by line feed bytes
+     */
+    static boolean isIndexable(Charset charset) {
+        return charset.canEncode() && Arrays.equals(new byte[]{'\n'}, "\n".getBytes(charset)) && "\n".equals(new String(new byte[]{'\n'}, charset));
+    }
+
+    /**
+     * Gets the charset with which lines are decoded.
+     * @return the charset
+     */
+    public Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Gets the number of lines.
+     * @return the line count
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets the number of captured bytes.
+     * @return the byte count
+     */
+    public int byteLength() {
+        return length;
+    }
+
+    /**
+     * Gets a line.
+     * @param index the line index
+     * @return the line, without terminator
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String line(int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("line " + index + " of " + lineCount);
+        }
+        int start = lineStarts[index];
+        int end = index < terminatedLines ? lineStarts[index + 1] : length;
+        if (end > start && data[end - 1] == '\n') {
+            end--;
+        }
+        if (end > start && data[end - 1] == '\r') {
+            end--;
+        }
+        return new String(data, start, end - start, charset);
+    }
+
+    /**
+     * Gets a view of a range of lines.
+     * @param fromIndex index of the first line, inclusive
+     * @param toIndex index of the last line, exclusive
+     * @return an unmodifiable list view of the lines
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public List<String> lines(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > lineCount || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("range [" + fromIndex + ", " + toIndex + ") of " + lineCount);
+        }
+        return new LineView(fromIndex, toIndex);
+    }
+
+    /**
+     * Gets a view of all lines.
+     * @return an unmodifiable list view of the lines
+     */
+    public List<String> lines() {
+        return lines(0, lineCount);
+    }
+
+    /**
+     * Returns a stream that decodes lines as they are consumed.
+     * @return a stream of lines
+     */
+    public Stream<String> stream() {
+        return lines().stream();
+    }
+
+    /**
+     * Decodes the entire text.
+     * @return the text
+     */
+    @Override
+    public String toString() {
+        return new String(data, 0, length, charset);
+    }
+
+    private class LineView extends AbstractList<String> implements RandomAccess {
+
+        private final int fromIndex, toIndex;
+
+        private LineView(int fromIndex, int toIndex) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("index " + index + " of " + size());
+            }
+            return line(fromIndex + index);
+        }
+
+        @Override
+        public int size() {
+            return toIndex - fromIndex;
+        }
+
+        @Override
+        public List<String> subList(int from, int to) {
+            if (from < 0 || to > size() || from > to) {
+                throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") of " + size());
+            }
+            return new LineView(fromIndex + from, fromIndex + to);
+        }
+    }
+
+    /**
+     * Stream output that captures bytes and indexes line starts as they are written.
+     */
+    static class IndexingBucket implements StreamOutput {
+
+        private final Charset charset;
+        private byte[] data;
+        private int length;
+        private int[] lineStarts;
+        private int terminatedLines;
+
+        public IndexingBucket(Charset charset) {
+            this.charset = requireNonNull(charset, "charset");
+            Preconditions.checkArgument(isIndexable(charset), "charset must encode line feed as single byte 0x0A: %s", charset);
+            data = new byte[256];
+            lineStarts = new int[16];
+        }
+
+        @Override
+        public OutputStream openStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    append(b, off, len);
+                }
+            };
+        }
+
+        private synchronized void append(byte[] b, int off, int len) {
+            if (length + len > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + len, data.length * 2));
+            }
+            System.arraycopy(b, off, data, length, len);
+            for (int i = 0; i < len; i++) {
+                if (b[off + i] == '\n') {
+                    addLineStart(length + i + 1);
+                }
+            }
+            length += len;
+        }
+
+        private void addLineStart(int offset) {
+            // lineStarts[0] is always 0; entry k + 1 is the start of the line after the k-th terminator
+            if (terminatedLines + 2 > lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+            }
+            terminatedLines++;
+            lineStarts[terminatedLines] = offset;
+        }
+
+        public synchronized LineIndexedText toText() {
+            return new LineIndexedText(data, length, lineStarts, terminatedLines, charset);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Result of the subprocess launched for one input of a {@link ParallelMap}.
+ * @param <I> type of input
+ * @param <SO> type of captured standard output content
+ * @param <SE> type of captured standard error content
+ */
+public final class MapResult<I, SO, SE> {
+
+    private final I input;
+    private final JobOutcome<SO, SE> outcome;
+
+    MapResult(I input, JobOutcome<SO, SE> outcome) {
+        this.input = input;
+        this.outcome = requireNonNull(outcome, "outcome");
+    }
+
+    /**
+     * Gets the input.
+     * @return the input
+     */
+    public I input() {
+        return input;
+    }
+
+    /**
+     * Gets the position of the input in the input stream.
+     * @return the zero-based index
+     */
+    public int index() {
+        return outcome.index();
+    }
+
+    /**
+     * Gets the outcome of the job launched for the input.
+     * @return the outcome
+     */
+    public JobOutcome<SO, SE> outcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the process result.
+     * @return the result, or null if the process could not be launched or awaited
+     * @see JobOutcome#result()
+     */
+    @Nullable
+    public ProcessResult<SO, SE> result() {
+        return outcome.result();
+    }
+
+    /**
+     * Checks whether the job launched for the input succeeded.
+     * @return true on success
+     * @see JobOutcome#isSuccess()
+     */
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+
+    @Override
+    public String toString() {
+        return "MapResult{input=" + input + ", outcome=" + outcome + "}";
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.mike10004.subprocess;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Process output that was redirected to a file and is read through a memory-mapped view
+ * of that file. The content is not copied onto the Java heap. Closing the capture deletes
+ * the file; the memory backing the mapping is released when the buffer is garbage-collected.
+ *
+ * <p>A single buffer can only view a file of up to {@link Integer#MAX_VALUE} bytes.
+ * Larger files can be read with {@link #lines(Charset)} or as a {@link #asStreamInput() stream input}.
+ */
+public class MappedFileCapture implements AutoCloseable {
+
+    private static final String SHARED_MEMORY_DIRECTORY = "/dev/shm";
+
+    private final File file;
+    private ByteBuffer buffer;
+    private volatile boolean closed;
+
+    MappedFileCapture(File file) {
+        this.file = requireNonNull(file, "file");
+    }
+
+    /**
+     * Gets the default directory in which capture files are created. This is {@code /dev/shm}
+     * if it exists and is writable, because it is backed by memory on Linux systems, or the
+     * system temporary directory otherwise.
+     * @return the default directory
+     */
+    public static Path defaultDirectory() {
+        File shm = new File(SHARED_MEMORY_DIRECTORY);
+        if (shm.isDirectory() && shm.canWrite()) {
+            return shm.toPath();
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Gets the file to which output was redirected.
+     * @return the file
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Gets the length of the captured content.
+     * @return the length in bytes
+     */
+    public long size() {
+        checkOpen();
+        return file.length();
+    }
+
+    /**
+     * Gets a read-only buffer positioned at the start of the captured content.
+     * The file is mapped the first time this method is invoked; each invocation
+     * returns a new buffer that shares the same mapping.
+     * @return a read-only buffer
+     * @throws IOException if mapping the file fails
+     * @throws IllegalStateException if the capture is closed or the file is too large for a single buffer
+     */
+    public synchronized ByteBuffer buffer() throws IOException {
+        checkOpen();
+        if (buffer == null) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                Preconditions.checkState(size <= Integer.MAX_VALUE, "file too large for a single buffer: %s bytes", size);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    /**
+     * Returns a stream input that supplies the captured content.
+     * @return a stream input
+     */
+    public StreamInput asStreamInput() {
+        return StreamInput.fromFile(file);
+    }
+
+    /**
+     * Returns a lazily-populated stream of the lines of the captured content. Lines are
+     * decoded from the mapped buffer one at a time as the stream is consumed, if the charset
+     * encodes line feeds as single {@code 0x0A} bytes; otherwise, the file is read with a reader.
+     * Line terminators are {@code \n} and {@code \r\n}, and they are not included in the lines.
+     * Malformed input is replaced rather than causing an exception.
+     * @param charset the charset
+     * @return a stream of lines
+     * @throws IOException if the file cannot be read
+     */
+    public Stream<String> lines(Charset charset) throws IOException {
+        requireNonNull(charset, "charset");
+        checkOpen();
+        if (!Arrays.equals(new byte[]{'\n'}, "\n".getBytes(charset)) || file.length() > Integer.MAX_VALUE) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+            return reader.lines().onClose(() -> {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        ByteBuffer view = buffer();
+        Iterator<String> iterator = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return view.hasRemaining();
+            }
+
+            @Override
+            public String next() {
+                if (!view.hasRemaining()) {
+                    throw new NoSuchElementException();
+                }
+                int start = view.position();
+                int end = start;
+                int limit = view.limit();
+                while (end < limit && view.get(end) != '\n') {
+                    end++;
+                }
+                view.position(end < limit ? end + 1 : end);
+                int contentEnd = end > start && view.get(end - 1) == '\r' ? end - 1 : end;
+                byte[] bytes = new byte[contentEnd - start];
+                ByteBuffer slice = view.duplicate();
+                slice.position(start);
+                slice.get(bytes);
+                return new String(bytes, charset);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private void checkOpen() {
+        Preconditions.checkState(!closed, "capture is closed");
+    }
+
+    /**
+     * Deletes the capture file.
+     * @throws IOException if the file cannot be deleted
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer = null;
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFileCapture{" + file + "}";
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Value class that pairs captured stream content with statistics about
+ * the bytes that produced it.
+ * @param <T> type of the captured content
+ * @see SubprocessLaunchSupport#measured(String)
+ */
+public final class Measured<T> {
+
+    @Nullable
+    private final T value;
+    private final StreamStatistics statistics;
+
+    Measured(@Nullable T value, StreamStatistics statistics) {
+        this.value = value;
+        this.statistics = requireNonNull(statistics, "statistics");
+    }
+
+    /**
+     * Gets the captured content.
+     * @return the content
+     */
+    @Nullable
+    public T value() {
+        return value;
+    }
+
+    /**
+     * Gets the statistics of the stream that produced the content.
+     * @return the statistics
+     */
+    public StreamStatistics statistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return "Measured{" +
+                "value=" + StreamContents.betterToString(value) +
+                ", statistics=" + statistics +
+                '}';
+    }
+}
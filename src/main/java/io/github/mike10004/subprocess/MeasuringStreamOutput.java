@@ -0,0 +1,48 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream output that decorates another, computing a message digest, byte count,
+ * line count, and first and last byte timestamps as bytes are written.
+ * The statistics are computed inline, so no second pass over the bytes is needed.
+ * An instance accumulates statistics over all streams it opens, so use a new
+ * instance for each process launch.
+ */
+public class MeasuringStreamOutput implements StreamOutput {
+
+    private final StreamOutput delegate;
+    private final StreamMeter meter;
+
+    /**
+     * Constructs an instance.
+     * @param delegate the stream output to which bytes are written
+     * @param digestAlgorithm the message digest algorithm, e.g. {@code SHA-256}
+     * @throws IllegalArgumentException if the digest algorithm is not supported
+     */
+    public MeasuringStreamOutput(StreamOutput delegate, String digestAlgorithm) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.meter = new StreamMeter(digestAlgorithm);
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+        return meter.wrap(delegate.openStream());
+    }
+
+    /**
+     * Gets the statistics of the bytes written so far.
+     * @return the statistics
+     */
+    public StreamStatistics statistics() {
+        return meter.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        return "MeasuringStreamOutput{" + delegate + "}";
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Result cache that holds entries in memory. The cache is bounded by entry count and
+ * by the total size of cached output; when either bound is exceeded, the least recently
+ * used entries are evicted. Entries may also be given a time to live.
+ */
+public class MemoryResultCache implements ResultCache {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    @Nullable
+    private final Duration ttl;
+    private final Clock clock;
+    private final LinkedHashMap<CacheKey, Entry> entries;
+    private long totalBytes;
+
+    private MemoryResultCache(Builder builder) {
+        maxEntries = builder.maxEntries;
+        maxBytes = builder.maxBytes;
+        ttl = builder.ttl;
+        clock = builder.clock;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Creates a new builder.
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static class Entry {
+
+        public final CachedOutput output;
+        public final long expiresAtMillis;
+
+        private Entry(CachedOutput output, long expiresAtMillis) {
+            this.output = output;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized CachedOutput get(CacheKey key) {
+        Entry entry = entries.get(requireNonNull(key, "key"));
+        if (entry == null) {
+            return null;
+        }
+        if (clock.millis() >= entry.expiresAtMillis) {
+            remove(key);
+            return null;
+        }
+        return entry.output;
+    }
+
+    @Override
+    public synchronized void put(CacheKey key, CachedOutput output) {
+        requireNonNull(key, "key");
+        requireNonNull(output, "output");
+        if (output.size() > maxBytes) {
+            remove(key);
+            return;
+        }
+        long expiresAtMillis = ttl == null ? Long.MAX_VALUE : clock.millis() + ttl.toMillis();
+        Entry previous = entries.put(key, new Entry(output, expiresAtMillis));
+        if (previous != null) {
+            totalBytes -= previous.output.size();
+        }
+        totalBytes += output.size();
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+            totalBytes -= eldest.next().output.size();
+            eldest.remove();
+        }
+    }
+
+    private void remove(CacheKey key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.output.size();
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(CacheKey key) {
+        remove(requireNonNull(key, "key"));
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Gets the number of entries, including any that have expired but not yet been removed.
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the total size of cached output.
+     * @return the byte count
+     */
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryResultCache{maxEntries=" + maxEntries + ", maxBytes=" + maxBytes + ", ttl=" + ttl + "}";
+    }
+
+    /**
+     * Builder of memory result cache instances.
+     */
+    public static final class Builder {
+
+        private int maxEntries = 1024;
+        private long maxBytes = 64L * 1024 * 1024;
+        @Nullable
+        private Duration ttl;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of entries. Default is 1024.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder maxEntries(int val) {
+            Preconditions.checkArgument(val > 0, "maxEntries must be positive");
+            maxEntries = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total size of cached output. Default is 64MB.
+         * An output larger than this is never cached.
+         * @param val the maximum in bytes
+         * @return this builder instance
+         */
+        public Builder maxBytes(long val) {
+            Preconditions.checkArgument(val >= 0, "maxBytes must be nonnegative");
+            maxBytes = val;
+            return this;
+        }
+
+        /**
+         * Sets the time after which an entry expires. Default is no expiry.
+         * @param val the time to live
+         * @return this builder instance
+         */
+        public Builder ttl(Duration val) {
+            Preconditions.checkArgument(!val.isNegative() && !val.isZero(), "ttl must be positive");
+            ttl = val;
+            return this;
+        }
+
+        /**
+         * Sets the clock with which entry expiry is determined.
+         * @param val the clock
+         * @return this builder instance
+         */
+        public Builder clock(Clock val) {
+            clock = requireNonNull(val, "clock");
+            return this;
+        }
+
+        public MemoryResultCache build() {
+            return new MemoryResultCache(this);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Result of a node of a job graph, including its timing. Times are measured
+ * from the launch of the graph.
+ * @param <SO> type of captured standard output content
+ * @param <SE> type of captured standard error content
+ * @see JobGraph
+ */
+public final class NodeResult<SO, SE> {
+
+    /**
+     * Enumeration of node statuses.
+     */
+    public enum Status {
+
+        /**
+         * The process exited with a code that the options consider successful.
+         */
+        SUCCEEDED,
+
+        /**
+         * The process could not be launched or awaited, or it exited with a code that
+         * the options do not consider successful.
+         */
+        FAILED,
+
+        /**
+         * The node was not launched because a node on which it depends did not succeed.
+         */
+        SKIPPED,
+
+        /**
+         * The node was not launched, or its process was destroyed, because the graph
+         * was cancelled.
+         */
+        CANCELLED
+    }
+
+    private final String id;
+    private final Status status;
+    @Nullable
+    private final ProcessResult<SO, SE> result;
+    @Nullable
+    private final Throwable error;
+    @Nullable
+    private final Duration readyOffset;
+    @Nullable
+    private final Duration startOffset;
+    @Nullable
+    private final Duration endOffset;
+
+    NodeResult(String id, Status status, @Nullable ProcessResult<SO, SE> result, @Nullable Throwable error,
+               @Nullable Duration readyOffset, @Nullable Duration startOffset, @Nullable Duration endOffset) {
+        this.id = requireNonNull(id, "id");
+        this.status = requireNonNull(status, "status");
+        this.result = result;
+        this.error = error;
+        this.readyOffset = readyOffset;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Gets the node identifier.
+     * @return the identifier
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Gets the status.
+     * @return the status
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Gets the process result.
+     * @return the result, or null if the process was not launched or could not be awaited
+     */
+    @Nullable
+    public ProcessResult<SO, SE> result() {
+        return result;
+    }
+
+    /**
+     * Gets the error that prevented the process from being launched or awaited.
+     * @return the error, or null
+     */
+    @Nullable
+    public Throwable error() {
+        return error;
+    }
+
+    /**
+     * Gets the time at which all dependencies of the node had succeeded.
+     * @return the time since launch of the graph, or null if the node never became ready
+     */
+    @Nullable
+    public Duration readyOffset() {
+        return readyOffset;
+    }
+
+    /**
+     * Gets the time at which the node was launched.
+     * @return the time since launch of the graph, or null if the node was not launched
+     */
+    @Nullable
+    public Duration startOffset() {
+        return startOffset;
+    }
+
+    /**
+     * Gets the time at which the node finished.
+     * @return the time since launch of the graph, or null if the node was not launched
+     */
+    @Nullable
+    public Duration endOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Gets the time the node spent waiting for a free slot after becoming ready.
+     * @return the duration, or null if the node was not launched
+     */
+    @Nullable
+    public Duration queueTime() {
+        return readyOffset == null || startOffset == null ? null : startOffset.minus(readyOffset);
+    }
+
+    /**
+     * Gets the time from launch to finish of the node.
+     * @return the duration, or null if the node was not launched
+     */
+    @Nullable
+    public Duration runTime() {
+        return startOffset == null || endOffset == null ? null : endOffset.minus(startOffset);
+    }
+
+    /**
+     * Checks whether the status is {@link Status#SUCCEEDED}.
+     * @return true if the node succeeded
+     */
+    public boolean isSuccess() {
+        return status == Status.SUCCEEDED;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeResult{" +
+                "id=" + id +
+                ", status=" + status +
+                ", exitCode=" + (result == null ? null : result.exitCode()) +
+                ", runTime=" + runTime() +
+                (error == null ? "" : ", error=" + error) +
+                '}';
+    }
+}
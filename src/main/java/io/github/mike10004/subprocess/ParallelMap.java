@@ -0,0 +1,303 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Service that maps a stream of inputs to a stream of subprocess results, running a
+ * bounded number of subprocesses concurrently. For each input, a job factory creates
+ * the job to launch, typically by passing the input on standard input or as an
+ * argument:
+ *
+ * <pre>
+ * {@code
+ *     SubprocessTemplate template = SubprocessTemplate.of(Subprocess.running("identify").arg("placeholder").build());
+ *     ParallelMap.builder(launcher).concurrency(8).build()
+ *             .map(pathnames.stream(), pathname -> template.withArg(0, pathname)
+ *                     .launcher(launcher)
+ *                     .outputStrings(UTF_8)
+ *                     .job())
+ *             .forEach(result -> System.out.println(result.input() + ": " + result.result().content().stdout()));
+ * }
+ * </pre>
+ *
+ * <p>Workers take the next input whenever they finish a job, so slow inputs do not
+ * hold up fast ones. Results are emitted in input order if the map is ordered, or in
+ * completion order otherwise. Inputs are consumed lazily: at most a fixed window of
+ * inputs, twice the concurrency limit, are in flight or awaiting emission at once,
+ * so a slow consumer of the result stream slows consumption of the input stream.
+ * No subprocess is launched and no input is consumed until the first result is
+ * requested. Closing the result stream sends a termination signal to running
+ * subprocesses and waits for them to exit, so a stream that is not consumed to the
+ * end must be closed.</p>
+ */
+public final class ParallelMap {
+
+    private final SubprocessLauncher launcher;
+    private final int concurrency;
+    private final boolean ordered;
+    private final boolean failFast;
+
+    private ParallelMap(Builder builder) {
+        launcher = builder.launcher;
+        concurrency = builder.concurrency;
+        ordered = builder.ordered;
+        failFast = builder.failFast;
+    }
+
+    /**
+     * Creates a new builder.
+     * @param launcher the launcher of jobs that are not bound to a launcher
+     * @return a new builder
+     */
+    public static Builder builder(SubprocessLauncher launcher) {
+        return new Builder(launcher);
+    }
+
+    /**
+     * Maps inputs to subprocess results. Jobs are launched when the first result is
+     * requested from the returned stream, and then as it is consumed. A stream that
+     * is not consumed to the end must be closed to stop its subprocesses.
+     * @param inputs the inputs
+     * @param jobFactory function that creates the job for an input
+     * @param <I> type of input
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return a stream of results
+     */
+    public <I, SO, SE> Stream<MapResult<I, SO, SE>> map(Stream<I> inputs, Function<? super I, ? extends SubprocessJob<SO, SE>> jobFactory) {
+        requireNonNull(inputs, "inputs");
+        requireNonNull(jobFactory, "jobFactory");
+        Mapping<I, SO, SE> mapping = new Mapping<>(inputs.iterator(), jobFactory, 2 * concurrency);
+        return StreamSupport.stream(mapping, false).onClose(mapping::close);
+    }
+
+    /**
+     * Class that supplies jobs to the batch and emits results. The job iterator is
+     * accessed only by batch workers, one at a time; the spliterator only by the consumer.
+     * The batch is started by the first request for a result.
+     */
+    private final class Mapping<I, SO, SE> extends Spliterators.AbstractSpliterator<MapResult<I, SO, SE>> {
+
+        private final Iterator<I> inputs;
+        private final Function<? super I, ? extends SubprocessJob<SO, SE>> jobFactory;
+        private final Semaphore window;
+        private final Map<Integer, I> pendingInputs;
+        private int nextInputIndex;
+        private volatile boolean closed;
+        @Nullable
+        private BatchMonitor<SO, SE> monitor;
+        private final Map<Integer, JobOutcome<SO, SE>> reorderBuffer;
+        private int nextEmitIndex;
+        private boolean exhausted;
+
+        Mapping(Iterator<I> inputs, Function<? super I, ? extends SubprocessJob<SO, SE>> jobFactory, int windowSize) {
+            super(Long.MAX_VALUE, ordered ? Spliterator.ORDERED : 0);
+            this.inputs = inputs;
+            this.jobFactory = jobFactory;
+            this.window = new Semaphore(windowSize);
+            this.pendingInputs = new HashMap<>();
+            this.reorderBuffer = new HashMap<>();
+        }
+
+        public final Iterator<SubprocessJob<SO, SE>> jobs = new Iterator<SubprocessJob<SO, SE>>() {
+            @Override
+            public boolean hasNext() {
+                return !closed && inputs.hasNext();
+            }
+
+            @Override
+            public SubprocessJob<SO, SE> next() {
+                return nextJob();
+            }
+        };
+
+        private SubprocessJob<SO, SE> nextJob() {
+            window.acquireUninterruptibly();
+            if (closed) {
+                throw new CancellationException("result stream closed");
+            }
+            I input = inputs.next();
+            SubprocessJob<SO, SE> job = jobFactory.apply(input);
+            synchronized (pendingInputs) {
+                pendingInputs.put(nextInputIndex++, input);
+            }
+            return requireNonNull(job, "job");
+        }
+
+        private synchronized BatchMonitor<SO, SE> monitor() {
+            if (monitor == null) {
+                BatchOptions options = BatchOptions.builder()
+                        .concurrency(concurrency)
+                        .failFast(failFast)
+                        .build();
+                monitor = new BatchLaunchControl<SO, SE>(launcher, jobs, options).start();
+            }
+            return monitor;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super MapResult<I, SO, SE>> action) {
+            if (closed) {
+                return false;
+            }
+            JobOutcome<SO, SE> outcome = ordered ? nextInOrder() : take();
+            if (outcome == null) {
+                return false;
+            }
+            I input;
+            synchronized (pendingInputs) {
+                input = pendingInputs.remove(outcome.index());
+            }
+            window.release();
+            action.accept(new MapResult<>(input, outcome));
+            return true;
+        }
+
+        private JobOutcome<SO, SE> nextInOrder() {
+            while (true) {
+                JobOutcome<SO, SE> outcome = reorderBuffer.remove(nextEmitIndex);
+                if (outcome != null) {
+                    nextEmitIndex++;
+                    return outcome;
+                }
+                if (exhausted) {
+                    if (reorderBuffer.isEmpty()) {
+                        return null;
+                    }
+                    // jobs skipped after a failure leave gaps
+                    nextEmitIndex = reorderBuffer.keySet().stream().min(Integer::compare).get();
+                    continue;
+                }
+                outcome = take();
+                if (outcome == null) {
+                    exhausted = true;
+                } else {
+                    reorderBuffer.put(outcome.index(), outcome);
+                }
+            }
+        }
+
+        private JobOutcome<SO, SE> take() {
+            BatchMonitor<SO, SE> monitor = monitor();
+            JobOutcome<SO, SE> outcome;
+            try {
+                outcome = monitor.next();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SubprocessExecutionException(e);
+            }
+            if (outcome == null) {
+                checkSource(monitor.future());
+            }
+            return outcome;
+        }
+
+        private void checkSource(CompletableFuture<?> future) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SubprocessExecutionException(e);
+            } catch (ExecutionException e) {
+                if (!closed) {
+                    throw new SubprocessExecutionException("input stream or job factory failed", e.getCause());
+                }
+            }
+        }
+
+        public void close() {
+            BatchMonitor<SO, SE> monitor;
+            synchronized (this) {
+                closed = true;
+                monitor = this.monitor;
+            }
+            if (monitor == null) {
+                return;
+            }
+            monitor.cancel();
+            // unblock workers waiting for the window
+            window.release(Integer.MAX_VALUE / 2);
+            try {
+                monitor.future().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignore) {
+                // the cancellation of the input iterator is expected
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelMap{concurrency=" + concurrency + ", ordered=" + ordered + ", failFast=" + failFast + "}";
+    }
+
+    /**
+     * Builder of parallel map instances.
+     */
+    public static final class Builder {
+
+        private final SubprocessLauncher launcher;
+        private int concurrency = Runtime.getRuntime().availableProcessors();
+        private boolean ordered = true;
+        private boolean failFast;
+
+        private Builder(SubprocessLauncher launcher) {
+            this.launcher = requireNonNull(launcher, "launcher");
+        }
+
+        /**
+         * Sets the maximum number of subprocesses that run concurrently. Default is the
+         * number of available processors.
+         * @param val the maximum
+         * @return this builder instance
+         */
+        public Builder concurrency(int val) {
+            Preconditions.checkArgument(val > 0, "concurrency must be positive");
+            concurrency = val;
+            return this;
+        }
+
+        /**
+         * Sets whether results are emitted in input order. If false, results are
+         * emitted in completion order. Default is true.
+         * @param val true for input order
+         * @return this builder instance
+         */
+        public Builder ordered(boolean val) {
+            ordered = val;
+            return this;
+        }
+
+        /**
+         * Sets whether the map stops launching subprocesses after one fails.
+         * Default is false.
+         * @param val true to fail fast
+         * @return this builder instance
+         * @see BatchOptions.Builder#failFast(boolean)
+         */
+        public Builder failFast(boolean val) {
+            failFast = val;
+            return this;
+        }
+
+        public ParallelMap build() {
+            return new ParallelMap(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.mike10004.subprocess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Value class that represents a sequence of subprocesses in which the standard output
+ * of each stage is connected to the standard input of the next, as in a shell pipeline.
+ * Create an instance with {@link Subprocess#pipe(Subprocess, Subprocess, Subprocess...)}.
+ *
+ * <p>On Java 9 and later, stages are started with {@code ProcessBuilder.startPipeline},
+ * so the operating system connects the stages directly and the data passing between
+ * them never enters the JVM. On Java 8, each connection is relayed by a thread.
+ *
+ * <p>To launch a pipeline and capture the output of the last stage as a string:</p>
+ * <pre>
+ * {@code
+ *     PipelineMonitor<String, String> monitor = Subprocess.pipe(
+ *                 Subprocess.running("ls").arg("/usr/bin").build(),
+ *                 Subprocess.running("grep").arg("zip").build(),
+ *                 Subprocess.running("sort").arg("-r").build())
+ *             .launcher(new ScopedProcessTracker())
+ *             .outputStrings(Charset.defaultCharset())
+ *             .launch();
+ *     PipelineResult<String, String> result = monitor.await();
+ *     System.out.println(result.content().stdout());
+ * }
+ * </pre>
+ */
+public class Pipeline {
+
+    private final List<Subprocess> stages;
+
+    Pipeline(List<Subprocess> stages) {
+        Preconditions.checkArgument(stages.size() >= 2, "pipeline must have at least two stages");
+        Defensive.requireAllNotNull(stages, "all stages must be non-null");
+        this.stages = Defensive.immutableCopyOf(stages);
+    }
+
+    static Pipeline of(Subprocess first, Subprocess second, Subprocess... others) {
+        List<Subprocess> stages = new ArrayList<>(2 + others.length);
+        stages.add(requireNonNull(first, "first"));
+        stages.add(requireNonNull(second, "second"));
+        for (Subprocess other : others) {
+            stages.add(requireNonNull(other, "stage"));
+        }
+        return new Pipeline(stages);
+    }
+
+    /**
+     * Gets the stages of this pipeline.
+     * @return an immutable list of the stages, in order
+     */
+    public List<Subprocess> stages() {
+        return stages;
+    }
+
+    /**
+     * Creates a new launch support instance that ignores output.
+     * @param processTracker the process tracker to which each stage is added
+     * @return a new launch support instance
+     */
+    public PipelineLaunchSupport<Void, Void> launcher(ProcessTracker processTracker) {
+        return new PipelineLaunchSupport<>(this, processTracker, StreamContexts.sinkhole());
+    }
+
+    @Override
+    public String toString() {
+        return "Pipeline{stages=" + stages + "}";
+    }
+}
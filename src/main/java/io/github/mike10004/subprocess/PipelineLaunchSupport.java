@@ -0,0 +1,97 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.nio.charset.Charset;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Support class that provides a fluent interface to launch a pipeline. The stream context
+ * is applied to each stage separately: the standard input source is fed to the first stage,
+ * the standard output sink receives the output of the last stage, and each stage's standard
+ * error is captured by its own stream control. Instances of this class are immutable.
+ * @param <SO> standard output capture type
+ * @param <SE> standard error capture type
+ */
+public class PipelineLaunchSupport<SO, SE> {
+
+    private final Pipeline pipeline;
+    private final ProcessTracker processTracker;
+    private final StreamContext<?, SO, SE> streamContext;
+
+    PipelineLaunchSupport(Pipeline pipeline, ProcessTracker processTracker, StreamContext<?, SO, SE> streamContext) {
+        this.pipeline = requireNonNull(pipeline, "pipeline");
+        this.processTracker = requireNonNull(processTracker, "processTracker");
+        this.streamContext = requireNonNull(streamContext, "streamContext");
+    }
+
+    /**
+     * Launches the pipeline.
+     * @return a monitor of the pipeline
+     * @throws SubprocessLaunchException if a stage cannot be launched
+     */
+    public PipelineMonitor<SO, SE> launch() {
+        return launch(PipelineMissionControl.isNativePipelineSupported());
+    }
+
+    @VisibleForTesting
+    PipelineMonitor<SO, SE> launch(boolean nativePipeline) {
+        return launch(streamContext, nativePipeline);
+    }
+
+    private <C extends StreamControl> PipelineMonitor<SO, SE> launch(StreamContext<C, SO, SE> streamContext, boolean nativePipeline) {
+        return new PipelineMissionControl(pipeline, processTracker, nativePipeline).launch(streamContext);
+    }
+
+    /**
+     * Returns a new launcher that uses the given stream context.
+     * @param streamContext the stream context
+     * @param <SO2> type of standard output content captured by the new launcher
+     * @param <SE2> type of standard error content captured by the new launcher
+     * @return a new launcher instance
+     */
+    public <SO2, SE2> PipelineLaunchSupport<SO2, SE2> output(StreamContext<?, SO2, SE2> streamContext) {
+        return new PipelineLaunchSupport<>(pipeline, processTracker, streamContext);
+    }
+
+    /**
+     * Returns a new launcher that captures the output of the last stage and the standard
+     * error of each stage as strings.
+     * @param charset encoding of bytes on the process output streams
+     * @return a new launch support instance
+     */
+    public PipelineLaunchSupport<String, String> outputStrings(Charset charset) {
+        return outputStrings(charset, null);
+    }
+
+    /**
+     * Returns a new launcher that captures the output of the last stage and the standard
+     * error of each stage as strings.
+     * @param charset encoding of bytes on the process output streams
+     * @param stdin source providing bytes to be written on the first stage's standard input; may be null
+     * @return a new launch support instance
+     */
+    public PipelineLaunchSupport<String, String> outputStrings(Charset charset, @Nullable StreamInput stdin) {
+        requireNonNull(charset, "charset");
+        return output(StreamContexts.strings(charset, stdin));
+    }
+
+    /**
+     * Returns a new launcher that captures the output of the last stage and the standard
+     * error of each stage as byte arrays.
+     * @return a new launch support instance
+     */
+    public PipelineLaunchSupport<byte[], byte[]> outputInMemory() {
+        return outputInMemory(null);
+    }
+
+    /**
+     * Returns a new launcher that captures the output of the last stage and the standard
+     * error of each stage as byte arrays.
+     * @param stdin source providing bytes to be written on the first stage's standard input; may be null
+     * @return a new launch support instance
+     */
+    public PipelineLaunchSupport<byte[], byte[]> outputInMemory(@Nullable StreamInput stdin) {
+        return output(StreamContexts.byteArrays(stdin));
+    }
+}
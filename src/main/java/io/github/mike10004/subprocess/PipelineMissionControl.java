@@ -0,0 +1,210 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.ProcessMissionControl.MaybeNullResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.github.mike10004.subprocess.ProcessMissionControl.isErrorPiped;
+import static io.github.mike10004.subprocess.ProcessMissionControl.isPiped;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Launches the stages of a pipeline and follows them to termination. With a native
+ * pipeline, the stages are started together by {@code ProcessBuilder.startPipeline}
+ * and the operating system connects them; otherwise each stage's standard input is
+ * fed from the previous stage's standard output by the stage's input pump.
+ */
+class PipelineMissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineMissionControl.class);
+
+    private static final String THREAD_NAME_FORMAT = "subprocess-pipeline-%d";
+
+    @Nullable
+    private static final Method START_PIPELINE = findStartPipelineMethod();
+
+    private final Pipeline pipeline;
+    private final ProcessTracker processTracker;
+    private final boolean nativePipeline;
+
+    public PipelineMissionControl(Pipeline pipeline, ProcessTracker processTracker, boolean nativePipeline) {
+        this.pipeline = requireNonNull(pipeline, "pipeline");
+        this.processTracker = requireNonNull(processTracker, "processTracker");
+        Preconditions.checkArgument(!nativePipeline || isNativePipelineSupported(), "native pipelines are not supported on this platform");
+        this.nativePipeline = nativePipeline;
+    }
+
+    @Nullable
+    private static Method findStartPipelineMethod() {
+        try {
+            return ProcessBuilder.class.getMethod("startPipeline", List.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the runtime can start native pipelines, which requires Java 9 or later.
+     * @return true if {@code ProcessBuilder.startPipeline} is available
+     */
+    static boolean isNativePipelineSupported() {
+        return START_PIPELINE != null;
+    }
+
+    public <C extends StreamControl, SO, SE> PipelineMonitor<SO, SE> launch(StreamContext<C, SO, SE> streamContext) {
+        List<Subprocess> stages = pipeline.stages();
+        List<C> controls = new ArrayList<>(stages.size());
+        try {
+            for (int i = 0; i < stages.size(); i++) {
+                controls.add(streamContext.produceControl());
+            }
+        } catch (IOException e) {
+            throw new SubprocessLaunchException("failed to produce output context", e);
+        }
+        List<ProcessBuilder> builders = createProcessBuilders(stages, controls);
+        List<Process> processes = start(builders);
+        processes.forEach(processTracker::add);
+        ExecutorService executorService = Executors.newFixedThreadPool(stages.size() + 1, new ThreadFactoryBuilder()
+                .setNameFormat(THREAD_NAME_FORMAT)
+                .setDaemon(true)
+                .build());
+        List<Future<ProcessResult<SO, SE>>> stageFutures = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            int stageIndex = i;
+            C control = controls.get(i);
+            stageFutures.add(executorService.submit(() -> {
+                int exitCode = follow(processes, stageIndex, control);
+                return ProcessResult.direct(exitCode, streamContext.transform(exitCode, control));
+            }));
+        }
+        Future<PipelineResult<SO, SE>> future = executorService.submit(() -> collect(stageFutures, processes));
+        executorService.shutdown();
+        return new PipelineMonitor<>(processes, future, processTracker);
+    }
+
+    private <SO, SE> PipelineResult<SO, SE> collect(List<Future<ProcessResult<SO, SE>>> stageFutures, List<Process> processes) throws Exception {
+        List<ProcessResult<SO, SE>> results = new ArrayList<>(stageFutures.size());
+        try {
+            for (Future<ProcessResult<SO, SE>> stageFuture : stageFutures) {
+                results.add(stageFuture.get());
+            }
+        } catch (ExecutionException e) {
+            processes.forEach(ProcessMissionControl::destroy);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+        return new PipelineResult<>(results);
+    }
+
+    private List<ProcessBuilder> createProcessBuilders(List<Subprocess> stages, List<? extends StreamControl> controls) {
+        int last = stages.size() - 1;
+        List<ProcessBuilder> builders = new ArrayList<>(stages.size());
+        for (int i = 0; i <= last; i++) {
+            Subprocess stage = stages.get(i);
+            StreamControl control = controls.get(i);
+            File workingDirectory = stage.workingDirectory();
+            if (!stage.isWorkingDirectoryChecked() && !ProcessMissionControl.checkWorkingDirectory(workingDirectory)) {
+                throw new ProcessMissionControl.InvalidWorkingDirectoryException(workingDirectory);
+            }
+            builders.add(ProcessMissionControl.createProcessBuilder(stage, ProcessMissionControl.commandLine(stage))
+                    .redirectInput(i == 0 ? control.redirectInput() : Redirect.PIPE)
+                    .redirectOutput(i == last ? control.redirectOutput() : Redirect.PIPE)
+                    .redirectError(control.redirectError())
+                    .redirectErrorStream(control.redirectErrorStream()));
+        }
+        return builders;
+    }
+
+    private List<Process> start(List<ProcessBuilder> builders) {
+        if (nativePipeline) {
+            return startNative(builders);
+        }
+        List<Process> processes = new ArrayList<>(builders.size());
+        try {
+            for (ProcessBuilder builder : builders) {
+                processes.add(builder.start());
+            }
+        } catch (IOException e) {
+            processes.forEach(Process::destroyForcibly);
+            throw new ProcessMissionControl.ProcessStartException(e);
+        }
+        return processes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Process> startNative(List<ProcessBuilder> builders) {
+        try {
+            return new ArrayList<>((List<Process>) requireNonNull(START_PIPELINE).invoke(null, builders));
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new ProcessMissionControl.ProcessStartException((IOException) cause);
+            }
+            throw new SubprocessLaunchException(cause);
+        } catch (IllegalAccessException e) {
+            throw new SubprocessLaunchException(e);
+        }
+    }
+
+    /**
+     * Pumps the streams of one stage until the stage process terminates.
+     * The standard input of a stage other than the first is either connected
+     * by the operating system or, if this is not a native pipeline, relayed
+     * from the previous stage's standard output; the standard output of a stage
+     * other than the last is consumed by the next stage.
+     */
+    private int follow(List<Process> processes, int stageIndex, StreamControl control) throws IOException {
+        Process process = processes.get(stageIndex);
+        boolean first = stageIndex == 0, last = stageIndex == processes.size() - 1;
+        @Nullable InputStream relaySource = !first && !nativePipeline ? processes.get(stageIndex - 1).getInputStream() : null;
+        boolean terminated = false;
+        @Nullable Integer exitVal;
+        OutputStream processStdin = null;
+        InputStream processStdout = null, processStderr = null;
+        try (MaybeNullResource<InputStream> inResource = MaybeNullResource.of(first && isPiped(control.redirectInput()) ? control.openStdinSource() : relaySource);
+             MaybeNullResource<OutputStream> stdoutResource = MaybeNullResource.of(last && isPiped(control.redirectOutput()) ? control.openStdoutSink() : null);
+             MaybeNullResource<OutputStream> stderrResource = MaybeNullResource.of(isErrorPiped(control) ? control.openStderrSink() : null)) {
+            StreamConduit conduit = new StreamConduit(stdoutResource.resource, stderrResource.resource, inResource.resource);
+            processStdin = process.getOutputStream();
+            processStdout = process.getInputStream();
+            processStderr = process.getErrorStream();
+            try (Closeable ignore = conduit.connect(processStdin, processStdout, processStderr)) {
+                exitVal = ProcessMissionControl.waitFor(process);
+                if (exitVal != null) {
+                    terminated = true;
+                }
+            }
+        } finally {
+            if (!terminated) {
+                ProcessMissionControl.destroy(process);
+            }
+            processTracker.remove(process);
+            // the standard output of an intermediate stage is closed by the next stage, which reads it
+            Streams.closeAllAndIgnoreErrors(processStdin, last || nativePipeline ? processStdout : null, processStderr);
+        }
+        if (exitVal == null) {
+            throw new ProcessMissionControl.IllegalProcessStateException("no way to wait for process; probably interrupted in PipelineMissionControl.follow");
+        }
+        log.debug("pipeline stage {} exited with code {}", stageIndex, exitVal);
+        return exitVal;
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.mike10004.subprocess;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Monitor of a launched pipeline.
+ * @param <SO> type of captured standard output contents
+ * @param <SE> type of captured standard error contents
+ * @see PipelineLaunchSupport#launch()
+ */
+public class PipelineMonitor<SO, SE> {
+
+    private final List<Process> processes;
+    private final Future<PipelineResult<SO, SE>> future;
+    private final ProcessTracker processTracker;
+
+    PipelineMonitor(List<Process> processes, Future<PipelineResult<SO, SE>> future, ProcessTracker processTracker) {
+        this.processes = Defensive.immutableCopyOf(processes);
+        this.future = requireNonNull(future, "future");
+        this.processTracker = requireNonNull(processTracker, "processTracker");
+    }
+
+    /**
+     * Gets the underlying future corresponding to this monitor.
+     * @return the result future
+     */
+    public Future<PipelineResult<SO, SE>> future() {
+        return future;
+    }
+
+    /**
+     * Gets the processes of the pipeline stages.
+     * @return an immutable list of processes, in pipeline order
+     */
+    public List<Process> processes() {
+        return processes;
+    }
+
+    /**
+     * Gets the process tracker instance that was used to launch the pipeline.
+     * @return the process tracker
+     */
+    @SuppressWarnings("unused")
+    public ProcessTracker tracker() {
+        return processTracker;
+    }
+
+    /**
+     * Attempts to destroy the processes of all stages.
+     * @param timeoutPerProcess the timeout per process
+     * @param unit the timeout unit
+     * @return a list of processes that are still alive
+     * @see ProcessTracker#destroyAll(Iterable, long, TimeUnit)
+     */
+    public List<Process> destroyAll(long timeoutPerProcess, TimeUnit unit) {
+        return ProcessTracker.destroyAll(processes, timeoutPerProcess, unit);
+    }
+
+    /**
+     * Blocks on this thread, waiting for all stages to finish or the given timeout to elapse.
+     * @param timeout the timeout
+     * @param unit the timeout duration unit
+     * @return the pipeline result
+     * @throws TimeoutException if the timeout elapses before the pipeline finishes
+     * @throws InterruptedException if the waiting is interrupted
+     * @throws SubprocessExecutionException if an execution exception is thrown on a stage execution thread
+     */
+    public PipelineResult<SO, SE> await(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException, SubprocessExecutionException {
+        try {
+            return future.get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw new SubprocessExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Blocks on this thread, waiting for all stages to finish.
+     * @return the pipeline result
+     * @throws InterruptedException if the waiting is interrupted
+     * @throws SubprocessExecutionException if an execution exception is thrown on a stage execution thread
+     */
+    public PipelineResult<SO, SE> await() throws InterruptedException, SubprocessExecutionException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new SubprocessExecutionException(e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package io.github.mike10004.subprocess;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Result of a pipeline. The exit code and content of the pipeline as a whole are
+ * those of the last stage, as in a shell. The results of each stage, including
+ * each stage's captured standard error, are available from {@link #stages()}.
+ * @param <SO> type of the captured standard output contents
+ * @param <SE> type of the captured standard error contents
+ */
+public class PipelineResult<SO, SE> implements ProcessResult<SO, SE> {
+
+    private final List<ProcessResult<SO, SE>> stages;
+
+    PipelineResult(List<ProcessResult<SO, SE>> stages) {
+        Preconditions.checkArgument(!stages.isEmpty(), "stages must be nonempty");
+        this.stages = Defensive.immutableCopyOf(stages);
+    }
+
+    /**
+     * Gets the results of the stages. The standard output content of every stage
+     * except the last is empty, because that output was consumed by the next stage.
+     * @return an immutable list of stage results, in pipeline order
+     */
+    public List<ProcessResult<SO, SE>> stages() {
+        return stages;
+    }
+
+    /**
+     * Gets the exit codes of the stages.
+     * @return a list of exit codes, in pipeline order
+     */
+    public List<Integer> exitCodes() {
+        return stages.stream().map(ProcessResult::exitCode).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the exit code of the last stage.
+     * @return the exit code
+     */
+    @Override
+    public int exitCode() {
+        return last().exitCode();
+    }
+
+    /**
+     * Gets the content captured from the last stage.
+     * @return the content
+     */
+    @Override
+    public StreamContent<SO, SE> content() {
+        return last().content();
+    }
+
+    private ProcessResult<SO, SE> last() {
+        return stages.get(stages.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineResult{" +
+                "exitCodes=" + exitCodes() +
+                ", output=" + content() +
+                '}';
+    }
+}
@@ -6,6 +6,7 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
 
 import static java.util.Objects.requireNonNull;
 
@@ -32,10 +33,17 @@ class PredefinedStreamControl implements StreamControl {
     @Nullable
     private  final StreamInput stdin;
 
+    /**
+     * Redirect for the process's standard input, computed once so that every caller
+     * sees the same answer even if an input file appears or disappears later.
+     */
+    private final Redirect stdinRedirect;
+
     public PredefinedStreamControl(StreamOutput stdout, StreamOutput stderr, @Nullable StreamInput stdin) {
         this.stdin = stdin;
         this.stdout = requireNonNull(stdout);
         this.stderr = requireNonNull(stderr);
+        this.stdinRedirect = Streams.inputRedirect(stdin);
     }
 
     @Override
@@ -54,10 +62,21 @@ class PredefinedStreamControl implements StreamControl {
         return stdin == null ? null : stdin.openStream();
     }
 
+    /**
+     * Redirects process standard input from the file if the input source was an existing
+     * file when this instance was constructed.
+     * @return the input redirect
+     */
+    @Override
+    public Redirect redirectInput() {
+        return stdinRedirect;
+    }
+
     private PredefinedStreamControl(Builder builder) {
         stdout = builder.stdout;
         stderr = builder.stderr;
         stdin = builder.stdin;
+        stdinRedirect = Streams.inputRedirect(stdin);
     }
 
     private static FilterOutputStream nonclosing(OutputStream outputStream) {
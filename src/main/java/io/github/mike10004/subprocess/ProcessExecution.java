@@ -1,5 +1,6 @@
 package io.github.mike10004.subprocess;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 interface ProcessExecution<SO, SE> {
@@ -8,4 +9,11 @@ interface ProcessExecution<SO, SE> {
 
     Future<ProcessResult<SO, SE>> getFuture();
 
+    /**
+     * Gets a future that completes when the task of {@link #getFuture()} finishes,
+     * which allows completion to be observed without a thread waiting on that future.
+     * @return the completion future
+     */
+    CompletableFuture<ProcessResult<SO, SE>> getCompletion();
+
 }
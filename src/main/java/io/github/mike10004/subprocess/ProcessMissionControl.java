@@ -15,13 +15,13 @@ import java.io.OutputStream;
 import java.lang.ProcessBuilder.Redirect;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
 
@@ -42,12 +42,20 @@ class ProcessMissionControl {
     }
 
     public <SO, SE> ProcessExecution<SO, SE> launch(StreamControl streamControl, Function<? super Integer, ? extends ProcessResult<SO, SE>> resultTransform) {
-        Process process = execute();
+        Process process = execute(streamControl);
+        CompletableFuture<ProcessResult<SO, SE>> completion = new CompletableFuture<>();
         Future<ProcessResult<SO, SE>> future = terminationWaitingService.submit(new Callable<ProcessResult<SO, SE>>(){
             @Override
             public ProcessResult<SO, SE> call() throws Exception {
-                Integer exitCode = follow(process, streamControl);
-                return resultTransform.apply(exitCode);
+                try {
+                    Integer exitCode = follow(process, streamControl);
+                    ProcessResult<SO, SE> result = resultTransform.apply(exitCode);
+                    completion.complete(result);
+                    return result;
+                } catch (Throwable t) {
+                    completion.completeExceptionally(t);
+                    throw t;
+                }
             }
         });
         return new ProcessExecution<SO, SE>() {
@@ -60,26 +68,60 @@ class ProcessMissionControl {
             public Future<ProcessResult<SO, SE>> getFuture() {
                 return future;
             }
+
+            @Override
+            public CompletableFuture<ProcessResult<SO, SE>> getCompletion() {
+                return completion;
+            }
         };
     }
 
     /**
-     * Returns a copy of the command line, including executable and arguments.
+     * Returns the command line, including executable and arguments.
      * @return the command line as a list
      */
     private List<String> getCommandLine() {
-        return Stream.concat(Stream.of(program.executable()), program.arguments().stream()).collect(Collectors.toList());
+        return commandLine(program);
     }
 
-    private Process createProcess(List<String> cmdline) {
+    static List<String> commandLine(Subprocess program) {
+        return program.commandLine();
+    }
+
+    /**
+     * Creates a process builder with the command line, working directory, and environment
+     * of a program. Redirects are left at their defaults.
+     * @param program the program
+     * @param cmdline the command line
+     * @return a new process builder
+     */
+    static ProcessBuilder createProcessBuilder(Subprocess program, List<String> cmdline) {
         ProcessBuilder pb = new ProcessBuilder()
                 .command(cmdline)
-                .redirectError(Redirect.PIPE)
-                .redirectOutput(Redirect.PIPE)
-                .redirectInput(Redirect.PIPE)
                 .directory(program.workingDirectory());
-        Map<String, String> pbenv = pb.environment();
-        pbenv.putAll(program.environment());
+        Map<String, String> environment = program.environment();
+        @Nullable Map<String, String> baseEnvironment = program.baseEnvironment();
+        Set<String> removedEnvironment = program.removedEnvironment();
+        // the process builder copies the parent environment on first access, so avoid it unless needed
+        if (baseEnvironment != null || !removedEnvironment.isEmpty() || !environment.isEmpty()) {
+            Map<String, String> pbenv = pb.environment();
+            if (baseEnvironment != null) {
+                pbenv.clear();
+                pbenv.putAll(baseEnvironment);
+            } else {
+                pbenv.keySet().removeAll(removedEnvironment);
+            }
+            pbenv.putAll(environment);
+        }
+        return pb;
+    }
+
+    private Process createProcess(List<String> cmdline, StreamControl streamControl) {
+        ProcessBuilder pb = createProcessBuilder(program, cmdline)
+                .redirectError(streamControl.redirectError())
+                .redirectOutput(streamControl.redirectOutput())
+                .redirectInput(streamControl.redirectInput())
+                .redirectErrorStream(streamControl.redirectErrorStream());
         try {
             return pb.start();
         } catch (IOException e) {
@@ -96,22 +138,23 @@ class ProcessMissionControl {
     /**
      * Runs a process and returns its exit status.
      *
+     * @param streamControl the stream control that supplies the redirects
      * @return the exit status of the subprocess or null if the process did
      * @exception SubprocessException The exception is thrown, if launching
      *            of the subprocess failed.
      */
     @VisibleForTesting
-    Process execute() {
+    Process execute(StreamControl streamControl) {
         File workingDirectory = program.workingDirectory();
-        if (!checkWorkingDirectory(workingDirectory)) {
+        if (!program.isWorkingDirectoryChecked() && !checkWorkingDirectory(workingDirectory)) {
             throw new InvalidWorkingDirectoryException(workingDirectory);
         }
-        final Process process = createProcess(getCommandLine());
+        final Process process = createProcess(getCommandLine(), streamControl);
         processTracker.add(process);
         return process;
     }
 
-    private static boolean checkWorkingDirectory(@Nullable File workingDirectory) {
+    static boolean checkWorkingDirectory(@Nullable File workingDirectory) {
         return workingDirectory == null || workingDirectory.isDirectory();
     }
 
@@ -123,7 +166,7 @@ class ProcessMissionControl {
 
     }
 
-    private static class MaybeNullResource<T extends java.io.Closeable> implements java.io.Closeable {
+    static class MaybeNullResource<T extends java.io.Closeable> implements java.io.Closeable {
         @Nullable
         public final T resource;
 
@@ -150,10 +193,10 @@ class ProcessMissionControl {
         @Nullable Integer exitVal;
         OutputStream processStdin = null;
         InputStream processStdout = null, processStderr = null;
-        try (MaybeNullResource<InputStream> inResource = MaybeNullResource.of(outputContext.openStdinSource());
-            OutputStream stdoutDestination = outputContext.openStdoutSink();
-            OutputStream stderrDestination = outputContext.openStderrSink()) {
-            StreamConduit conduit = new StreamConduit(stdoutDestination, stderrDestination, inResource.resource);
+        try (MaybeNullResource<InputStream> inResource = MaybeNullResource.of(isPiped(outputContext.redirectInput()) ? outputContext.openStdinSource() : null);
+            MaybeNullResource<OutputStream> stdoutResource = MaybeNullResource.of(isPiped(outputContext.redirectOutput()) ? outputContext.openStdoutSink() : null);
+            MaybeNullResource<OutputStream> stderrResource = MaybeNullResource.of(isErrorPiped(outputContext) ? outputContext.openStderrSink() : null)) {
+            StreamConduit conduit = new StreamConduit(stdoutResource.resource, stderrResource.resource, inResource.resource);
             processStdin = process.getOutputStream();
             processStdout = process.getInputStream();
             processStderr = process.getErrorStream();
@@ -177,13 +220,21 @@ class ProcessMissionControl {
         return exitVal;
     }
 
-    private static class IllegalProcessStateException extends IllegalStateException {
+    static boolean isPiped(Redirect redirect) {
+        return redirect.type() == Redirect.Type.PIPE;
+    }
+
+    static boolean isErrorPiped(StreamControl streamControl) {
+        return !streamControl.redirectErrorStream() && isPiped(streamControl.redirectError());
+    }
+
+    static class IllegalProcessStateException extends IllegalStateException {
         public IllegalProcessStateException(String msg) {
             super(msg);
         }
     }
 
-    private void destroy(Process process) {
+    static void destroy(Process process) {
         boolean terminatedNaturally = false;
         try {
             terminatedNaturally = process.waitFor(0, TimeUnit.MILLISECONDS);
@@ -203,7 +254,7 @@ class ProcessMissionControl {
      * @param process the process to wait for
      */
     @Nullable
-    private Integer waitFor(Process process) {
+    static Integer waitFor(Process process) {
         try {
             return process.waitFor();
         } catch (InterruptedException e) {
@@ -0,0 +1,84 @@
+package io.github.mike10004.subprocess;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Process that stands in for an execution whose result is supplied by a cache or by
+ * another execution rather than by a process of its own. The process is alive until
+ * the result is available, and its exit value is the exit code of the result, or -1
+ * if the result could not be obtained. Its streams are empty, and destroying it has
+ * no effect.
+ */
+class ReplayedProcess extends Process {
+
+    private final CompletableFuture<Integer> exitCode;
+
+    public ReplayedProcess(CompletableFuture<? extends ProcessResult<?, ?>> result) {
+        exitCode = result.handle((r, t) -> r == null ? -1 : r.exitCode());
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return Streams.nullOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        try {
+            return exitCode.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("BUG: exit code future cannot fail", e);
+        }
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            exitCode.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("BUG: exit code future cannot fail", e);
+        }
+    }
+
+    @Override
+    public int exitValue() {
+        Integer value = exitCode.getNow(null);
+        if (value == null) {
+            throw new IllegalThreadStateException("process has not exited");
+        }
+        return value;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !exitCode.isDone();
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayedProcess{exitCode=" + exitCode.getNow(null) + "}";
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.mike10004.subprocess;
+
+import java.io.File;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Launcher that resolves executable names and checks working directories with an
+ * {@link ExecutableResolver} before delegating to another launcher. Subprocesses
+ * whose executable is a bare name are launched with the resolved executable file,
+ * so the operating system does not search the path at each launch, and a launch
+ * of a missing executable fails with an
+ * {@link ExecutableResolver.ExecutableNotFoundException} without attempting to
+ * start a process. Executables given as pathnames are passed through unchanged.
+ */
+public class ResolvingSubprocessLauncher implements SubprocessLauncher {
+
+    private final SubprocessLauncher delegate;
+    private final ExecutableResolver resolver;
+
+    /**
+     * Constructs an instance.
+     * @param delegate the launcher that launches resolved subprocesses
+     * @param resolver the resolver
+     */
+    public ResolvingSubprocessLauncher(SubprocessLauncher delegate, ExecutableResolver resolver) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.resolver = requireNonNull(resolver, "resolver");
+    }
+
+    @Override
+    public <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> launch(Subprocess subprocess, StreamContext<C, SO, SE> streamContext) throws SubprocessException {
+        return delegate.launch(resolve(subprocess), streamContext);
+    }
+
+    /**
+     * Resolves the executable and checks the working directory of a subprocess.
+     * @param subprocess the subprocess
+     * @return a subprocess whose executable is resolved and whose working directory is checked
+     * @throws SubprocessLaunchException if the executable cannot be resolved or the working directory is not a directory
+     */
+    protected Subprocess resolve(Subprocess subprocess) throws SubprocessLaunchException {
+        String executable = subprocess.executable();
+        if (ExecutableResolver.isBareName(executable)) {
+            executable = resolver.resolve(executable).getPath();
+        }
+        File workingDirectory = subprocess.workingDirectory();
+        if (!subprocess.isWorkingDirectoryChecked() && !resolver.isDirectory(workingDirectory)) {
+            throw new ProcessMissionControl.InvalidWorkingDirectoryException(workingDirectory);
+        }
+        return subprocess.withCheckedExecutable(executable);
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvingSubprocessLauncher{delegate=" + delegate + ", resolver=" + resolver + "}";
+    }
+}
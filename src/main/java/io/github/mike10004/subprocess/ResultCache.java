@@ -0,0 +1,53 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+
+/**
+ * Interface of a store of process execution results, used by {@link CachingSubprocessLauncher}.
+ * Implementations must be safe for use by multiple threads.
+ */
+public interface ResultCache {
+
+    /**
+     * Gets a cached output.
+     * @param key the key
+     * @return the output, or null if there is no unexpired entry for the key
+     */
+    @Nullable
+    CachedOutput get(CacheKey key);
+
+    /**
+     * Adds or replaces an entry. Implementations may throw an unchecked exception,
+     * such as {@link java.io.UncheckedIOException}, if the entry cannot be stored;
+     * {@link CachingSubprocessLauncher} logs such failures and otherwise proceeds as
+     * if the output had been stored.
+     * @param key the key
+     * @param output the output
+     */
+    void put(CacheKey key, CachedOutput output);
+
+    /**
+     * Removes an entry, if present.
+     * @param key the key
+     */
+    void invalidate(CacheKey key);
+
+    /**
+     * Removes all entries.
+     */
+    void invalidateAll();
+
+    /**
+     * Returns a cache that consults a fast cache before a slow one, such as a
+     * {@link MemoryResultCache} in front of a {@link DiskResultCache}. Entries found
+     * only in the slow cache are copied to the fast cache, and new entries are
+     * written to both.
+     * @param fast the cache consulted first
+     * @param slow the cache consulted on a miss in the fast cache
+     * @return a layered cache
+     */
+    static ResultCache layered(ResultCache fast, ResultCache slow) {
+        return new LayeredResultCache(fast, slow);
+    }
+
+}
@@ -0,0 +1,456 @@
+package io.github.mike10004.subprocess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream output that writes to a file and rolls it over to a new segment when
+ * the segment reaches a maximum size or age. This is intended for the output of
+ * long-running processes, whose output would otherwise grow a single file forever.
+ *
+ * <p>Rotated segments are renamed with a timestamp suffix, like {@code daemon.log.20180101-120000-000-000},
+ * and only the most recent segments are retained. Rotated segments may optionally be
+ * compressed on a background thread. Bytes are accumulated in a buffer and written to
+ * a file channel when the buffer fills, when the segment rotates, when the stream is
+ * closed, or when buffered bytes have waited longer than the maximum flush delay,
+ * so a process that writes many small chunks does not cause a write per chunk.
+ */
+public class RotatingFileStreamOutput implements StreamOutput {
+
+    private static final Logger log = LoggerFactory.getLogger(RotatingFileStreamOutput.class);
+
+    private static final String TIMESTAMP_PATTERN = "yyyyMMdd-HHmmss-SSS";
+
+    /**
+     * Regex matching the part of a segment name that {@link #segmentName(long)} appends:
+     * a timestamp formatted with {@link #TIMESTAMP_PATTERN} and a sequence number.
+     */
+    private static final String SEGMENT_SUFFIX_REGEX = "\\.\\d{8}-\\d{6}-\\d{3}-\\d{3,}";
+
+    /*
+     * Compression and flush scheduling run on separate threads, so that compressing
+     * a large segment never delays the timed flushes of other instances.
+     */
+    private static final ExecutorService COMPRESSION = createCompressionService();
+    private static final ScheduledExecutorService FLUSH_SCHEDULER = createFlushScheduler();
+
+    private final File file;
+    private final long maxSegmentBytes;
+    @Nullable
+    private final Duration maxSegmentAge;
+    private final int retainedSegments;
+    @Nullable
+    private final CompressionFormat rotatedCompression;
+    private final int bufferSize;
+    private final Duration maxFlushDelay;
+    private final List<Future<?>> pendingCompressions;
+
+    private RotatingFileStreamOutput(Builder builder) {
+        file = builder.file;
+        maxSegmentBytes = builder.maxSegmentBytes;
+        maxSegmentAge = builder.maxSegmentAge;
+        retainedSegments = builder.retainedSegments;
+        rotatedCompression = builder.rotatedCompression;
+        bufferSize = builder.bufferSize;
+        maxFlushDelay = builder.maxFlushDelay;
+        pendingCompressions = new ArrayList<>();
+    }
+
+    private static ExecutorService createCompressionService() {
+        return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("rotating-file-compression-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    private static ScheduledExecutorService createFlushScheduler() {
+        ScheduledThreadPoolExecutor service = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("rotating-file-flush-%d")
+                .setDaemon(true)
+                .build());
+        service.setRemoveOnCancelPolicy(true);
+        return service;
+    }
+
+    /**
+     * Creates a new builder of instances that write to the given file.
+     * @param file the active file; rotated segments are created in the same directory
+     * @return a new builder
+     */
+    public static Builder builder(File file) {
+        return new Builder(file);
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+        return new RotatingOutputStream();
+    }
+
+    /**
+     * Lists the rotated segments of the file that currently exist, oldest first.
+     * Only files named the way this class names segments are listed, so other
+     * siblings, such as {@code app.log.1}, are neither listed nor pruned.
+     * @return the list of rotated segment files
+     */
+    public List<File> listRotatedSegments() {
+        File directory = file.getAbsoluteFile().getParentFile();
+        String suffix = suffix();
+        Pattern segmentPattern = Pattern.compile(Pattern.quote(file.getName()) + SEGMENT_SUFFIX_REGEX
+                + (suffix.isEmpty() ? "" : "(?:" + Pattern.quote(suffix) + ")?"));
+        File[] files = directory.listFiles((dir, name) -> segmentPattern.matcher(name).matches()
+                && (suffix.isEmpty() || name.endsWith(suffix) || !new File(dir, name + suffix).exists()));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Waits for compression of rotated segments to finish.
+     * @param timeout the timeout
+     * @param unit the timeout unit
+     * @return true if all compression tasks finished before the timeout elapsed
+     * @throws InterruptedException if waiting is interrupted
+     */
+    public boolean awaitCompression(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<Future<?>> pending;
+        synchronized (pendingCompressions) {
+            pending = new ArrayList<>(pendingCompressions);
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                log.warn("compression of rotated segment failed", e.getCause());
+            }
+        }
+        synchronized (pendingCompressions) {
+            pendingCompressions.removeAll(pending);
+        }
+        return true;
+    }
+
+    private String segmentName(long timestampMillis) {
+        SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_PATTERN, Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String base = file.getName() + "." + format.format(new Date(timestampMillis));
+        File directory = file.getAbsoluteFile().getParentFile();
+        String name = base + "-000";
+        for (int i = 1; new File(directory, name).exists() || new File(directory, name + suffix()).exists(); i++) {
+            name = String.format("%s-%03d", base, i);
+        }
+        return name;
+    }
+
+    private String suffix() {
+        return rotatedCompression == null ? "" : rotatedCompression.suffix();
+    }
+
+    private void pruneSegments() {
+        List<File> segments = listRotatedSegments();
+        int excess = segments.size() - retainedSegments;
+        for (int i = 0; i < excess; i++) {
+            File segment = segments.get(i);
+            if (!segment.delete()) {
+                log.warn("failed to delete rotated segment {}", segment);
+            }
+        }
+    }
+
+    /**
+     * Compresses a rotated segment on the compression thread and then prunes old segments.
+     * Pruning happens on the same thread so that it never deletes a segment that is being compressed.
+     */
+    private void compressInBackground(File segment) {
+        CompressionFormat format = requireNonNull(rotatedCompression);
+        Future<?> future = COMPRESSION.submit(() -> {
+            File compressed = new File(segment.getPath() + format.suffix());
+            File temp = new File(compressed.getPath() + ".tmp");
+            try (InputStream in = new BufferedInputStream(new FileInputStream(segment));
+                 OutputStream out = format.compress(new BufferedOutputStream(new FileOutputStream(temp)), Deflater.DEFAULT_COMPRESSION, bufferSize)) {
+                Streams.copy(in, out);
+            }
+            Files.move(temp.toPath(), compressed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(segment.toPath());
+            pruneSegments();
+            return null;
+        });
+        synchronized (pendingCompressions) {
+            pendingCompressions.removeIf(Future::isDone);
+            pendingCompressions.add(future);
+        }
+    }
+
+    private class RotatingOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+        private FileChannel channel;
+        private long segmentBytes;
+        private long segmentStartMillis;
+        @Nullable
+        private ScheduledFuture<?> scheduledFlush;
+        private boolean closed;
+
+        RotatingOutputStream() throws IOException {
+            buffer = ByteBuffer.allocate(bufferSize);
+            openSegment();
+        }
+
+        private void openSegment() throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segmentBytes = channel.size();
+            segmentStartMillis = System.currentTimeMillis();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            if (len <= 0) {
+                return;
+            }
+            if (isRotationDue(len)) {
+                rotate();
+            }
+            if (len > buffer.remaining()) {
+                writeBuffer();
+            }
+            if (len >= buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+            } else {
+                boolean wasEmpty = buffer.position() == 0;
+                buffer.put(b, off, len);
+                if (wasEmpty) {
+                    scheduleFlush();
+                }
+            }
+            segmentBytes += len;
+        }
+
+        private boolean isRotationDue(int len) {
+            long pending = segmentBytes;
+            if (pending == 0) {
+                return false;
+            }
+            if (maxSegmentBytes > 0 && pending + len > maxSegmentBytes) {
+                return true;
+            }
+            return maxSegmentAge != null && System.currentTimeMillis() - segmentStartMillis >= maxSegmentAge.toMillis();
+        }
+
+        private void rotate() throws IOException {
+            writeBuffer();
+            channel.close();
+            File rotated = new File(file.getAbsoluteFile().getParentFile(), segmentName(segmentStartMillis));
+            Files.move(file.toPath(), rotated.toPath());
+            if (rotatedCompression != null) {
+                compressInBackground(rotated);
+            } else {
+                pruneSegments();
+            }
+            openSegment();
+        }
+
+        private void scheduleFlush() {
+            if (scheduledFlush == null || scheduledFlush.isDone()) {
+                scheduledFlush = FLUSH_SCHEDULER.schedule(this::flushQuietly, maxFlushDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void flushQuietly() {
+            try {
+                if (!closed) {
+                    writeBuffer();
+                }
+            } catch (IOException e) {
+                log.warn("failed to flush buffer to {}", file, e);
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                writeFully(buffer);
+                buffer.clear();
+            }
+        }
+
+        private void writeFully(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        }
+
+        /**
+         * Does not write immediately; buffered bytes are written within the maximum flush delay.
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            try {
+                writeBuffer();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RotatingFileStreamOutput{" +
+                "file=" + file +
+                ", maxSegmentBytes=" + maxSegmentBytes +
+                ", maxSegmentAge=" + maxSegmentAge +
+                ", retainedSegments=" + retainedSegments +
+                ", rotatedCompression=" + rotatedCompression +
+                '}';
+    }
+
+    /**
+     * Builder of rotating file outputs. By default, segments are rotated when they
+     * reach 10MB, five rotated segments are retained, rotated segments are not compressed,
+     * the write buffer size is 64KB, and the maximum flush delay is one second.
+     */
+    public static final class Builder {
+
+        private final File file;
+        private long maxSegmentBytes = 10 * 1024 * 1024;
+        @Nullable
+        private Duration maxSegmentAge;
+        private int retainedSegments = 5;
+        @Nullable
+        private CompressionFormat rotatedCompression;
+        private int bufferSize = 64 * 1024;
+        private Duration maxFlushDelay = Duration.ofSeconds(1);
+
+        private Builder(File file) {
+            this.file = requireNonNull(file, "file");
+        }
+
+        /**
+         * Sets the size at which the active file is rotated.
+         * @param val maximum segment size in bytes; zero means no size limit
+         * @return this builder instance
+         */
+        public Builder maxSegmentBytes(long val) {
+            Preconditions.checkArgument(val >= 0, "max segment size must be nonnegative");
+            maxSegmentBytes = val;
+            return this;
+        }
+
+        /**
+         * Sets the age at which the active file is rotated. Age is measured from
+         * when the segment was opened, and rotation happens on the next write
+         * after the age is reached.
+         * @param val maximum segment age; null means no age limit
+         * @return this builder instance
+         */
+        public Builder maxSegmentAge(@Nullable Duration val) {
+            maxSegmentAge = val;
+            return this;
+        }
+
+        /**
+         * Sets the number of rotated segments to keep. Older segments are deleted.
+         * @param val the count
+         * @return this builder instance
+         */
+        public Builder retainedSegments(int val) {
+            Preconditions.checkArgument(val >= 0, "retained segment count must be nonnegative");
+            retainedSegments = val;
+            return this;
+        }
+
+        /**
+         * Sets the format in which rotated segments are compressed on a background thread.
+         * @param val the format, or null to leave rotated segments uncompressed
+         * @return this builder instance
+         */
+        public Builder compressRotated(@Nullable CompressionFormat val) {
+            rotatedCompression = val;
+            return this;
+        }
+
+        /**
+         * Sets the size of the write buffer.
+         * @param val the size in bytes
+         * @return this builder instance
+         */
+        public Builder bufferSize(int val) {
+            Preconditions.checkArgument(val > 0, "buffer size must be positive");
+            bufferSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of time buffered bytes wait before they are written to the file.
+         * @param val the delay
+         * @return this builder instance
+         */
+        public Builder maxFlushDelay(Duration val) {
+            maxFlushDelay = requireNonNull(val, "maxFlushDelay");
+            Preconditions.checkArgument(!val.isNegative(), "max flush delay must be nonnegative");
+            return this;
+        }
+
+        public RotatingFileStreamOutput build() {
+            return new RotatingFileStreamOutput(this);
+        }
+    }
+}
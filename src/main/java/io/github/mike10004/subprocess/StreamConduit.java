@@ -33,18 +33,20 @@ class StreamConduit {
     private volatile Thread errorThread;
     private volatile Thread inputThread;
 
+    @Nullable
     private final OutputStream out;
+    @Nullable
     private final OutputStream err;
     @Nullable
     private final InputStream input;
 
     /**
      * Construct a new <code>PumpStreamHandler</code>.
-     * @param out the output <code>OutputStream</code> where process standard output content is to be directed.
-     * @param err the error <code>OutputStream</code> where process standard error content is to be directed
+     * @param out the output <code>OutputStream</code> where process standard output content is to be directed, or null if it is redirected elsewhere
+     * @param err the error <code>OutputStream</code> where process standard error content is to be directed, or null if it is redirected elsewhere
      * @param input the input <code>InputStream</code> that is to be fed to process as standard input, or null
      */
-    public StreamConduit(OutputStream out, OutputStream err, @Nullable InputStream input) {
+    public StreamConduit(@Nullable OutputStream out, @Nullable OutputStream err, @Nullable InputStream input) {
         this.out = out;
         this.err = err;
         this.input = input;
@@ -56,7 +58,9 @@ class StreamConduit {
      * @param is the <code>InputStream</code>.
      */
     private void setProcessOutputStream(InputStream is) {
-        createProcessOutputPump(is, out);
+        if (out != null) {
+            createProcessOutputPump(is, out);
+        }
     }
 
     /**
@@ -77,7 +81,7 @@ class StreamConduit {
      */
     private void setProcessInputStream(OutputStream os) {
         if (input != null) {
-            inputThread = createPump(input, os, true);
+            inputThread = createPump(input, os, true, INPUT_BUFFER_SIZE);
         } else {
             Streams.close(os);
         }
@@ -94,8 +98,12 @@ class StreamConduit {
         setProcessInputStream(stdin);
         setProcessErrorStream(stderr);
         setProcessOutputStream(stdout);
-        outputThread.start();
-        errorThread.start();
+        if (outputThread != null) {
+            outputThread.start();
+        }
+        if (errorThread != null) {
+            errorThread.start();
+        }
         if (inputThread != null) {
             inputThread.start();
         }
@@ -108,20 +116,22 @@ class StreamConduit {
     private void stop() {
         finish(inputThread);
 
-        try {
-            err.flush();
-        } catch (IOException e) {
-            // ignore
-        }
-        try {
-            out.flush();
-        } catch (IOException e) {
-            // ignore
-        }
+        flushQuietly(err);
+        flushQuietly(out);
         finish(outputThread);
         finish(errorThread);
     }
 
+    private static void flushQuietly(@Nullable OutputStream stream) {
+        if (stream != null) {
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
     private static final long JOIN_TIMEOUT = 200;
 
     /**
@@ -180,13 +190,20 @@ class StreamConduit {
 
     private static final boolean CLOSE_STDOUT_AND_STDERR_INSTREAMS_WHEN_EXHAUSTED = true;
 
+    /**
+     * Size of the buffer used to feed process standard input. This is larger than the
+     * output pump buffer so that input written in many small pieces, as with
+     * {@link InteractiveStreamInput}, is delivered to the process in few writes.
+     */
+    private static final int INPUT_BUFFER_SIZE = 8192;
+
     /**
      * Create the pump to handle process output.
      * @param is the <code>InputStream</code>.
      * @param os the <code>OutputStream</code>.
      */
     private void createProcessOutputPump(InputStream is, OutputStream os) {
-        outputThread = createPump(is, os, CLOSE_STDOUT_AND_STDERR_INSTREAMS_WHEN_EXHAUSTED);
+        outputThread = createPump(is, os, CLOSE_STDOUT_AND_STDERR_INSTREAMS_WHEN_EXHAUSTED, 0);
     }
 
     /**
@@ -195,7 +212,7 @@ class StreamConduit {
      * @param os the output stream to copy to.
      */
     private void createProcessErrorPump(InputStream is, OutputStream os) {
-        errorThread = createPump(is, os, CLOSE_STDOUT_AND_STDERR_INSTREAMS_WHEN_EXHAUSTED);
+        errorThread = createPump(is, os, CLOSE_STDOUT_AND_STDERR_INSTREAMS_WHEN_EXHAUSTED, 0);
     }
 
     /**
@@ -204,13 +221,17 @@ class StreamConduit {
      * @param is the input stream to copy from.
      * @param os the output stream to copy to.
      * @param closeWhenExhausted if true close the inputstream.
+     * @param bufferSize size of the pump buffer, or 0 for the default size
      * @return a thread object that does the pumping, subclasses
      * should return an instance of {@code PumpStreamHandler.ThreadWithPumper
      * ThreadWithPumper}.
      */
     private Thread createPump(InputStream is, OutputStream os,
-                                boolean closeWhenExhausted) {
+                                boolean closeWhenExhausted, int bufferSize) {
         BlockingStreamPumper pumper = new BlockingStreamPumper(is, os, closeWhenExhausted);
+        if (bufferSize > 0) {
+            pumper.setBufferSize(bufferSize);
+        }
         // pumper.setAutoflush(true); // always auto-flush
         final Thread result = new ThreadWithPumper(pumper);
         result.setDaemon(true);
@@ -6,6 +6,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.function.Supplier;
@@ -49,6 +50,76 @@ class StreamContexts {
         };
     }
 
+    public static UniformStreamContext<? extends StreamControl, File> outputCompressedTempFiles(Path directory, @Nullable StreamInput stdin, CompressionSettings settings) {
+        requireNonNull(settings, "settings");
+        return new FileStreamContext() {
+            @Override
+            public FileStreamControl produceControl() throws IOException {
+                String suffix = settings.format().suffix();
+                File stdoutFile = File.createTempFile("FileStreamContext_stdout", suffix, directory.toFile());
+                File stderrFile = File.createTempFile("FileStreamContext_stderr", suffix, directory.toFile());
+                return new CompressedFileStreamControl(stdoutFile, stderrFile, stdin, settings);
+            }
+        };
+    }
+
+    public static UniformStreamContext<? extends StreamControl, File> outputCompressedFiles(File stdoutFile, File stderrFile, @Nullable StreamInput stdin, CompressionSettings settings) {
+        requireNonNull(settings, "settings");
+        return new FileStreamContext() {
+            @Override
+            public FileStreamControl produceControl() {
+                return new CompressedFileStreamControl(stdoutFile, stderrFile, stdin, settings);
+            }
+        };
+    }
+
+    public static UniformStreamContext<? extends StreamControl, File> outputFiles(GroupCommitFileWriter writer, File stdoutFile, File stderrFile, @Nullable StreamInput stdin) {
+        requireNonNull(writer, "writer");
+        return new FileStreamContext() {
+            @Override
+            public FileStreamControl produceControl() {
+                return new GroupCommitFileStreamControl(writer, stdoutFile, stderrFile, stdin);
+            }
+        };
+    }
+
+    public static UniformStreamContext<? extends StreamControl, File> outputTempFiles(GroupCommitFileWriter writer, Path directory, @Nullable StreamInput stdin) {
+        requireNonNull(writer, "writer");
+        return new FileStreamContext() {
+            @Override
+            public FileStreamControl produceControl() throws IOException {
+                File stdoutFile = File.createTempFile("FileStreamContext_stdout", ".tmp", directory.toFile());
+                File stderrFile = File.createTempFile("FileStreamContext_stderr", ".tmp", directory.toFile());
+                return new GroupCommitFileStreamControl(writer, stdoutFile, stderrFile, stdin);
+            }
+        };
+    }
+
+    /**
+     * Creates a new stream context that redirects process output directly to new files
+     * in the given directory, with no threads pumping the output, and provides the captured
+     * content as memory-mapped views of the files.
+     * @param directory the directory in which capture files are created, e.g. a tmpfs mount
+     * @param stdin source of process standard input; may be null
+     * @return a new context
+     */
+    public static UniformStreamContext<? extends StreamControl, MappedFileCapture> outputMapped(Path directory, @Nullable StreamInput stdin) {
+        requireNonNull(directory, "directory");
+        return new UniformStreamContext<MappedFileStreamControl, MappedFileCapture>() {
+            @Override
+            public MappedFileStreamControl produceControl() throws IOException {
+                File stdoutFile = File.createTempFile("MappedFileCapture_stdout", ".tmp", directory.toFile());
+                File stderrFile = File.createTempFile("MappedFileCapture_stderr", ".tmp", directory.toFile());
+                return new MappedFileStreamControl(stdoutFile, stderrFile, stdin);
+            }
+
+            @Override
+            public StreamContent<MappedFileCapture, MappedFileCapture> transform(int exitCode, MappedFileStreamControl control) {
+                return StreamContent.direct(new MappedFileCapture(control.getStdoutFile()), new MappedFileCapture(control.getStderrFile()));
+            }
+        };
+    }
+
     /**
      * Creates a new stream context that ignores process output.
      * @param streamControl  the stream control to use
@@ -141,9 +212,201 @@ class StreamContexts {
         };
     }
 
+    static class CharBucketContext extends PredefinedStreamControl {
+
+        public final CharBucket stdout;
+        public final CharBucket stderr;
+
+        public CharBucketContext(Charset charset, @Nullable StreamInput stdin) {
+            this(new CharBucket(charset, 256), new CharBucket(charset, 256), stdin);
+        }
+
+        private CharBucketContext(CharBucket stdout, CharBucket stderr, @Nullable StreamInput stdin) {
+            super(stdout, stderr, stdin);
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
+    /**
+     * Creates a new stream context that captures process output as strings.
+     * Output is decoded as it is pumped, so the strings are ready when the process exits.
+     * @param charset the charset with which output is decoded
+     * @param stdin source of process standard input; may be null
+     * @return a new context
+     */
     public static UniformStreamContext<? extends StreamControl, String> strings(Charset charset, @Nullable StreamInput stdin) {
         requireNonNull(charset);
-        return byteArrays(stdin).map(bytes -> new String(bytes, charset));
+        return new UniformStreamContext<CharBucketContext, String>() {
+            @Override
+            public CharBucketContext produceControl() {
+                return new CharBucketContext(charset, stdin);
+            }
+
+            @Override
+            public StreamContent<String, String> transform(int exitCode, CharBucketContext ctx) {
+                return StreamContent.direct(ctx.stdout.dump(), ctx.stderr.dump());
+            }
+        };
+    }
+
+    static class IndexingBucketContext extends PredefinedStreamControl {
+
+        public final LineIndexedText.IndexingBucket stdout;
+        public final LineIndexedText.IndexingBucket stderr;
+
+        public IndexingBucketContext(Charset charset, @Nullable StreamInput stdin) {
+            this(new LineIndexedText.IndexingBucket(charset), new LineIndexedText.IndexingBucket(charset), stdin);
+        }
+
+        private IndexingBucketContext(LineIndexedText.IndexingBucket stdout, LineIndexedText.IndexingBucket stderr, @Nullable StreamInput stdin) {
+            super(stdout, stderr, stdin);
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
+    /**
+     * Creates a new stream context that captures process output as text indexed by line.
+     * @param charset the charset with which lines are decoded; it must encode line feed as the single byte {@code 0x0A}
+     * @param stdin source of process standard input; may be null
+     * @return a new context
+     * @throws IllegalArgumentException if the charset does not encode line feed as a single byte
+     */
+    public static UniformStreamContext<? extends StreamControl, LineIndexedText> indexedLines(Charset charset, @Nullable StreamInput stdin) {
+        requireNonNull(charset, "charset");
+        Preconditions.checkArgument(LineIndexedText.isIndexable(charset), "charset must encode line feed as single byte 0x0A: %s", charset);
+        return new UniformStreamContext<IndexingBucketContext, LineIndexedText>() {
+            @Override
+            public IndexingBucketContext produceControl() {
+                return new IndexingBucketContext(charset, stdin);
+            }
+
+            @Override
+            public StreamContent<LineIndexedText, LineIndexedText> transform(int exitCode, IndexingBucketContext ctx) {
+                return StreamContent.direct(ctx.stdout.toText(), ctx.stderr.toText());
+            }
+        };
+    }
+
+    static class MergedBucketContext extends PredefinedStreamControl {
+
+        public final ByteBucket output;
+
+        public MergedBucketContext(@Nullable StreamInput stdin) {
+            this(ByteBucket.withInitialCapacity(256), stdin);
+        }
+
+        private MergedBucketContext(ByteBucket output, @Nullable StreamInput stdin) {
+            super(output, StreamOutput.abyss(), stdin);
+            this.output = output;
+        }
+
+        @Override
+        public boolean redirectErrorStream() {
+            return true;
+        }
+    }
+
+    static class MergedCharBucketContext extends PredefinedStreamControl {
+
+        public final CharBucket output;
+
+        public MergedCharBucketContext(Charset charset, @Nullable StreamInput stdin) {
+            this(new CharBucket(charset, 256), stdin);
+        }
+
+        private MergedCharBucketContext(CharBucket output, @Nullable StreamInput stdin) {
+            super(output, StreamOutput.abyss(), stdin);
+            this.output = output;
+        }
+
+        @Override
+        public boolean redirectErrorStream() {
+            return true;
+        }
+    }
+
+    /**
+     * Creates a new stream context that merges process standard error into standard output
+     * and captures the merged output as a byte array. The operating system merges the streams,
+     * so their relative order is preserved and a single thread pumps them. The captured
+     * standard error content is always null.
+     * @param stdin source of process standard input; may be null
+     * @return a new context
+     */
+    public static StreamContext<? extends StreamControl, byte[], Void> mergedByteArrays(@Nullable StreamInput stdin) {
+        return new StreamContext<MergedBucketContext, byte[], Void>() {
+            @Override
+            public MergedBucketContext produceControl() {
+                return new MergedBucketContext(stdin);
+            }
+
+            @Override
+            public StreamContent<byte[], Void> transform(int exitCode, MergedBucketContext ctx) {
+                return StreamContent.direct(ctx.output.dump(), null);
+            }
+        };
+    }
+
+    /**
+     * Creates a new stream context that merges process standard error into standard output
+     * and captures the merged output as a string. The captured standard error content is
+     * always null.
+     * @param charset the charset with which output is decoded
+     * @param stdin source of process standard input; may be null
+     * @return a new context
+     * @see #mergedByteArrays(StreamInput)
+     */
+    public static StreamContext<? extends StreamControl, String, Void> mergedStrings(Charset charset, @Nullable StreamInput stdin) {
+        requireNonNull(charset, "charset");
+        return new StreamContext<MergedCharBucketContext, String, Void>() {
+            @Override
+            public MergedCharBucketContext produceControl() {
+                return new MergedCharBucketContext(charset, stdin);
+            }
+
+            @Override
+            public StreamContent<String, Void> transform(int exitCode, MergedCharBucketContext ctx) {
+                return StreamContent.direct(ctx.output.dump(), null);
+            }
+        };
+    }
+
+    static class InterleavingContext extends PredefinedStreamControl {
+
+        public final InterleavedOutput.Recorder recorder;
+
+        public InterleavingContext(@Nullable StreamInput stdin) {
+            this(new InterleavedOutput.Recorder(), stdin);
+        }
+
+        private InterleavingContext(InterleavedOutput.Recorder recorder, @Nullable StreamInput stdin) {
+            super(recorder.streamOutput(InterleavedOutput.Origin.STDOUT), recorder.streamOutput(InterleavedOutput.Origin.STDERR), stdin);
+            this.recorder = recorder;
+        }
+    }
+
+    /**
+     * Creates a new stream context that captures process standard output and standard error
+     * as a single sequence of chunks tagged with their stream of origin and time of receipt.
+     * The captured standard error content is always null.
+     * @param stdin source of process standard input; may be null
+     * @return a new context
+     * @see InterleavedOutput
+     */
+    public static StreamContext<? extends StreamControl, InterleavedOutput, Void> interleaved(@Nullable StreamInput stdin) {
+        return new StreamContext<InterleavingContext, InterleavedOutput, Void>() {
+            @Override
+            public InterleavingContext produceControl() {
+                return new InterleavingContext(stdin);
+            }
+
+            @Override
+            public StreamContent<InterleavedOutput, Void> transform(int exitCode, InterleavingContext ctx) {
+                return StreamContent.direct(ctx.recorder.toOutput(), null);
+            }
+        };
     }
 
     public static NonCapturingStreamContext<? extends StreamControl> inheritOutputs() {
@@ -153,15 +416,115 @@ class StreamContexts {
         return predefinedNonCapturing(PredefinedStreamControl.builder().inheritStdin().inheritStderr().inheritStdout().build());
     }
 
+    /**
+     * Creates a new stream context that decorates another, computing statistics
+     * about the process standard output and error streams as they are pumped.
+     * Output is always pumped, even if the decorated context would redirect it, for
+     * example to a file; in that case the output is written through the sinks of the
+     * decorated context instead, so that it can be measured.
+     * @param context the stream context to decorate
+     * @param digestAlgorithm the message digest algorithm, e.g. {@code SHA-256}
+     * @param <C> stream control type of the decorated context
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return the new context
+     * @throws IllegalArgumentException if the digest algorithm is not supported
+     */
+    public static <C extends StreamControl, SO, SE> StreamContext<MeasuringStreamControl<C>, Measured<SO>, Measured<SE>> measuring(StreamContext<C, SO, SE> context, String digestAlgorithm) {
+        requireNonNull(context, "context");
+        Hashing.newDigest(digestAlgorithm); // fail fast if algorithm is not supported
+        return new StreamContext<MeasuringStreamControl<C>, Measured<SO>, Measured<SE>>() {
+            @Override
+            public MeasuringStreamControl<C> produceControl() throws IOException {
+                return new MeasuringStreamControl<>(context.produceControl(), digestAlgorithm);
+            }
+
+            @Override
+            public StreamContent<Measured<SO>, Measured<SE>> transform(int exitCode, MeasuringStreamControl<C> control) {
+                StreamContent<SO, SE> content = context.transform(exitCode, control.delegate);
+                StreamStatistics stdoutStats = control.stdoutMeter.snapshot();
+                StreamStatistics stderrStats = control.stderrMeter.snapshot();
+                return content.map(stdout -> new Measured<>(stdout, stdoutStats), stderr -> new Measured<>(stderr, stderrStats));
+            }
+        };
+    }
+
+    static class MeasuringStreamControl<C extends StreamControl> implements StreamControl {
+
+        private final C delegate;
+        private final StreamMeter stdoutMeter;
+        private final StreamMeter stderrMeter;
+
+        public MeasuringStreamControl(C delegate, String digestAlgorithm) {
+            this.delegate = requireNonNull(delegate, "delegate");
+            this.stdoutMeter = new StreamMeter(digestAlgorithm);
+            this.stderrMeter = new StreamMeter(digestAlgorithm);
+        }
+
+        @Override
+        public OutputStream openStdoutSink() throws IOException {
+            return stdoutMeter.wrap(delegate.openStdoutSink());
+        }
+
+        @Override
+        public OutputStream openStderrSink() throws IOException {
+            return stderrMeter.wrap(delegate.openStderrSink());
+        }
+
+        @Nullable
+        @Override
+        public InputStream openStdinSource() throws IOException {
+            return delegate.openStdinSource();
+        }
+
+        /**
+         * Returns {@link Redirect#PIPE}, because output that bypasses the pump cannot be measured.
+         * @return the pipe redirect
+         */
+        @Override
+        public Redirect redirectOutput() {
+            return Redirect.PIPE;
+        }
+
+        /**
+         * Returns {@link Redirect#PIPE}, because output that bypasses the pump cannot be measured.
+         * @return the pipe redirect
+         */
+        @Override
+        public Redirect redirectError() {
+            return Redirect.PIPE;
+        }
+
+        @Override
+        public Redirect redirectInput() {
+            return delegate.redirectInput();
+        }
+
+        @Override
+        public boolean redirectErrorStream() {
+            return delegate.redirectErrorStream();
+        }
+    }
+
     public static class FileStreamControl implements StreamControl {
         private final File stdoutFile, stderrFile;
         @Nullable
         private final StreamInput stdin;
+        private final Redirect stdinRedirect;
 
         public FileStreamControl(File stdoutFile, File stderrFile, @Nullable StreamInput stdin) {
             this.stdoutFile = requireNonNull(stdoutFile);
             this.stderrFile = requireNonNull(stderrFile);
             this.stdin = stdin;
+            this.stdinRedirect = Streams.inputRedirect(stdin);
+        }
+
+        File getStdoutFile() {
+            return stdoutFile;
+        }
+
+        File getStderrFile() {
+            return stderrFile;
         }
 
         @Override
@@ -179,6 +542,68 @@ class StreamContexts {
         public InputStream openStdinSource() throws IOException {
             return stdin == null ? null : stdin.openStream();
         }
+
+        @Override
+        public Redirect redirectInput() {
+            return stdinRedirect;
+        }
+    }
+
+    static class CompressedFileStreamControl extends FileStreamControl {
+
+        private final CompressionSettings settings;
+
+        public CompressedFileStreamControl(File stdoutFile, File stderrFile, @Nullable StreamInput stdin, CompressionSettings settings) {
+            super(stdoutFile, stderrFile, stdin);
+            this.settings = requireNonNull(settings, "settings");
+        }
+
+        @Override
+        public OutputStream openStdoutSink() throws IOException {
+            return settings.openCompressingStream(getStdoutFile());
+        }
+
+        @Override
+        public OutputStream openStderrSink() throws IOException {
+            return settings.openCompressingStream(getStderrFile());
+        }
+    }
+
+    static class GroupCommitFileStreamControl extends FileStreamControl {
+
+        private final GroupCommitFileWriter writer;
+
+        public GroupCommitFileStreamControl(GroupCommitFileWriter writer, File stdoutFile, File stderrFile, @Nullable StreamInput stdin) {
+            super(stdoutFile, stderrFile, stdin);
+            this.writer = requireNonNull(writer, "writer");
+        }
+
+        @Override
+        public OutputStream openStdoutSink() throws IOException {
+            return writer.open(getStdoutFile());
+        }
+
+        @Override
+        public OutputStream openStderrSink() throws IOException {
+            return writer.open(getStderrFile());
+        }
+    }
+
+    static class MappedFileStreamControl extends FileStreamControl {
+
+        public MappedFileStreamControl(File stdoutFile, File stderrFile, @Nullable StreamInput stdin) {
+            super(stdoutFile, stderrFile, stdin);
+        }
+
+        @Override
+        public Redirect redirectOutput() {
+            return Redirect.to(getStdoutFile());
+        }
+
+        @Override
+        public Redirect redirectError() {
+            return Redirect.to(getStderrFile());
+        }
     }
 
     public static abstract class FileStreamContext implements UniformStreamContext<FileStreamControl, File> {
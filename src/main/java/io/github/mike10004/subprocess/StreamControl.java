@@ -4,6 +4,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
 
 /**
  * Interface that defines methods used to interact with the input and output streams
@@ -33,4 +34,48 @@ public interface StreamControl {
     @Nullable
     InputStream openStdinSource() throws IOException;
 
+    /**
+     * Gets the redirect that determines the destination of process standard output.
+     * If the redirect is anything other than {@link Redirect#PIPE}, the process
+     * output goes directly to the destination, no thread pumps it, and
+     * {@link #openStdoutSink()} is not invoked.
+     * @return the redirect; default is {@link Redirect#PIPE}
+     */
+    default Redirect redirectOutput() {
+        return Redirect.PIPE;
+    }
+
+    /**
+     * Gets the redirect that determines the destination of process standard error.
+     * If the redirect is anything other than {@link Redirect#PIPE}, the process
+     * error output goes directly to the destination, no thread pumps it, and
+     * {@link #openStderrSink()} is not invoked.
+     * @return the redirect; default is {@link Redirect#PIPE}
+     */
+    default Redirect redirectError() {
+        return Redirect.PIPE;
+    }
+
+    /**
+     * Gets the redirect that determines the source of process standard input.
+     * If the redirect is anything other than {@link Redirect#PIPE}, the process
+     * reads directly from the source, no thread pumps it, and
+     * {@link #openStdinSource()} is not invoked.
+     * @return the redirect; default is {@link Redirect#PIPE}
+     */
+    default Redirect redirectInput() {
+        return Redirect.PIPE;
+    }
+
+    /**
+     * Determines whether process standard error is merged into standard output.
+     * If true, both streams are delivered through the standard output redirect by
+     * the operating system, so a single thread pumps them, the relative order of
+     * the merged output is preserved, and {@link #openStderrSink()} is not invoked.
+     * @return true to merge standard error into standard output; default is false
+     */
+    default boolean redirectErrorStream() {
+        return false;
+    }
+
 }
@@ -3,6 +3,14 @@ package io.github.mike10004.subprocess;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Interface of a source of a byte stream.
@@ -30,8 +38,77 @@ public interface StreamInput {
         }
     }
 
+    /**
+     * Creates a stream input whose content is a file. When this is the standard input
+     * source of a process and the file exists, the process reads the file directly.
+     * @param file the file
+     * @return a new stream input
+     */
     static StreamInput fromFile(File file) {
         return new Streams.FileStreamInput(file);
     }
 
+    /**
+     * Creates a stream input whose content is a region of a file. The region is
+     * truncated at the end of the file. The region is read with positional reads
+     * directly into the buffer of the thread that feeds process standard input.
+     * @param path the file
+     * @param offset offset of the first byte of the region
+     * @param length length of the region
+     * @return a new stream input
+     */
+    static StreamInput fromFileRegion(Path path, long offset, long length) {
+        return new Streams.FileRegionStreamInput(path, offset, length);
+    }
+
+    /**
+     * Creates a stream input whose content is the concatenation of the content of other
+     * inputs. Each input is opened only when the previous one has been exhausted.
+     * @param first the first input
+     * @param others the other inputs
+     * @return a new stream input
+     */
+    static StreamInput concat(StreamInput first, StreamInput...others) {
+        List<StreamInput> sources = new ArrayList<>(1 + others.length);
+        sources.add(first);
+        sources.addAll(Arrays.asList(others));
+        return concat(sources);
+    }
+
+    /**
+     * Creates a stream input whose content is the concatenation of the content of other inputs.
+     * @param sources the inputs
+     * @return a new stream input
+     */
+    static StreamInput concat(List<StreamInput> sources) {
+        return new Streams.ConcatStreamInput(sources);
+    }
+
+    /**
+     * Creates a stream input whose content is generated lazily from lines of text.
+     * Each line is encoded and followed by a line feed as the stream is read, so
+     * the content is never held in memory all at once. Each time a stream is opened,
+     * a new iterator is obtained from the supplier; for example, pass
+     * {@code () -> records.stream().map(Record::toString).iterator()}.
+     * Unmappable characters are replaced.
+     * @param lines supplier of an iterator of lines
+     * @param charset the charset with which lines are encoded
+     * @return a new stream input
+     */
+    static StreamInput fromLines(Supplier<? extends Iterator<? extends CharSequence>> lines, Charset charset) {
+        return new Streams.LineIteratorStreamInput(lines, charset);
+    }
+
+    /**
+     * Creates a stream input whose content is the remaining bytes of each buffer
+     * supplied by an iterator. Buffers are consumed lazily as the stream is read, and
+     * their positions are not modified. Each time a stream is opened, a new iterator
+     * is obtained from the supplier.
+     * @param buffers supplier of an iterator of buffers
+     * @return a new stream input
+     */
+    static StreamInput fromBuffers(Supplier<? extends Iterator<? extends ByteBuffer>> buffers) {
+        return new Streams.BufferIteratorStreamInput(buffers);
+    }
+
 }
@@ -0,0 +1,110 @@
+package io.github.mike10004.subprocess;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Class that accumulates statistics about bytes as they are written to a stream.
+ * An instance is updated by one writer thread at a time; a snapshot may be taken
+ * from any thread.
+ */
+class StreamMeter {
+
+    private static final byte LF = '\n';
+
+    private final String digestAlgorithm;
+    private final MessageDigest digest;
+    private long byteCount;
+    private long lineFeedCount;
+    private byte lastByte;
+    private long firstByteMillis;
+    private long lastByteMillis;
+
+    public StreamMeter(String digestAlgorithm) {
+        this.digestAlgorithm = requireNonNull(digestAlgorithm, "digestAlgorithm");
+        this.digest = Hashing.newDigest(digestAlgorithm);
+    }
+
+    public synchronized void update(byte b) {
+        markTime();
+        digest.update(b);
+        if (b == LF) {
+            lineFeedCount++;
+        }
+        lastByte = b;
+        byteCount++;
+    }
+
+    public synchronized void update(byte[] b, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+        markTime();
+        digest.update(b, off, len);
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (b[i] == LF) {
+                lineFeedCount++;
+            }
+        }
+        lastByte = b[end - 1];
+        byteCount += len;
+    }
+
+    private void markTime() {
+        long now = System.currentTimeMillis();
+        if (byteCount == 0) {
+            firstByteMillis = now;
+        }
+        lastByteMillis = now;
+    }
+
+    /**
+     * Returns the statistics accumulated so far. The digest of an instance is not
+     * reset by this method, so a snapshot may be taken at any time.
+     * @return the statistics
+     */
+    public synchronized StreamStatistics snapshot() {
+        byte[] digestValue;
+        try {
+            digestValue = ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("digest does not support snapshots: " + digestAlgorithm, e);
+        }
+        long lineCount = lineFeedCount + (byteCount > 0 && lastByte != LF ? 1 : 0);
+        Instant first = byteCount == 0 ? null : Instant.ofEpochMilli(firstByteMillis);
+        Instant last = byteCount == 0 ? null : Instant.ofEpochMilli(lastByteMillis);
+        return new StreamStatistics(digestAlgorithm, digestValue, byteCount, lineCount, first, last);
+    }
+
+    /**
+     * Wraps an output stream such that bytes written to it update this meter.
+     * @param destination the destination stream
+     * @return a new stream
+     */
+    public OutputStream wrap(OutputStream destination) {
+        return new FilterOutputStream(destination) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                update((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                update(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "StreamMeter{" + digestAlgorithm + "}";
+    }
+}
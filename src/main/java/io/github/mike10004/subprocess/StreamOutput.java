@@ -22,4 +22,19 @@ public interface StreamOutput {
     static StreamOutput abyss() {
         return Streams::nullOutputStream;
     }
+
+    /**
+     * Returns a sink that fans bytes out to multiple sinks, each written on its own thread.
+     * @param first the first sink
+     * @param others the other sinks
+     * @return a sink
+     * @see TeeStreamOutput
+     */
+    static StreamOutput tee(StreamOutput first, StreamOutput...others) {
+        TeeStreamOutput.Builder b = TeeStreamOutput.builder().sink(first);
+        for (StreamOutput other : others) {
+            b.sink(other);
+        }
+        return b.build();
+    }
 }
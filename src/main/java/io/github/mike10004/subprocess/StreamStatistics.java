@@ -0,0 +1,105 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Value class that represents statistics computed from a byte stream as it was written.
+ * Instances are produced by {@link MeasuringStreamOutput} and by stream contexts created with
+ * {@link SubprocessLaunchSupport#measured(String)}.
+ * @see Measured
+ */
+public final class StreamStatistics {
+
+    private final String digestAlgorithm;
+    private final byte[] digest;
+    private final long byteCount;
+    private final long lineCount;
+    @Nullable
+    private final Instant firstByteTime;
+    @Nullable
+    private final Instant lastByteTime;
+
+    StreamStatistics(String digestAlgorithm, byte[] digest, long byteCount, long lineCount, @Nullable Instant firstByteTime, @Nullable Instant lastByteTime) {
+        this.digestAlgorithm = requireNonNull(digestAlgorithm, "digestAlgorithm");
+        this.digest = requireNonNull(digest, "digest");
+        this.byteCount = byteCount;
+        this.lineCount = lineCount;
+        this.firstByteTime = firstByteTime;
+        this.lastByteTime = lastByteTime;
+    }
+
+    /**
+     * Gets the name of the message digest algorithm used to compute the digest.
+     * @return the algorithm name
+     */
+    public String digestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * Gets a copy of the message digest of the bytes written.
+     * @return the digest
+     */
+    public byte[] digest() {
+        return Arrays.copyOf(digest, digest.length);
+    }
+
+    /**
+     * Gets the message digest of the bytes written as a lowercase hexadecimal string.
+     * @return the digest in hex
+     */
+    public String digestHex() {
+        return Hashing.toHex(digest);
+    }
+
+    /**
+     * Gets the number of bytes written.
+     * @return the byte count
+     */
+    public long byteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Gets the number of lines written. Each line feed byte terminates a line,
+     * and a trailing sequence of bytes that is not terminated by a line feed
+     * counts as one more line.
+     * @return the line count
+     */
+    public long lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets the time at which the first byte was written.
+     * @return the time, or null if no bytes were written
+     */
+    @Nullable
+    public Instant firstByteTime() {
+        return firstByteTime;
+    }
+
+    /**
+     * Gets the time at which the last byte was written.
+     * @return the time, or null if no bytes were written
+     */
+    @Nullable
+    public Instant lastByteTime() {
+        return lastByteTime;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamStatistics{" +
+                "byteCount=" + byteCount +
+                ", lineCount=" + lineCount +
+                ", " + digestAlgorithm + "=" + digestHex() +
+                ", firstByteTime=" + firstByteTime +
+                ", lastByteTime=" + lastByteTime +
+                '}';
+    }
+}
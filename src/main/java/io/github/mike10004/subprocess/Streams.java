@@ -13,6 +13,7 @@
  */
 package io.github.mike10004.subprocess;
 
+import javax.annotation.Nullable;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -20,11 +21,21 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
 
@@ -74,10 +85,7 @@ class Streams {
                 }
             };
 
-    /** Creates a new byte array for buffering reads or writes. */
-    static byte[] createBuffer() {
-        return new byte[8192];
-    }
+    private static final int BUFFER_SIZE = 8192;
 
     /**
      * There are three methods to implement {@link FileChannel#transferTo(long, long,
@@ -121,17 +129,22 @@ class Streams {
     public static long copy(InputStream from, OutputStream to) throws IOException {
         requireNonNull(from);
         requireNonNull(to);
-        byte[] buf = createBuffer();
-        long total = 0;
-        while (true) {
-            int r = from.read(buf);
-            if (r == -1) {
-                break;
+        BufferPool pool = BufferPool.shared();
+        byte[] buf = pool.acquireArray(BUFFER_SIZE);
+        try {
+            long total = 0;
+            while (true) {
+                int r = from.read(buf, 0, BUFFER_SIZE);
+                if (r == -1) {
+                    break;
+                }
+                to.write(buf, 0, r);
+                total += r;
             }
-            to.write(buf, 0, r);
-            total += r;
+            return total;
+        } finally {
+            pool.releaseArray(buf);
         }
-        return total;
     }
 
     /**
@@ -160,16 +173,21 @@ class Streams {
             return position - oldPosition;
         }
 
-        ByteBuffer buf = ByteBuffer.wrap(createBuffer());
-        long total = 0;
-        while (from.read(buf) != -1) {
-            buf.flip();
-            while (buf.hasRemaining()) {
-                total += to.write(buf);
+        BufferPool pool = BufferPool.shared();
+        ByteBuffer buf = pool.acquireDirect(BUFFER_SIZE);
+        try {
+            long total = 0;
+            while (from.read(buf) != -1) {
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    total += to.write(buf);
+                }
+                buf.clear();
             }
-            buf.clear();
+            return total;
+        } finally {
+            pool.releaseDirect(buf);
         }
-        return total;
     }
 
     /**
@@ -220,7 +238,7 @@ class Streams {
 
     final static class FileStreamInput implements StreamInput {
 
-        private final File file;
+        final File file;
 
         public FileStreamInput(File file) {
             this.file = requireNonNull(file);
@@ -282,4 +300,398 @@ class Streams {
             return String.format("MemoryStreamInput{byte[%d]}", buffer.length);
         }
     }
+
+    /**
+     * Gets the redirect for process standard input from the given source. If the source
+     * is an existing file, the process reads the file directly; otherwise, input is piped.
+     * Stream controls call this once and keep the result, because the process is started
+     * and its input is fed based on separate queries of the redirect.
+     * @param stdin the input source; may be null
+     * @return the redirect
+     */
+    static Redirect inputRedirect(@Nullable StreamInput stdin) {
+        if (stdin instanceof FileStreamInput) {
+            File file = ((FileStreamInput) stdin).file;
+            if (file.isFile()) {
+                return Redirect.from(file);
+            }
+        }
+        return Redirect.PIPE;
+    }
+
+    final static class FileRegionStreamInput implements StreamInput {
+
+        private final Path path;
+        private final long offset;
+        private final long length;
+
+        public FileRegionStreamInput(Path path, long offset, long length) {
+            this.path = requireNonNull(path, "path");
+            Preconditions.checkArgument(offset >= 0, "offset must be nonnegative");
+            Preconditions.checkArgument(length >= 0, "length must be nonnegative");
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return new FileRegionInputStream(FileChannel.open(path, StandardOpenOption.READ), offset, length);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("FileRegionStreamInput{%s[%d, +%d]}", path, offset, length);
+        }
+    }
+
+    /**
+     * Input stream that reads a region of a file channel with positional reads
+     * directly into the caller's array.
+     */
+    private static class FileRegionInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        public FileRegionInputStream(FileChannel channel, long offset, long length) throws IOException {
+            this.channel = channel;
+            this.position = offset;
+            long size = channel.size();
+            this.end = Math.min(size, offset + Math.min(length, Long.MAX_VALUE - offset));
+        }
+
+        private long remaining() {
+            return Math.max(0, end - position);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long remaining = remaining();
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.min(Math.max(0, n), remaining());
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, remaining());
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    final static class ConcatStreamInput implements StreamInput {
+
+        private final List<StreamInput> sources;
+
+        public ConcatStreamInput(List<StreamInput> sources) {
+            this.sources = Defensive.immutableCopyOf(sources);
+            this.sources.forEach(source -> requireNonNull(source, "source"));
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ConcatInputStream(sources.iterator());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ConcatStreamInput%s", sources);
+        }
+    }
+
+    /**
+     * Input stream that reads from a sequence of sources, opening each one when the previous
+     * one is exhausted.
+     */
+    private static class ConcatInputStream extends InputStream {
+
+        private final Iterator<StreamInput> sources;
+        @Nullable
+        private InputStream current;
+
+        public ConcatInputStream(Iterator<StreamInput> sources) {
+            this.sources = sources;
+        }
+
+        /**
+         * Closes the current stream and opens the next one.
+         * @return false if there are no more sources
+         */
+        private boolean advance() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (!sources.hasNext()) {
+                return false;
+            }
+            current = sources.next().openStream();
+            return true;
+        }
+
+        private boolean ensureCurrent() throws IOException {
+            return current != null || advance();
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (ensureCurrent()) {
+                int b = current.read();
+                if (b != -1) {
+                    return b;
+                }
+                advance();
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (ensureCurrent()) {
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    return n;
+                }
+                if (n == -1) {
+                    advance();
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current == null ? 0 : current.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    final static class BufferIteratorStreamInput implements StreamInput {
+
+        private final Supplier<? extends Iterator<? extends ByteBuffer>> generator;
+
+        public BufferIteratorStreamInput(Supplier<? extends Iterator<? extends ByteBuffer>> generator) {
+            this.generator = requireNonNull(generator, "generator");
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new BufferIteratorInputStream(requireNonNull(generator.get(), "iterator"));
+        }
+
+        @Override
+        public String toString() {
+            return "BufferIteratorStreamInput{}";
+        }
+    }
+
+    /**
+     * Input stream that reads the remaining bytes of each buffer supplied by an iterator.
+     * A read fills the destination array from as many buffers as fit.
+     */
+    private static class BufferIteratorInputStream extends InputStream {
+
+        private final Iterator<? extends ByteBuffer> buffers;
+        private ByteBuffer current;
+
+        public BufferIteratorInputStream(Iterator<? extends ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        private boolean advance() {
+            while (current == null || !current.hasRemaining()) {
+                if (!buffers.hasNext()) {
+                    current = null;
+                    return false;
+                }
+                current = requireNonNull(buffers.next(), "buffer").duplicate();
+            }
+            return true;
+        }
+
+        @Override
+        public int read() {
+            if (!advance()) {
+                return -1;
+            }
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int total = 0;
+            while (total < len && advance()) {
+                int n = Math.min(len - total, current.remaining());
+                current.get(b, off + total, n);
+                total += n;
+            }
+            return total == 0 ? -1 : total;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.remaining();
+        }
+    }
+
+    final static class LineIteratorStreamInput implements StreamInput {
+
+        private final Supplier<? extends Iterator<? extends CharSequence>> generator;
+        private final Charset charset;
+
+        public LineIteratorStreamInput(Supplier<? extends Iterator<? extends CharSequence>> generator, Charset charset) {
+            this.generator = requireNonNull(generator, "generator");
+            this.charset = requireNonNull(charset, "charset");
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new LineEncodingInputStream(requireNonNull(generator.get(), "iterator"), charset);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("LineIteratorStreamInput{%s}", charset);
+        }
+    }
+
+    /**
+     * Input stream that encodes lines supplied by an iterator, each followed by a line feed.
+     * Lines are encoded only as the stream is read, into a reused buffer.
+     */
+    private static class LineEncodingInputStream extends InputStream {
+
+        private static final CharBuffer LINE_FEED = CharBuffer.wrap("\n").asReadOnlyBuffer();
+
+        private final Iterator<? extends CharSequence> lines;
+        private final CharsetEncoder encoder;
+        private final ByteBuffer encoded;
+        private CharBuffer current;
+        private boolean lineFeedPending;
+        private boolean endOfInput;
+        private boolean flushed;
+
+        public LineEncodingInputStream(Iterator<? extends CharSequence> lines, Charset charset) {
+            this.lines = lines;
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encoded = ByteBuffer.allocate(BUFFER_SIZE);
+            encoded.flip();
+        }
+
+        /**
+         * Encodes characters until the buffer is full or the lines are exhausted.
+         * @return false if there are no more bytes
+         */
+        private boolean fill() {
+            if (encoded.hasRemaining()) {
+                return true;
+            }
+            if (flushed) {
+                return false;
+            }
+            encoded.clear();
+            while (encoded.hasRemaining()) {
+                if (current != null && current.hasRemaining()) {
+                    if (encoder.encode(current, encoded, false).isOverflow()) {
+                        break;
+                    }
+                    if (current.hasRemaining()) {
+                        // a line ended with an incomplete surrogate pair; encode it with the line feed so it gets replaced
+                        current = CharBuffer.wrap(current.toString() + (lineFeedPending ? "\n" : ""));
+                        lineFeedPending = false;
+                        if (encoder.encode(current, encoded, false).isOverflow()) {
+                            break;
+                        }
+                    }
+                } else if (lineFeedPending) {
+                    current = LINE_FEED.duplicate();
+                    lineFeedPending = false;
+                } else if (lines.hasNext()) {
+                    current = CharBuffer.wrap(requireNonNull(lines.next(), "line"));
+                    lineFeedPending = true;
+                } else {
+                    if (!endOfInput) {
+                        if (encoder.encode(CharBuffer.allocate(0), encoded, true).isOverflow()) {
+                            break;
+                        }
+                        endOfInput = true;
+                    }
+                    if (encoder.flush(encoded).isOverflow()) {
+                        break;
+                    }
+                    flushed = true;
+                    break;
+                }
+            }
+            encoded.flip();
+            return encoded.hasRemaining();
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return encoded.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, encoded.remaining());
+            encoded.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return encoded.remaining();
+        }
+    }
 }
@@ -4,11 +4,17 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -97,11 +103,94 @@ public class Subprocess {
      */
     private final Map<String, String> environment;
 
+    /**
+     * Flag that indicates the working directory was checked when this instance was created,
+     * so that it need not be checked again at launch.
+     */
+    private final boolean workingDirectoryChecked;
+
+    private final EnvironmentMode environmentMode;
+
+    /**
+     * Immutable set of names of variables to be removed from the base environment.
+     */
+    private final Set<String> removedEnvironment;
+
+    /**
+     * Immutable base environment with removed variables already removed, or null if
+     * the environment is inherited.
+     */
+    @Nullable
+    private final Map<String, String> baseEnvironment;
+
     protected Subprocess(String executable, @Nullable File workingDirectory, Map<String, String> environment, List<String> arguments) {
+        this(requireNonNull(executable, "executable"), workingDirectory, Defensive.immutableCopyOf(environment), Defensive.immutableCopyOf(arguments),
+                EnvironmentMode.INHERITED, Collections.emptySet(), null, false);
+    }
+
+    /**
+     * Constructs an instance without copying the environment maps, argument list, and set
+     * of removed variables, which must already be immutable.
+     */
+    Subprocess(String executable, @Nullable File workingDirectory, Map<String, String> environment, List<String> arguments,
+               EnvironmentMode environmentMode, Set<String> removedEnvironment, @Nullable Map<String, String> baseEnvironment,
+               boolean workingDirectoryChecked) {
         this.executable = requireNonNull(executable, "executable");
         this.workingDirectory = workingDirectory;
-        this.arguments = Defensive.immutableCopyOf(arguments);
-        this.environment = Defensive.immutableCopyOf(environment);
+        this.arguments = requireNonNull(arguments, "arguments");
+        this.environment = requireNonNull(environment, "environment");
+        this.environmentMode = requireNonNull(environmentMode, "environmentMode");
+        this.removedEnvironment = requireNonNull(removedEnvironment, "removedEnvironment");
+        this.baseEnvironment = baseEnvironment;
+        this.workingDirectoryChecked = workingDirectoryChecked;
+    }
+
+    /**
+     * Enumeration of environments a process may start with, before the variables
+     * set by the subprocess definition are applied.
+     */
+    public enum EnvironmentMode {
+
+        /**
+         * The environment of the JVM. Removed variables are removed at each launch.
+         */
+        INHERITED,
+
+        /**
+         * An immutable snapshot of the environment of the JVM, taken once and shared.
+         * Removed variables are removed when the subprocess is built.
+         */
+        SNAPSHOT,
+
+        /**
+         * No variables at all.
+         */
+        EMPTY
+    }
+
+    private static final class EnvironmentSnapshot {
+
+        private static final Map<String, String> INSTANCE = Collections.unmodifiableMap(new HashMap<>(System.getenv()));
+
+    }
+
+    @Nullable
+    static Map<String, String> baseEnvironment(EnvironmentMode mode, Set<String> removedEnvironment) {
+        switch (mode) {
+            case INHERITED:
+                return null;
+            case EMPTY:
+                return Collections.emptyMap();
+            case SNAPSHOT:
+                if (removedEnvironment.isEmpty()) {
+                    return EnvironmentSnapshot.INSTANCE;
+                }
+                Map<String, String> base = new HashMap<>(EnvironmentSnapshot.INSTANCE);
+                base.keySet().removeAll(removedEnvironment);
+                return Collections.unmodifiableMap(base);
+            default:
+                throw new IllegalArgumentException(String.valueOf(mode));
+        }
     }
 
     /**
@@ -117,6 +206,8 @@ public class Subprocess {
         protected File workingDirectory;
         protected final List<String> arguments;
         protected final Map<String, String> environment;
+        protected EnvironmentMode environmentMode = EnvironmentMode.INHERITED;
+        protected final Set<String> removedEnvironment;
 
         /**
          * Constructs a builder instance.
@@ -127,6 +218,7 @@ public class Subprocess {
             Preconditions.checkArgument(!executable.isEmpty(), "executable must be non-empty string");
             arguments = new ArrayList<>();
             environment = new LinkedHashMap<>();
+            removedEnvironment = new LinkedHashSet<>();
         }
         
         /**
@@ -162,6 +254,29 @@ public class Subprocess {
             return this;
         }
 
+        /**
+         * Sets the environment the process starts with, before variables set by
+         * {@link #env(String, String)} are applied. Default is
+         * {@link EnvironmentMode#INHERITED}.
+         * @param mode the mode
+         * @return this builder instance
+         */
+        public Builder env(EnvironmentMode mode) {
+            this.environmentMode = Preconditions.checkNotNull(mode);
+            return this;
+        }
+
+        /**
+         * Removes a variable from the base environment of the process to be executed.
+         * Variables set with {@link #env(String, String)} are not affected.
+         * @param name variable name
+         * @return this builder instance
+         */
+        public Builder unsetEnv(String name) {
+            removedEnvironment.add(Preconditions.checkNotNull(name, "name must be non-null"));
+            return this;
+        }
+
         /**
          * Clears this builder's environment map.
          * @return this instance
@@ -219,7 +334,9 @@ public class Subprocess {
         }
 
         public Subprocess build() {
-            return new Subprocess(executable, workingDirectory, environment, arguments);
+            Set<String> removed = Defensive.immutableCopyOf(removedEnvironment);
+            return new Subprocess(executable, workingDirectory, Defensive.immutableCopyOf(environment), Defensive.immutableCopyOf(arguments),
+                    environmentMode, removed, baseEnvironment(environmentMode, removed), false);
         }
 
     }
@@ -276,6 +393,19 @@ public class Subprocess {
         return new Builder(executable);
     }
 
+    /**
+     * Constructs a pipeline in which the standard output of each subprocess is
+     * connected to the standard input of the next.
+     * @param first the first stage
+     * @param second the second stage
+     * @param others the remaining stages
+     * @return a pipeline
+     * @see Pipeline
+     */
+    public static Pipeline pipe(Subprocess first, Subprocess second, Subprocess... others) {
+        return Pipeline.of(first, second, others);
+    }
+
     /**
      * Gets the executable to be executed.
      * @return the executable
@@ -314,6 +444,104 @@ public class Subprocess {
         return environment;
     }
 
+    /**
+     * Gets the mode that determines the environment the process starts with.
+     * @return the environment mode
+     */
+    public EnvironmentMode environmentMode() {
+        return environmentMode;
+    }
+
+    /**
+     * Gets the immutable set of names of variables removed from the base environment.
+     * @return the removed variable names
+     */
+    public Set<String> removedEnvironment() {
+        return removedEnvironment;
+    }
+
+    /**
+     * Gets the immutable base environment, from which removed variables have already
+     * been removed, or null if the environment is inherited.
+     * @return the base environment
+     */
+    @Nullable
+    Map<String, String> baseEnvironment() {
+        return baseEnvironment;
+    }
+
+    /**
+     * Computes the environment the process starts with: the base environment, or the
+     * environment of the JVM with removed variables removed, plus the variables set
+     * by this subprocess.
+     * @return a new mutable map
+     */
+    Map<String, String> effectiveEnvironment() {
+        Map<String, String> effective = new HashMap<>(baseEnvironment == null ? System.getenv() : baseEnvironment);
+        if (baseEnvironment == null) {
+            effective.keySet().removeAll(removedEnvironment);
+        }
+        effective.putAll(environment);
+        return effective;
+    }
+
+    /**
+     * Gets the command line, including executable and arguments. The list is an
+     * unmodifiable view, so obtaining it does not copy the arguments.
+     * @return the command line
+     */
+    List<String> commandLine() {
+        return new CommandLine(executable, arguments);
+    }
+
+    /**
+     * Creates a copy of this instance with a different executable and with the working
+     * directory marked as checked.
+     * @param executable the executable
+     * @return a new instance
+     */
+    Subprocess withCheckedExecutable(String executable) {
+        return new Subprocess(executable, workingDirectory, environment, arguments, environmentMode, removedEnvironment, baseEnvironment, true);
+    }
+
+    /**
+     * Creates a copy of this instance with a different argument list.
+     * @param arguments the immutable argument list
+     * @return a new instance
+     */
+    Subprocess withArguments(List<String> arguments) {
+        return new Subprocess(executable, workingDirectory, environment, arguments, environmentMode, removedEnvironment, baseEnvironment, workingDirectoryChecked);
+    }
+
+    /**
+     * Checks whether the working directory was checked when this instance was created.
+     * @return true if the working directory need not be checked at launch
+     */
+    boolean isWorkingDirectoryChecked() {
+        return workingDirectoryChecked;
+    }
+
+    private static final class CommandLine extends AbstractList<String> implements RandomAccess {
+
+        private final String executable;
+        private final List<String> arguments;
+
+        private CommandLine(String executable, List<String> arguments) {
+            this.executable = executable;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public String get(int index) {
+            return index == 0 ? executable : arguments.get(index - 1);
+        }
+
+        @Override
+        public int size() {
+            return 1 + arguments.size();
+        }
+    }
+
     @Override
     public String toString() {
         return "Subprocess{" +
@@ -321,6 +549,8 @@ public class Subprocess {
                 ", arguments=" + StringUtils.abbreviateMiddle(String.valueOf(arguments), "...", 64) +
                 ", workingDirectory=" + workingDirectory +
                 ", environment=" + StringUtils.abbreviateMiddle(String.valueOf(environment), "...", 64) +
+                ", environmentMode=" + environmentMode +
+                (removedEnvironment.isEmpty() ? "" : ", removedEnvironment=" + removedEnvironment) +
                 '}';
     }
 
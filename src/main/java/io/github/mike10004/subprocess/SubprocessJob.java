@@ -0,0 +1,68 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Value class that pairs a subprocess with the stream context in which it is to be
+ * launched, for submission to {@link SubprocessLauncher#launchAll(Iterable, BatchOptions)}.
+ * A job created by {@link SubprocessLaunchSupport#job()} is also bound to a launcher,
+ * which is used instead of the launcher to which the job is submitted.
+ * @param <SO> type of captured standard output content
+ * @param <SE> type of captured standard error content
+ */
+public final class SubprocessJob<SO, SE> {
+
+    private final Subprocess subprocess;
+    private final StreamContext<?, SO, SE> streamContext;
+    @Nullable
+    private final SubprocessLauncher launcher;
+
+    private SubprocessJob(Subprocess subprocess, StreamContext<?, SO, SE> streamContext, @Nullable SubprocessLauncher launcher) {
+        this.subprocess = requireNonNull(subprocess, "subprocess");
+        this.streamContext = requireNonNull(streamContext, "streamContext");
+        this.launcher = launcher;
+    }
+
+    /**
+     * Creates a job.
+     * @param subprocess the subprocess
+     * @param streamContext the stream context
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return a new job
+     */
+    public static <SO, SE> SubprocessJob<SO, SE> of(Subprocess subprocess, StreamContext<?, SO, SE> streamContext) {
+        return new SubprocessJob<>(subprocess, streamContext, null);
+    }
+
+    static <SO, SE> SubprocessJob<SO, SE> bound(Subprocess subprocess, StreamContext<?, SO, SE> streamContext, SubprocessLauncher launcher) {
+        return new SubprocessJob<>(subprocess, streamContext, requireNonNull(launcher, "launcher"));
+    }
+
+    /**
+     * Gets the subprocess.
+     * @return the subprocess
+     */
+    public Subprocess subprocess() {
+        return subprocess;
+    }
+
+    /**
+     * Gets the stream context.
+     * @return the stream context
+     */
+    public StreamContext<?, SO, SE> streamContext() {
+        return streamContext;
+    }
+
+    ProcessMonitor<SO, SE> launch(SubprocessLauncher defaultLauncher) {
+        return (launcher == null ? defaultLauncher : launcher).launch(subprocess, streamContext);
+    }
+
+    @Override
+    public String toString() {
+        return "SubprocessJob{subprocess=" + subprocess + "}";
+    }
+}
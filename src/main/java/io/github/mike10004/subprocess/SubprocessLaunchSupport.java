@@ -33,6 +33,15 @@ public class SubprocessLaunchSupport<SO, SE> {
         return launcher.launch(subprocess, streamContext);
     }
 
+    /**
+     * Creates a job that launches the subprocess in this instance's stream context with
+     * this instance's launcher, for submission to a batch or a {@link ParallelMap}.
+     * @return a new job
+     */
+    public SubprocessJob<SO, SE> job() {
+        return SubprocessJob.bound(subprocess, streamContext, launcher);
+    }
+
     /**
      * Return a new uniform launcher that uses the given stream context.
      * @param streamContext the stream context of the new launcher
@@ -76,6 +85,31 @@ public class SubprocessLaunchSupport<SO, SE> {
         return output(streamContext.map(stdoutMap, stderrMap));
     }
 
+    /**
+     * Returns a new launcher that computes a SHA-256 digest, byte count, line count,
+     * and timestamps of the process standard output and error streams as they are
+     * captured by this launcher's stream context.
+     * @return a new launch support instance
+     * @see #measured(String)
+     */
+    public SubprocessLaunchSupport<Measured<SO>, Measured<SE>> measured() {
+        return measured("SHA-256");
+    }
+
+    /**
+     * Returns a new launcher that computes a message digest, byte count, line count,
+     * and timestamps of the process standard output and error streams as they are
+     * captured by this launcher's stream context. The statistics are computed as the
+     * bytes are pumped from the process, so there is no need to read the captured
+     * content again afterwards.
+     * @param digestAlgorithm message digest algorithm name, e.g. {@code SHA-256}
+     * @return a new launch support instance
+     * @throws IllegalArgumentException if the digest algorithm is not supported
+     */
+    public SubprocessLaunchSupport<Measured<SO>, Measured<SE>> measured(String digestAlgorithm) {
+        return output(StreamContexts.measuring(streamContext, digestAlgorithm));
+    }
+
     /**
      * Returns a new launcher that captures the content of process standard output
      * and error streams in memory as strings.
@@ -106,6 +140,30 @@ public class SubprocessLaunchSupport<SO, SE> {
         return output(StreamContexts.strings(charset, stdin));
     }
 
+    /**
+     * Returns a new launcher that captures the content of process standard output and error
+     * as text indexed by line. The line index is built as output is pumped, and lines are
+     * decoded only when accessed.
+     * @param charset encoding of bytes on the process standard output and error streams;
+     *                must encode line feed as the single byte {@code 0x0A}, as UTF-8 and ASCII do
+     * @return a new launch support instance
+     * @see #outputIndexedLines(Charset, StreamInput)
+     */
+    public UniformSubprocessLaunchSupport<LineIndexedText> outputIndexedLines(Charset charset) {
+        return outputIndexedLines(charset, null);
+    }
+
+    /**
+     * Returns a new launcher that captures the content of process standard output and error
+     * as text indexed by line.
+     * @param charset encoding of bytes on the process standard output and error streams
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<LineIndexedText> outputIndexedLines(Charset charset, @Nullable StreamInput stdin) {
+        return output(StreamContexts.indexedLines(charset, stdin));
+    }
+
     /**
      * Returns a new launcher that captures the content of the process standard
      * output and error streams in memory as byte arrays.
@@ -126,6 +184,60 @@ public class SubprocessLaunchSupport<SO, SE> {
         return output(m);
     }
 
+    /**
+     * Returns a new launcher that merges process standard error into standard output and
+     * captures the merged output as a string. The operating system merges the streams, so
+     * their relative order is preserved and only one thread pumps process output.
+     * @param charset encoding of bytes on the process standard output and error streams
+     * @return a new launch support instance
+     * @see #outputMerged(Charset, StreamInput)
+     */
+    public SubprocessLaunchSupport<String, Void> outputMerged(Charset charset) {
+        return outputMerged(charset, null);
+    }
+
+    /**
+     * Returns a new launcher that merges process standard error into standard output and
+     * captures the merged output as a string.
+     * @param charset encoding of bytes on the process standard output and error streams
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public SubprocessLaunchSupport<String, Void> outputMerged(Charset charset, @Nullable StreamInput stdin) {
+        return output(StreamContexts.mergedStrings(charset, stdin));
+    }
+
+    /**
+     * Returns a new launcher that merges process standard error into standard output and
+     * captures the merged output as a byte array.
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public SubprocessLaunchSupport<byte[], Void> outputMergedInMemory(@Nullable StreamInput stdin) {
+        return output(StreamContexts.mergedByteArrays(stdin));
+    }
+
+    /**
+     * Returns a new launcher that captures process standard output and standard error as
+     * a single sequence of chunks, each tagged with its stream of origin and time of receipt.
+     * @return a new launch support instance
+     * @see #outputInterleaved(StreamInput)
+     */
+    public SubprocessLaunchSupport<InterleavedOutput, Void> outputInterleaved() {
+        return outputInterleaved(null);
+    }
+
+    /**
+     * Returns a new launcher that captures process standard output and standard error as
+     * a single sequence of chunks, each tagged with its stream of origin and time of receipt.
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     * @see InterleavedOutput
+     */
+    public SubprocessLaunchSupport<InterleavedOutput, Void> outputInterleaved(@Nullable StreamInput stdin) {
+        return output(StreamContexts.interleaved(stdin));
+    }
+
     /**
      * Returns a new launcher that pipes process output to the JVM standard output and errors streams and
      * pipes input from the JVM standard input stream to the process standard input stream.
@@ -190,6 +302,119 @@ public class SubprocessLaunchSupport<SO, SE> {
         return output(StreamContexts.outputTempFiles(directory, stdin));
     }
 
+    /**
+     * Returns a new launcher that captures the process standard output and error content
+     * in files written by a shared group commit writer. This is preferable to
+     * {@link #outputFiles(File, File, StreamInput)} when many processes write output concurrently.
+     * @param writer the writer that performs file writes
+     * @param stdoutFile the file to which standard output content is to be written
+     * @param stderrFile the file to which standard error content is to be written
+     * @return a new launch support instance
+     * @see #outputFiles(GroupCommitFileWriter, File, File, StreamInput)
+     */
+    public UniformSubprocessLaunchSupport<File> outputFiles(GroupCommitFileWriter writer, File stdoutFile, File stderrFile) {
+        return outputFiles(writer, stdoutFile, stderrFile, null);
+    }
+
+    /**
+     * Returns a new launcher that captures the process standard output and error content
+     * in files written by a shared group commit writer.
+     * @param writer the writer that performs file writes
+     * @param stdoutFile the file to which standard output content is to be written
+     * @param stderrFile the file to which standard error content is to be written
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<File> outputFiles(GroupCommitFileWriter writer, File stdoutFile, File stderrFile, @Nullable StreamInput stdin) {
+        return output(StreamContexts.outputFiles(writer, stdoutFile, stderrFile, stdin));
+    }
+
+    /**
+     * Returns a new launcher that captures the process standard output and error content
+     * in new, uniquely-named files created in the given directory and written by a shared
+     * group commit writer.
+     * @param writer the writer that performs file writes
+     * @param directory pathname of a existing directory in which files are to be created
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<File> outputTempFiles(GroupCommitFileWriter writer, Path directory, @Nullable StreamInput stdin) {
+        return output(StreamContexts.outputTempFiles(writer, directory, stdin));
+    }
+
+    /**
+     * Returns a new launcher that redirects the process standard output and error streams
+     * directly to files in the {@link MappedFileCapture#defaultDirectory() default directory}
+     * and provides the content as memory-mapped views. Close the captures to delete the files.
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<MappedFileCapture> outputMapped() {
+        return outputMapped(MappedFileCapture.defaultDirectory(), null);
+    }
+
+    /**
+     * Returns a new launcher that redirects the process standard output and error streams
+     * directly to new files in the given directory and provides the content as memory-mapped views.
+     * No threads pump the output. Close the captures to delete the files.
+     * @param directory pathname of an existing directory in which files are to be created, e.g. a tmpfs mount
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<MappedFileCapture> outputMapped(Path directory, @Nullable StreamInput stdin) {
+        return output(StreamContexts.outputMapped(directory, stdin));
+    }
+
+    /**
+     * Returns a new launcher that compresses the process standard output and error content
+     * into files as it is captured. Compression is performed on threads separate from the
+     * threads that read the process output. Use {@link CompressionFormat#decompressing(File)}
+     * to read the captured content.
+     * @param stdoutFile the file to which compressed standard output content is to be written
+     * @param stderrFile the file to which compressed standard error content is to be written
+     * @param settings compression settings
+     * @return a new launch support instance
+     * @see #outputCompressedFiles(File, File, CompressionSettings, StreamInput)
+     */
+    public UniformSubprocessLaunchSupport<File> outputCompressedFiles(File stdoutFile, File stderrFile, CompressionSettings settings) {
+        return outputCompressedFiles(stdoutFile, stderrFile, settings, null);
+    }
+
+    /**
+     * Returns a new launcher that compresses the process standard output and error content
+     * into files as it is captured.
+     * @param stdoutFile the file to which compressed standard output content is to be written
+     * @param stderrFile the file to which compressed standard error content is to be written
+     * @param settings compression settings
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<File> outputCompressedFiles(File stdoutFile, File stderrFile, CompressionSettings settings, @Nullable StreamInput stdin) {
+        return output(StreamContexts.outputCompressedFiles(stdoutFile, stderrFile, stdin, settings));
+    }
+
+    /**
+     * Returns a new launcher that compresses the process standard output and error content
+     * into new, uniquely-named files created in the given directory.
+     * @param directory pathname of a existing directory in which files are to be created
+     * @param settings compression settings
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<File> outputCompressedTempFiles(Path directory, CompressionSettings settings) {
+        return outputCompressedTempFiles(directory, settings, null);
+    }
+
+    /**
+     * Returns a new launcher that compresses the process standard output and error content
+     * into new, uniquely-named files created in the given directory.
+     * @param directory pathname of a existing directory in which files are to be created
+     * @param settings compression settings
+     * @param stdin source providing bytes to be written on process standard input stream; may be null
+     * @return a new launch support instance
+     */
+    public UniformSubprocessLaunchSupport<File> outputCompressedTempFiles(Path directory, CompressionSettings settings, @Nullable StreamInput stdin) {
+        return output(StreamContexts.outputCompressedTempFiles(directory, stdin, settings));
+    }
+
     /**
      * Returns a new launcher that consumes process output on threads started by an executor service.
      * @param tailThreadExecutorService the executor service that is to start the threads
@@ -1,5 +1,7 @@
 package io.github.mike10004.subprocess;
 
+import java.util.stream.Stream;
+
 /**
  * Interface of a service that launches subprocesses.
  * Instead of using implementations of this interface directly, you can invoke
@@ -29,4 +31,32 @@ public interface SubprocessLauncher {
      */
     <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> launch(Subprocess subprocess, StreamContext<C, SO, SE> streamContext) throws SubprocessException;
 
+    /**
+     * Launches a batch of jobs, running no more of them concurrently than the
+     * concurrency limit of the options. Jobs are launched in iteration order;
+     * the next job is taken from the iterable only when a running job completes.
+     * @param jobs the jobs
+     * @param options the batch options
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return a monitor of the batch
+     */
+    default <SO, SE> BatchMonitor<SO, SE> launchAll(Iterable<? extends SubprocessJob<SO, SE>> jobs, BatchOptions options) {
+        return new BatchLaunchControl<SO, SE>(this, jobs.iterator(), options).start();
+    }
+
+    /**
+     * Launches a stream of jobs, running no more of them concurrently than the
+     * concurrency limit of the options.
+     * @param jobs the jobs
+     * @param options the batch options
+     * @param <SO> type of captured standard output content
+     * @param <SE> type of captured standard error content
+     * @return a monitor of the batch
+     * @see #launchAll(Iterable, BatchOptions)
+     */
+    default <SO, SE> BatchMonitor<SO, SE> launchAll(Stream<? extends SubprocessJob<SO, SE>> jobs, BatchOptions options) {
+        return new BatchLaunchControl<SO, SE>(this, jobs.iterator(), options).start();
+    }
+
 }
@@ -0,0 +1,337 @@
+package io.github.mike10004.subprocess;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable, reusable definition of a subprocess from which many similar subprocesses
+ * may be produced cheaply. The template's working directory is checked once, when the
+ * template is created, and the argument list and environments are shared by every
+ * subprocess produced by the template. Overriding a few argument slots or environment
+ * variables costs time proportional to the number of overrides, not to the length
+ * of the command line or size of the environment.
+ *
+ * <pre>
+ * {@code
+ *     SubprocessTemplate template = SubprocessTemplate.of(Subprocess.running("convert")
+ *             .args("input.png", "-resize", "50%", "output.png")
+ *             .build());
+ *     for (String name : names) {
+ *         template.overrides()
+ *                 .arg(0, name + ".png")
+ *                 .arg(3, name + "-small.png")
+ *                 .build()
+ *                 .launcher(tracker)
+ *                 .launch();
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>Because the working directory is not checked again, a subprocess produced by a
+ * template whose working directory is removed after the template was created fails
+ * when launched with the operating system's error rather than with a
+ * {@link SubprocessLaunchException} that describes the problem.</p>
+ */
+public final class SubprocessTemplate {
+
+    private static final int[] NO_SLOTS = {};
+    private static final String[] NO_VALUES = {};
+
+    private final String executable;
+    @Nullable
+    private final File workingDirectory;
+    private final String[] arguments;
+    private final Map<String, String> environment;
+    private final Subprocess.EnvironmentMode environmentMode;
+    private final Set<String> removedEnvironment;
+    @Nullable
+    private final Map<String, String> baseEnvironment;
+    private final Subprocess prototype;
+
+    private SubprocessTemplate(Subprocess subprocess) {
+        executable = subprocess.executable();
+        workingDirectory = subprocess.workingDirectory();
+        arguments = subprocess.arguments().toArray(new String[0]);
+        environment = subprocess.environment();
+        environmentMode = subprocess.environmentMode();
+        removedEnvironment = subprocess.removedEnvironment();
+        baseEnvironment = subprocess.baseEnvironment();
+        prototype = create(new ArgumentList(arguments, NO_SLOTS, NO_VALUES), environment);
+    }
+
+    private Subprocess create(List<String> args, Map<String, String> env) {
+        return new Subprocess(executable, workingDirectory, env, args, environmentMode, removedEnvironment, baseEnvironment, true);
+    }
+
+    /**
+     * Creates a template from a subprocess definition.
+     * @param subprocess the subprocess
+     * @return a new template
+     * @throws SubprocessLaunchException if the working directory of the subprocess is not a directory
+     */
+    public static SubprocessTemplate of(Subprocess subprocess) {
+        requireNonNull(subprocess, "subprocess");
+        File workingDirectory = subprocess.workingDirectory();
+        if (!ProcessMissionControl.checkWorkingDirectory(workingDirectory)) {
+            throw new ProcessMissionControl.InvalidWorkingDirectoryException(workingDirectory);
+        }
+        return new SubprocessTemplate(subprocess);
+    }
+
+    /**
+     * Gets the subprocess defined by this template, without overrides.
+     * @return the subprocess
+     */
+    public Subprocess build() {
+        return prototype;
+    }
+
+    /**
+     * Creates a new builder of overrides to apply to this template.
+     * @return a new overrides builder
+     */
+    public Overrides overrides() {
+        return new Overrides();
+    }
+
+    /**
+     * Produces a subprocess that has one argument replaced.
+     * @param index index of the argument in the argument list (which does not include the executable)
+     * @param value the replacement argument
+     * @return a subprocess
+     */
+    public Subprocess withArg(int index, String value) {
+        return overrides().arg(index, value).build();
+    }
+
+    /**
+     * Produces a subprocess that has one environment variable set, in addition to those of the template.
+     * @param name the variable name
+     * @param value the variable value
+     * @return a subprocess
+     */
+    public Subprocess withEnv(String name, String value) {
+        return overrides().env(name, value).build();
+    }
+
+    /**
+     * Gets the number of arguments, which is the number of argument slots that may be overridden.
+     * @return the argument count
+     */
+    public int argumentCount() {
+        return arguments.length;
+    }
+
+    @Override
+    public String toString() {
+        return "SubprocessTemplate{" + prototype + "}";
+    }
+
+    /**
+     * Builder of a subprocess produced from a template with some arguments
+     * or environment variables overridden.
+     */
+    @NotThreadSafe
+    public final class Overrides {
+
+        private int[] slots = NO_SLOTS;
+        private String[] values = NO_VALUES;
+        private int count;
+        @Nullable
+        private Map<String, String> env;
+
+        private Overrides() {
+        }
+
+        /**
+         * Replaces an argument.
+         * @param index index of the argument in the argument list (which does not include the executable)
+         * @param value the replacement argument
+         * @return this builder instance
+         * @throws IndexOutOfBoundsException if the index is not the index of an argument of the template
+         */
+        public Overrides arg(int index, String value) {
+            requireNonNull(value, "value");
+            if (index < 0 || index >= arguments.length) {
+                throw new IndexOutOfBoundsException("index " + index + " out of range for " + arguments.length + " arguments");
+            }
+            for (int i = 0; i < count; i++) {
+                if (slots[i] == index) {
+                    values[i] = value;
+                    return this;
+                }
+            }
+            if (count == slots.length) {
+                int capacity = Math.max(4, count * 2);
+                slots = Arrays.copyOf(slots, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            slots[count] = index;
+            values[count] = value;
+            count++;
+            return this;
+        }
+
+        /**
+         * Sets an environment variable, in addition to or replacing those of the template.
+         * @param name the variable name
+         * @param value the variable value
+         * @return this builder instance
+         */
+        public Overrides env(String name, String value) {
+            requireNonNull(name, "name");
+            requireNonNull(value, "value");
+            if (env == null) {
+                env = new LinkedHashMap<>();
+            }
+            env.put(name, value);
+            return this;
+        }
+
+        /**
+         * Builds a subprocess.
+         * @return a new subprocess
+         */
+        public Subprocess build() {
+            if (count == 0 && env == null) {
+                return prototype;
+            }
+            List<String> args = count == 0
+                    ? prototype.arguments()
+                    : new ArgumentList(arguments, Arrays.copyOf(slots, count), Arrays.copyOf(values, count));
+            Map<String, String> environmentView = env == null
+                    ? environment
+                    : new OverlayMap(environment, new LinkedHashMap<>(env));
+            return create(args, environmentView);
+        }
+    }
+
+    /**
+     * Unmodifiable list of the template's arguments with some slots replaced.
+     */
+    private static final class ArgumentList extends AbstractList<String> implements RandomAccess {
+
+        private final String[] base;
+        private final int[] slots;
+        private final String[] values;
+
+        private ArgumentList(String[] base, int[] slots, String[] values) {
+            this.base = base;
+            this.slots = slots;
+            this.values = values;
+        }
+
+        @Override
+        public String get(int index) {
+            String value = base[index];
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == index) {
+                    value = values[i];
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public int size() {
+            return base.length;
+        }
+    }
+
+    /**
+     * Unmodifiable map of the template's environment with some variables added or replaced.
+     */
+    private static final class OverlayMap extends AbstractMap<String, String> {
+
+        private final Map<String, String> base;
+        private final Map<String, String> overlay;
+        private final int size;
+
+        private OverlayMap(Map<String, String> base, Map<String, String> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+            this.size = base.size() + (int) overlay.keySet().stream().filter(name -> !base.containsKey(name)).count();
+        }
+
+        @Override
+        public String get(Object key) {
+            String value = overlay.get(key);
+            return value != null ? value : base.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return overlay.containsKey(key) || base.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new OverlayIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        private final class OverlayIterator implements Iterator<Entry<String, String>> {
+
+            private final Iterator<String> baseNames = base.keySet().iterator();
+            private final Iterator<Entry<String, String>> overlayEntries = overlay.entrySet().iterator();
+            @Nullable
+            private Entry<String, String> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (baseNames.hasNext()) {
+                        String name = baseNames.next();
+                        next = new SimpleImmutableEntry<>(name, get(name));
+                    } else if (overlayEntries.hasNext()) {
+                        Entry<String, String> entry = overlayEntries.next();
+                        if (!base.containsKey(entry.getKey())) {
+                            next = new SimpleImmutableEntry<>(entry);
+                        }
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<String, String> entry = next;
+                next = null;
+                return entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package io.github.mike10004.subprocess;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stream output that fans bytes out to multiple sinks. Each sink is written by its own
+ * thread from its own bounded queue, so a slow sink does not stall the other sinks or the
+ * pump that reads from the process. Each chunk written to the tee is copied once
+ * and the same array is shared by all sinks.
+ *
+ * <p>Closing a stream opened by this instance waits for every sink to receive all
+ * queued bytes, closes the sinks, and rethrows the first exception thrown by any sink.
+ * An exception thrown by one sink does not interrupt delivery to the other sinks.
+ */
+public class TeeStreamOutput implements StreamOutput {
+
+    /**
+     * Enumeration of policies that determine what happens when a sink's queue is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Block the writer until there is room in the queue. No bytes are lost, but
+         * a sink that falls far enough behind eventually stalls the writer.
+         */
+        BLOCK,
+
+        /**
+         * Discard chunks destined for a sink whose queue is full. The writer is never
+         * stalled, but a slow sink may miss some bytes.
+         */
+        DISCARD
+    }
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final List<StreamOutput> sinks;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final ThreadFactory threadFactory;
+
+    private TeeStreamOutput(Builder builder) {
+        sinks = Defensive.immutableCopyOf(builder.sinks);
+        Preconditions.checkArgument(!sinks.isEmpty(), "at least one sink is required");
+        queueCapacity = builder.queueCapacity;
+        overflowPolicy = builder.overflowPolicy;
+        threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("tee-sink-%d")
+                .setDaemon(true)
+                .build();
+    }
+
+    /**
+     * Creates a new builder of tee instances.
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+        List<AsyncOutputStream> branches = new ArrayList<>(sinks.size());
+        try {
+            for (StreamOutput sink : sinks) {
+                OutputStream sinkStream = sink.openStream();
+                branches.add(new AsyncOutputStream(sinkStream, queueCapacity, overflowPolicy == OverflowPolicy.DISCARD, threadFactory));
+            }
+        } catch (IOException | RuntimeException e) {
+            branches.forEach(Streams::close);
+            throw e;
+        }
+        return new TeeOutputStream(branches);
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+
+        private final List<AsyncOutputStream> branches;
+
+        private TeeOutputStream(List<AsyncOutputStream> branches) {
+            this.branches = branches;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len <= 0) {
+                return;
+            }
+            byte[] chunk = Arrays.copyOfRange(b, off, off + len);
+            for (AsyncOutputStream branch : branches) {
+                branch.enqueue(chunk);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (AsyncOutputStream branch : branches) {
+                try {
+                    branch.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TeeStreamOutput{" +
+                "sinks=" + sinks +
+                ", queueCapacity=" + queueCapacity +
+                ", overflowPolicy=" + overflowPolicy +
+                '}';
+    }
+
+    /**
+     * Builder of tee instances. By default, each sink's queue holds up to 1024 chunks
+     * and writers block when a queue is full.
+     */
+    public static final class Builder {
+
+        private final List<StreamOutput> sinks = new ArrayList<>();
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a sink.
+         * @param sink the sink
+         * @return this builder instance
+         */
+        public Builder sink(StreamOutput sink) {
+            sinks.add(requireNonNull(sink, "sink"));
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of chunks that may be pending for each sink.
+         * @param val the capacity
+         * @return this builder instance
+         */
+        public Builder queueCapacity(int val) {
+            Preconditions.checkArgument(val > 0, "queue capacity must be positive");
+            queueCapacity = val;
+            return this;
+        }
+
+        /**
+         * Sets the policy that determines what happens when a sink's queue is full.
+         * @param val the policy
+         * @return this builder instance
+         */
+        public Builder overflowPolicy(OverflowPolicy val) {
+            overflowPolicy = requireNonNull(val, "overflowPolicy");
+            return this;
+        }
+
+        public TeeStreamOutput build() {
+            return new TeeStreamOutput(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArgumentBatcherTest extends SubprocessTestBase {
+
+    public ArgumentBatcherTest(int trial) {
+        super(trial);
+    }
+
+    private static List<String> numbers(int count) {
+        return IntStream.range(0, count).mapToObj(i -> String.format("arg%04d", i)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void split_packsGreedilyInOrder() {
+        Subprocess base = Subprocess.running("echo").arg("-n").build();
+        ArgumentBatcher unlimited = ArgumentBatcher.builder().argMax(Long.MAX_VALUE).build();
+        List<String> arguments = numbers(1000);
+        assertEquals("one batch when unlimited", 1, unlimited.split(base, arguments).size());
+        List<Subprocess> batches = ArgumentBatcher.builder()
+                .argMax(Long.MAX_VALUE)
+                .maxArgumentsPerBatch(300)
+                .build()
+                .split(base, arguments);
+        assertEquals("batch count", 4, batches.size());
+        List<String> rejoined = new ArrayList<>();
+        for (Subprocess batch : batches) {
+            assertEquals("base argument", "-n", batch.arguments().get(0));
+            rejoined.addAll(batch.arguments().subList(1, batch.arguments().size()));
+        }
+        assertEquals("arguments", arguments, rejoined);
+    }
+
+    @Test
+    public void split_respectsArgMax() {
+        Subprocess base = Subprocess.running("echo").env(Subprocess.EnvironmentMode.EMPTY).build();
+        List<String> arguments = numbers(1000);
+        long argMax = 4096 + 2048;
+        List<Subprocess> batches = ArgumentBatcher.builder().argMax(argMax).build().split(base, arguments);
+        assertTrue("more than one batch", batches.size() > 1);
+        int total = 0;
+        for (Subprocess batch : batches) {
+            long size = batch.arguments().stream().mapToLong(a -> a.length() + 1 + 8).sum();
+            assertTrue("batch fits", size <= argMax - 2048);
+            total += batch.arguments().size();
+        }
+        assertEquals("all arguments", arguments.size(), total);
+        // the last batch aside, adding the next argument would have exceeded the limit
+        long firstSize = 2048 + "echo".length() + 1 + 8 + 16 + batches.get(0).arguments().stream().mapToLong(a -> a.length() + 1 + 8).sum();
+        assertTrue("maximally packed", firstSize + "arg0000".length() + 1 + 8 > argMax);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void split_argumentTooLong() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            b.append("xxxxxxxxxx");
+        }
+        ArgumentBatcher.builder().argMax(2048 + 512).build()
+                .split(Subprocess.running("echo").env(Subprocess.EnvironmentMode.EMPTY).build(), Collections.singletonList(b.toString()));
+    }
+
+    @Test
+    public void launch() throws Exception {
+        List<String> arguments = numbers(100);
+        BatchedProcessResult<String, String> result = ArgumentBatcher.builder()
+                .maxArgumentsPerBatch(7)
+                .parallelism(3)
+                .build()
+                .launch(new BasicSubprocessLauncher(TRACKER), Tests.runningPythonFile(Tests.pyEcho()).build(),
+                        arguments, StreamContexts.strings(US_ASCII, null))
+                .get();
+        assertEquals("batches", 15, result.batches().size());
+        assertEquals("exit code", 0, result.exitCode());
+        String stdout = result.combine((a, b) -> a + " " + b, String::concat).content().stdout();
+        assertEquals("stdout", String.join(" ", arguments), stdout);
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchLaunchTest extends SubprocessTestBase {
+
+    public BatchLaunchTest(int trial) {
+        super(trial);
+    }
+
+    /**
+     * Launcher that records the greatest number of processes active at any launch.
+     */
+    private static class PeakLauncher implements SubprocessLauncher {
+
+        private final ProcessTracker tracker = new BasicProcessTracker();
+        private final SubprocessLauncher delegate = new BasicSubprocessLauncher(tracker);
+        public final AtomicInteger peak = new AtomicInteger();
+        public final AtomicInteger launches = new AtomicInteger();
+
+        @Override
+        public <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> launch(Subprocess subprocess, StreamContext<C, SO, SE> streamContext) throws SubprocessException {
+            ProcessMonitor<SO, SE> monitor = delegate.launch(subprocess, streamContext);
+            launches.incrementAndGet();
+            peak.accumulateAndGet(tracker.activeCount(), Math::max);
+            return monitor;
+        }
+    }
+
+    private static SubprocessJob<String, String> exitJob(int code) {
+        return SubprocessJob.of(Tests.runningPythonFile("nht_exit.py").arg(String.valueOf(code)).build(),
+                StreamContexts.strings(US_ASCII, null));
+    }
+
+    @Test
+    public void launchAll_collectAll() throws Exception {
+        PeakLauncher launcher = new PeakLauncher();
+        List<SubprocessJob<String, String>> jobs = IntStream.range(0, 10)
+                .mapToObj(i -> exitJob(i % 3 == 0 ? 1 : 0))
+                .collect(Collectors.toList());
+        BatchMonitor<String, String> monitor = launcher.launchAll(jobs, BatchOptions.builder().concurrency(3).build());
+        List<JobOutcome<String, String>> streamed = new ArrayList<>();
+        JobOutcome<String, String> outcome;
+        while ((outcome = monitor.next(30, TimeUnit.SECONDS)) != null) {
+            streamed.add(outcome);
+        }
+        assertNull("still done", monitor.next());
+        List<JobOutcome<String, String>> outcomes = monitor.await();
+        assertEquals("outcomes", streamed, outcomes);
+        assertEquals("count", 10, outcomes.size());
+        Set<Integer> indexes = new HashSet<>();
+        for (JobOutcome<String, String> o : outcomes) {
+            indexes.add(o.index());
+            JobOutcome.Status expected = o.index() % 3 == 0 ? JobOutcome.Status.FAILED : JobOutcome.Status.SUCCEEDED;
+            assertEquals("status of " + o.index(), expected, o.status());
+        }
+        assertEquals("indexes", 10, indexes.size());
+        assertTrue("peak " + launcher.peak.get(), launcher.peak.get() <= 3);
+    }
+
+    @Test
+    public void launchAll_failFast() throws Exception {
+        PeakLauncher launcher = new PeakLauncher();
+        List<JobOutcome<String, String>> outcomes = launcher.launchAll(
+                IntStream.range(0, 5).mapToObj(i -> exitJob(i == 0 ? 2 : 0)),
+                BatchOptions.builder().concurrency(1).failFast(true).build()).await();
+        assertEquals("outcomes", 1, outcomes.size());
+        assertEquals("status", JobOutcome.Status.FAILED, outcomes.get(0).status());
+        assertEquals("launches", 1, launcher.launches.get());
+    }
+
+    @Test
+    public void launchAll_failFastCancelsRunning() throws Exception {
+        InteractiveStreamInput neverEnding = InteractiveStreamInput.create();
+        List<SubprocessJob<String, String>> jobs = new ArrayList<>();
+        jobs.add(SubprocessJob.of(Tests.runningPythonFile(Tests.pyCat()).build(), StreamContexts.strings(US_ASCII, neverEnding)));
+        jobs.add(exitJob(3));
+        List<JobOutcome<String, String>> outcomes = new BasicSubprocessLauncher(TRACKER)
+                .launchAll(jobs, BatchOptions.builder().concurrency(2).failFast(true).build())
+                .future().get(30, TimeUnit.SECONDS);
+        assertEquals("outcomes", 2, outcomes.size());
+        assertEquals("first completed", 1, outcomes.get(0).index());
+        assertEquals("failed", JobOutcome.Status.FAILED, outcomes.get(0).status());
+        assertEquals("cancelled", JobOutcome.Status.CANCELLED, outcomes.get(1).status());
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BroadcastStreamInputTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public BroadcastStreamInputTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void mapFile_feedManyProcesses() throws Exception {
+        byte[] data = new byte[1024 * 1024 + 333];
+        new Random(getClass().getName().hashCode()).nextBytes(data);
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), data);
+        BroadcastStreamInput input = BroadcastStreamInput.mapFile(file.toPath(), 100_000).preload();
+        assertEquals("size", data.length, input.size());
+        List<ProcessMonitor<byte[], byte[]>> monitors = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            monitors.add(Tests.runningPythonFile(Tests.pyCat())
+                    .build()
+                    .launcher(TRACKER)
+                    .outputInMemory(input)
+                    .launch());
+        }
+        for (ProcessMonitor<byte[], byte[]> monitor : monitors) {
+            ProcessResult<byte[], byte[]> result = monitor.await();
+            assertEquals("exit code", 0, result.exitCode());
+            assertArrayEquals("stdout", data, result.content().stdout());
+        }
+        assertArrayEquals("read", data, input.read());
+    }
+
+    @Test
+    public void wrap() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(10);
+        for (int i = 0; i < 10; i++) {
+            buffer.put((byte) i);
+        }
+        buffer.position(3);
+        BroadcastStreamInput input = BroadcastStreamInput.wrap(buffer);
+        assertArrayEquals(new byte[]{3, 4, 5, 6, 7, 8, 9}, input.read());
+        assertEquals("position unchanged", 3, buffer.position());
+    }
+
+    @Test
+    public void mapFile_empty() throws Exception {
+        File file = temporaryFolder.newFile();
+        assertEquals(0, BroadcastStreamInput.mapFile(file.toPath()).read().length);
+    }
+}
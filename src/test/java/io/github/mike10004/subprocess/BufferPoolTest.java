@@ -0,0 +1,107 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    public void sizeClassIndex() {
+        assertEquals(0, BufferPool.sizeClassIndex(0));
+        assertEquals(0, BufferPool.sizeClassIndex(128));
+        assertEquals(1, BufferPool.sizeClassIndex(129));
+        assertEquals(6, BufferPool.sizeClassIndex(8192));
+        assertEquals(12, BufferPool.sizeClassIndex(512 * 1024));
+        assertEquals(-1, BufferPool.sizeClassIndex(512 * 1024 + 1));
+    }
+
+    @Test
+    public void reuseArrays() {
+        BufferPool pool = new BufferPool(2);
+        byte[] first = pool.acquireArray(1000);
+        assertEquals("rounded up", 1024, first.length);
+        pool.releaseArray(first);
+        byte[] second = pool.acquireArray(1024);
+        assertSame("reused", first, second);
+        BufferPool.Metrics metrics = pool.metrics();
+        assertEquals("misses", 1, metrics.misses());
+        assertEquals("hits", 1, metrics.threadCacheHits());
+        pool.releaseArray(new byte[1000]);
+        pool.acquireArray(1000);
+        assertEquals("odd-sized array not pooled", 2, pool.metrics().misses());
+    }
+
+    @Test
+    public void sharedAcrossThreads() throws Exception {
+        BufferPool pool = new BufferPool(64);
+        byte[][] holder = new byte[16][];
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < holder.length; i++) {
+                holder[i] = pool.acquireArray(4096);
+            }
+            for (byte[] buffer : holder) {
+                pool.releaseArray(buffer);
+            }
+        });
+        thread.start();
+        thread.join();
+        for (int i = 0; i < holder.length; i++) {
+            pool.acquireArray(4096);
+        }
+        BufferPool.Metrics metrics = pool.metrics();
+        assertEquals("shared hits " + metrics, holder.length - 4, metrics.sharedHits());
+    }
+
+    @Test
+    public void releaseShared() throws Exception {
+        BufferPool pool = new BufferPool(64);
+        byte[][] holder = new byte[2][];
+        Thread thread = new Thread(() -> {
+            holder[0] = pool.acquireArray(4096);
+            pool.releaseArrayShared(holder[0]);
+        });
+        thread.start();
+        thread.join();
+        holder[1] = pool.acquireArray(4096);
+        assertSame("reused", holder[0], holder[1]);
+        assertEquals("shared hits", 1, pool.metrics().sharedHits());
+    }
+
+    @Test
+    public void pumpBuffersReusedAcrossLaunches() throws Exception {
+        Subprocess echo = Tests.runningPythonFile(Tests.pyEcho()).arg("hello").build();
+        try (ScopedProcessTracker tracker = new ScopedProcessTracker()) {
+            // the first launch may have to allocate buffers for the stdout and stderr pumps
+            echo.launcher(tracker).outputStrings(US_ASCII).launch().await();
+            long before = BufferPool.shared().metrics().sharedHits();
+            int launches = 5;
+            for (int i = 0; i < launches; i++) {
+                assertEquals("stdout", "hello", echo.launcher(tracker).outputStrings(US_ASCII).launch().await().content().stdout());
+            }
+            BufferPool.Metrics metrics = BufferPool.shared().metrics();
+            assertTrue("shared hits " + metrics, metrics.sharedHits() - before >= 2 * launches);
+        }
+    }
+
+    @Test
+    public void direct() {
+        BufferPool pool = new BufferPool(2);
+        ByteBuffer buffer = pool.acquireDirect(300);
+        assertTrue(buffer.isDirect());
+        assertEquals("limit", 300, buffer.limit());
+        assertEquals("capacity", 512, buffer.capacity());
+        buffer.put((byte) 1);
+        pool.releaseDirect(buffer);
+        ByteBuffer again = pool.acquireDirect(500);
+        assertSame(buffer, again);
+        assertEquals("position", 0, again.position());
+        assertEquals("limit", 500, again.limit());
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CachingSubprocessLauncherTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public CachingSubprocessLauncherTest(int trial) {
+        super(trial);
+    }
+
+    private static class CountingLauncher implements SubprocessLauncher {
+
+        public final AtomicInteger launches = new AtomicInteger();
+        private final SubprocessLauncher delegate;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch proceed;
+
+        public CountingLauncher(SubprocessLauncher delegate, CountDownLatch proceed) {
+            this.delegate = delegate;
+            this.proceed = proceed;
+        }
+
+        @Override
+        public <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> launch(Subprocess subprocess, StreamContext<C, SO, SE> streamContext) {
+            launches.incrementAndGet();
+            entered.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return delegate.launch(subprocess, streamContext);
+        }
+    }
+
+    private CountingLauncher counting() {
+        return new CountingLauncher(new BasicSubprocessLauncher(TRACKER), new CountDownLatch(0));
+    }
+
+    @Test
+    public void launch_hitReplaysOutput() throws Exception {
+        CountingLauncher counter = counting();
+        CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter).build();
+        Subprocess cat = Tests.runningPythonFile(Tests.pyCat()).build();
+        for (int i = 0; i < 3; i++) {
+            ProcessMonitor<String, String> monitor = cat.launcher(launcher)
+                    .outputStrings(US_ASCII, StreamInput.wrap("hello".getBytes(US_ASCII)))
+                    .launch();
+            ProcessResult<String, String> result = monitor.await();
+            assertEquals("exit code", 0, result.exitCode());
+            assertEquals("stdout", "hello", result.content().stdout());
+            assertEquals("launches", 1, counter.launches.get());
+            if (i > 0) {
+                assertFalse("replayed process alive", monitor.process().isAlive());
+                assertEquals("replayed exit value", 0, monitor.process().exitValue());
+            }
+        }
+        ProcessResult<byte[], byte[]> bytesResult = cat.launcher(launcher)
+                .outputInMemory(StreamInput.wrap("hello".getBytes(US_ASCII)))
+                .launch().await();
+        assertEquals("replayed into different context", "hello", new String(bytesResult.content().stdout(), US_ASCII));
+        assertEquals("launches", 1, counter.launches.get());
+        cat.launcher(launcher).outputStrings(US_ASCII, StreamInput.wrap("world".getBytes(US_ASCII))).launch().await();
+        assertEquals("different input is a miss", 2, counter.launches.get());
+    }
+
+    @Test
+    public void launch_nonzeroExitNotCached() throws Exception {
+        CountingLauncher counter = counting();
+        CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter).build();
+        Subprocess exit3 = Tests.runningPythonFile("nht_exit.py").arg("3").build();
+        for (int i = 0; i < 2; i++) {
+            assertEquals("exit code", 3, exit3.launcher(launcher).launch().await().exitCode());
+        }
+        assertEquals("launches", 2, counter.launches.get());
+    }
+
+    @Test
+    public void launch_concurrentLaunchesShareExecution() throws Exception {
+        CountDownLatch proceed = new CountDownLatch(1);
+        CountingLauncher counter = new CountingLauncher(new BasicSubprocessLauncher(TRACKER), proceed);
+        CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter).build();
+        Subprocess cat = Tests.runningPythonFile(Tests.pyCat()).build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ProcessMonitor<String, String>> leader = executor.submit(() -> cat.launcher(launcher)
+                    .outputStrings(US_ASCII, StreamInput.wrap("shared".getBytes(US_ASCII)))
+                    .launch());
+            assertTrue("leader entered delegate", counter.entered.await(5, TimeUnit.SECONDS));
+            List<ProcessMonitor<String, String>> monitors = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                monitors.add(cat.launcher(launcher)
+                        .outputStrings(US_ASCII, StreamInput.wrap("shared".getBytes(US_ASCII)))
+                        .launch());
+            }
+            proceed.countDown();
+            monitors.add(leader.get(5, TimeUnit.SECONDS));
+            for (ProcessMonitor<String, String> monitor : monitors) {
+                assertEquals("stdout", "shared", monitor.await(5, TimeUnit.SECONDS).content().stdout());
+            }
+            assertEquals("launches", 1, counter.launches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void launch_cachePutFailureDoesNotFailLaunches() throws Exception {
+        ResultCache failing = new ResultCache() {
+            @Override
+            public CachedOutput get(CacheKey key) {
+                return null;
+            }
+
+            @Override
+            public void put(CacheKey key, CachedOutput output) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+
+            @Override
+            public void invalidate(CacheKey key) {
+            }
+
+            @Override
+            public void invalidateAll() {
+            }
+        };
+        CountDownLatch proceed = new CountDownLatch(1);
+        CountingLauncher counter = new CountingLauncher(new BasicSubprocessLauncher(TRACKER), proceed);
+        CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter).cache(failing).build();
+        Subprocess cat = Tests.runningPythonFile(Tests.pyCat()).build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ProcessMonitor<String, String>> leader = executor.submit(() -> cat.launcher(launcher)
+                    .outputStrings(US_ASCII, StreamInput.wrap("shared".getBytes(US_ASCII)))
+                    .launch());
+            assertTrue("leader entered delegate", counter.entered.await(5, TimeUnit.SECONDS));
+            ProcessMonitor<String, String> follower = cat.launcher(launcher)
+                    .outputStrings(US_ASCII, StreamInput.wrap("shared".getBytes(US_ASCII)))
+                    .launch();
+            proceed.countDown();
+            assertEquals("leader stdout", "shared", leader.get(5, TimeUnit.SECONDS).await(5, TimeUnit.SECONDS).content().stdout());
+            assertEquals("follower stdout", "shared", follower.await(5, TimeUnit.SECONDS).content().stdout());
+            assertEquals("launches", 1, counter.launches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void launch_outputTooLargeNotCached() throws Exception {
+        CountingLauncher counter = counting();
+        CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter).maxOutputBytes(3).build();
+        Subprocess cat = Tests.runningPythonFile(Tests.pyCat()).build();
+        for (int i = 0; i < 2; i++) {
+            assertEquals("stdout", "hello", cat.launcher(launcher)
+                    .outputStrings(US_ASCII, StreamInput.wrap("hello".getBytes(US_ASCII)))
+                    .launch().await().content().stdout());
+        }
+        assertEquals("launches", 2, counter.launches.get());
+    }
+
+    @Test
+    public void launch_declaredInputsAndDiskCache() throws Exception {
+        Path cacheDir = temporaryFolder.newFolder().toPath();
+        File inputFile = temporaryFolder.newFile();
+        Files.write(inputFile.toPath(), "one".getBytes(US_ASCII));
+        Subprocess cat = Tests.runningPythonFile(Tests.pyCat()).arg(inputFile.getAbsolutePath()).build();
+        CountingLauncher counter = counting();
+        for (int run = 0; run < 2; run++) {
+            // a new launcher per run stands in for a new JVM
+            CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter)
+                    .cache(DiskResultCache.builder(cacheDir).build())
+                    .declaredInputs(subprocess -> Collections.singletonList(inputFile.toPath()))
+                    .build();
+            assertEquals("stdout", "one", cat.launcher(launcher).outputStrings(US_ASCII).launch().await().content().stdout());
+        }
+        assertEquals("launches", 1, counter.launches.get());
+        Files.write(inputFile.toPath(), "two!".getBytes(US_ASCII));
+        CachingSubprocessLauncher launcher = CachingSubprocessLauncher.builder(counter)
+                .cache(DiskResultCache.builder(cacheDir).build())
+                .declaredInputs(subprocess -> Collections.singletonList(inputFile.toPath()))
+                .build();
+        assertEquals("stdout", "two!", cat.launcher(launcher).outputStrings(US_ASCII).launch().await().content().stdout());
+        assertEquals("launches", 2, counter.launches.get());
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.mike10004.subprocess;
+
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CharBucketTest {
+
+    private static final String TEXT = "plain ascii, café, naïve, 日本語, 😀 emoji\r\nsecond line\n";
+
+    private static final List<Charset> CHARSETS = Arrays.asList(
+            StandardCharsets.UTF_8,
+            StandardCharsets.UTF_16,
+            StandardCharsets.UTF_16LE,
+            StandardCharsets.ISO_8859_1,
+            StandardCharsets.US_ASCII,
+            Charset.forName("Shift_JIS"),
+            Charset.forName("windows-1252"));
+
+    @Test
+    public void splitChunks_validText() throws Exception {
+        Random random = new Random(CharBucketTest.class.getName().hashCode());
+        for (Charset charset : CHARSETS) {
+            byte[] bytes = TEXT.getBytes(charset);
+            for (int trial = 0; trial < 20; trial++) {
+                assertEquals(charset + " trial " + trial, new String(bytes, charset), decodeInChunks(bytes, charset, random));
+            }
+        }
+    }
+
+    @Test
+    public void splitChunks_randomBytes() throws Exception {
+        Random random = new Random(CharBucketTest.class.getName().hashCode() + 1);
+        for (Charset charset : CHARSETS) {
+            for (int trial = 0; trial < 20; trial++) {
+                byte[] bytes = new byte[random.nextInt(5000)];
+                random.nextBytes(bytes);
+                assertEquals(charset + " trial " + trial, new String(bytes, charset), decodeInChunks(bytes, charset, random));
+            }
+        }
+    }
+
+    @Test
+    public void truncatedSequenceAtEnd() throws Exception {
+        byte[] bytes = {'a', (byte) 0xE6, (byte) 0x97};
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), decodeInChunks(bytes, StandardCharsets.UTF_8, new Random(0)));
+    }
+
+    private static String decodeInChunks(byte[] bytes, Charset charset, Random random) throws Exception {
+        CharBucket bucket = new CharBucket(charset, 16);
+        try (OutputStream out = bucket.openStream()) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int length = Math.min(bytes.length - offset, 1 + random.nextInt(7));
+                out.write(bytes, offset, length);
+                offset += length;
+            }
+        }
+        return bucket.dump();
+    }
+}
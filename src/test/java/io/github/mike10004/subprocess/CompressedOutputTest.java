@@ -0,0 +1,62 @@
+package io.github.mike10004.subprocess;
+
+import com.google.common.base.Strings;
+import io.github.mike10004.subprocess.test.Tests;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedOutputTest extends SubprocessTestBase {
+
+    public CompressedOutputTest(int trial) {
+        super(trial);
+    }
+
+    private static byte[] createCompressibleText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(i).append(' ').append(Strings.repeat("abc", i % 17)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void outputCompressedTempFiles_gzip() throws Exception {
+        testCompressed(CompressionSettings.gzip());
+    }
+
+    @Test
+    public void outputCompressedTempFiles_deflate() throws Exception {
+        testCompressed(CompressionSettings.builder(CompressionFormat.DEFLATE)
+                .level(Deflater.BEST_SPEED)
+                .bufferSize(1024)
+                .queueCapacity(16)
+                .build());
+    }
+
+    private void testCompressed(CompressionSettings settings) throws Exception {
+        byte[] text = createCompressibleText();
+        ProcessResult<File, File> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputCompressedTempFiles(FileUtils.getTempDirectory().toPath(), settings, StreamInput.wrap(text))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        File stdoutFile = result.content().stdout();
+        assertTrue("suffix", stdoutFile.getName().endsWith(settings.format().suffix()));
+        assertTrue("compressed", stdoutFile.length() < text.length / 4);
+        byte[] decompressed = settings.format().decompressing(stdoutFile).read();
+        assertArrayEquals("stdout", text, decompressed);
+        byte[] stderr = settings.format().decompressing(result.content().stderr()).read();
+        assertEquals("stderr length", 0, stderr.length);
+        FileUtils.forceDelete(stdoutFile);
+        FileUtils.forceDelete(result.content().stderr());
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoprocessPoolTest extends SubprocessTestBase {
+
+    public CoprocessPoolTest(int trial) {
+        super(trial);
+    }
+
+    private static CoprocessPool.Builder poolBuilder(String...args) {
+        return CoprocessPool.builder(new BasicSubprocessLauncher(TRACKER),
+                Tests.runningPythonFile("nht_coprocess.py").args(Arrays.asList(args)).build());
+    }
+
+    @Test
+    public void request_line() throws Exception {
+        try (CoprocessPool pool = poolBuilder().maxSize(2).build()) {
+            String pid;
+            try (CoprocessPool.Worker worker = pool.borrow()) {
+                pid = worker.request("pid", US_ASCII);
+                assertEquals("response", "HELLO", worker.request("hello", US_ASCII));
+                assertEquals("empty", "", worker.request("", US_ASCII));
+                assertEquals("request count", 3, worker.requestCount());
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals("response " + i, "X" + i, pool.request("x" + i, US_ASCII));
+            }
+            assertEquals("same worker", pid, pool.request("pid", US_ASCII));
+            assertEquals("spawn count", 1, pool.spawnCount());
+            assertEquals("idle", 1, pool.idleCount());
+        }
+    }
+
+    @Test
+    public void request_lengthPrefixed() throws Exception {
+        try (CoprocessPool pool = poolBuilder("--length-prefixed").framing(CoprocessPool.Framing.LENGTH_PREFIXED).build()) {
+            assertArrayEquals("multiline", "A\nB\r\n".getBytes(US_ASCII), pool.request("a\nb\r\n".getBytes(US_ASCII)));
+            byte[] large = new byte[200 * 1024];
+            Arrays.fill(large, (byte) 'q');
+            byte[] expected = new byte[large.length];
+            Arrays.fill(expected, (byte) 'Q');
+            assertArrayEquals("large", expected, pool.request(large));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void request_lineWithNewline() throws Exception {
+        try (CoprocessPool pool = poolBuilder().build()) {
+            pool.request("a\nb", US_ASCII);
+        }
+    }
+
+    @Test
+    public void recycleAfterMaxRequests() throws Exception {
+        try (CoprocessPool pool = poolBuilder().maxRequestsPerWorker(3).build()) {
+            for (int i = 0; i < 7; i++) {
+                pool.request("ping", US_ASCII);
+            }
+            assertEquals("spawn count", 3, pool.spawnCount());
+            assertEquals("size", 1, pool.size());
+        }
+    }
+
+    @Test
+    public void recycleAfterCrash() throws Exception {
+        try (CoprocessPool pool = poolBuilder().build()) {
+            String pid = pool.request("pid", US_ASCII);
+            try (CoprocessPool.Worker worker = pool.borrow()) {
+                try {
+                    worker.request("exit", US_ASCII);
+                    fail("expected exception");
+                } catch (IOException ignore) {
+                }
+                assertEquals("alive", false, worker.isAlive());
+            }
+            assertEquals("size after crash", 0, pool.size());
+            assertNotEquals("replaced", pid, pool.request("pid", US_ASCII));
+            assertEquals("spawn count", 2, pool.spawnCount());
+        }
+    }
+
+    @Test
+    public void healthCheck() throws Exception {
+        try (CoprocessPool pool = poolBuilder().healthCheck("ping".getBytes(US_ASCII), r -> Arrays.equals("pong".getBytes(US_ASCII), r)).build()) {
+            for (int i = 0; i < 3; i++) {
+                pool.request("hello", US_ASCII);
+            }
+            assertEquals("healthy spawn count", 1, pool.spawnCount());
+        }
+        try (CoprocessPool pool = poolBuilder().healthCheck("ping".getBytes(US_ASCII), r -> false).build()) {
+            for (int i = 0; i < 3; i++) {
+                pool.request("hello", US_ASCII);
+            }
+            assertEquals("unhealthy spawn count", 3, pool.spawnCount());
+        }
+    }
+
+    @Test
+    public void responseTimeout() throws Exception {
+        try (CoprocessPool pool = poolBuilder().responseTimeout(Duration.ofMillis(250)).shutdownTimeout(Duration.ofMillis(250)).build()) {
+            try (CoprocessPool.Worker worker = pool.borrow()) {
+                try {
+                    worker.request("hang", US_ASCII);
+                    fail("expected timeout");
+                } catch (InterruptedIOException expected) {
+                }
+                assertEquals("alive", false, worker.isAlive());
+            }
+            assertEquals("size after timeout", 0, pool.size());
+            assertEquals("replacement response", "pong", pool.request("ping", US_ASCII));
+            assertEquals("spawn count", 2, pool.spawnCount());
+        }
+    }
+
+    @Test
+    public void responseTimeout_workerNeverReads() throws Exception {
+        try (CoprocessPool pool = poolBuilder("--ignore-input").responseTimeout(Duration.ofMillis(250)).shutdownTimeout(Duration.ofMillis(250)).build()) {
+            byte[] large = new byte[1024 * 1024];
+            Arrays.fill(large, (byte) 'q');
+            try (CoprocessPool.Worker worker = pool.borrow()) {
+                try {
+                    worker.request(large);
+                    fail("expected timeout");
+                } catch (InterruptedIOException expected) {
+                }
+                assertEquals("alive", false, worker.isAlive());
+            }
+            assertEquals("size after timeout", 0, pool.size());
+        }
+    }
+
+    @Test
+    public void responseTimeout_healthCheck() throws Exception {
+        try (CoprocessPool pool = poolBuilder()
+                .healthCheck("hang".getBytes(US_ASCII), r -> true)
+                .responseTimeout(Duration.ofMillis(250))
+                .shutdownTimeout(Duration.ofMillis(250))
+                .build()) {
+            assertEquals("first response", "HELLO", pool.request("hello", US_ASCII));
+            assertEquals("second response", "HELLO", pool.request("hello", US_ASCII));
+            assertEquals("spawn count", 2, pool.spawnCount());
+            assertEquals("size", 1, pool.size());
+        }
+    }
+
+    @Test
+    public void borrow_timeout() throws Exception {
+        try (CoprocessPool pool = poolBuilder().maxSize(1).build();
+             CoprocessPool.Worker ignore = pool.borrow()) {
+            try {
+                pool.borrow(100, TimeUnit.MILLISECONDS);
+                fail("expected timeout");
+            } catch (TimeoutException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void request_concurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (CoprocessPool pool = poolBuilder().maxSize(2).build()) {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        String request = Thread.currentThread().getName() + "-" + i;
+                        if (!request.toUpperCase().equals(pool.request(request, US_ASCII))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue("responses match", future.get(30, TimeUnit.SECONDS));
+            }
+            assertTrue("size " + pool.size(), pool.size() <= 2);
+            assertTrue("spawn count " + pool.spawnCount(), pool.spawnCount() <= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.mike10004.subprocess;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskResultCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static CacheKey key(String arg) {
+        return CacheKey.compute(Subprocess.running("echo").arg(arg).build(), false, null);
+    }
+
+    @Test
+    public void putAndGet_survivesNewInstance() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath().resolve("cache");
+        DiskResultCache cache = DiskResultCache.builder(directory).build();
+        assertNull(cache.get(key("a")));
+        cache.put(key("a"), CachedOutput.of(2, "out".getBytes(US_ASCII), "err".getBytes(US_ASCII)));
+        CachedOutput output = DiskResultCache.builder(directory).build().get(key("a"));
+        assertNotNull(output);
+        assertEquals("exit code", 2, output.exitCode());
+        assertArrayEquals("stdout", "out".getBytes(US_ASCII), output.stdout());
+        assertArrayEquals("stderr", "err".getBytes(US_ASCII), output.stderr());
+        cache.invalidate(key("a"));
+        assertNull(cache.get(key("a")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        DiskResultCache cache = DiskResultCache.builder(directory).maxBytes(250).build();
+        long now = System.currentTimeMillis();
+        cache.put(key("a"), CachedOutput.of(0, new byte[100], new byte[0]));
+        Files.setLastModifiedTime(cache.entryFile(key("a")), FileTime.fromMillis(now - 20_000));
+        cache.put(key("b"), CachedOutput.of(0, new byte[100], new byte[0]));
+        Files.setLastModifiedTime(cache.entryFile(key("b")), FileTime.fromMillis(now - 10_000));
+        assertNotNull("touches a", cache.get(key("a")));
+        cache.put(key("c"), CachedOutput.of(0, new byte[100], new byte[0]));
+        assertFalse("b evicted", Files.exists(cache.entryFile(key("b"))));
+        assertTrue("a retained", Files.exists(cache.entryFile(key("a"))));
+        assertTrue("c retained", Files.exists(cache.entryFile(key("c"))));
+    }
+
+    @Test
+    public void corruptEntryIsDiscarded() throws Exception {
+        DiskResultCache cache = DiskResultCache.builder(temporaryFolder.getRoot().toPath()).build();
+        cache.put(key("a"), CachedOutput.of(0, new byte[10], new byte[0]));
+        Path file = cache.entryFile(key("a"));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(cache.get(key("a")));
+        assertFalse("deleted", Files.exists(file));
+    }
+
+    @Test
+    public void layered_promotesToFastCache() throws Exception {
+        MemoryResultCache fast = MemoryResultCache.builder().build();
+        DiskResultCache slow = DiskResultCache.builder(temporaryFolder.getRoot().toPath()).build();
+        slow.put(key("a"), CachedOutput.of(0, new byte[1], new byte[0]));
+        ResultCache layered = ResultCache.layered(fast, slow);
+        assertNotNull(layered.get(key("a")));
+        assertNotNull("promoted", fast.get(key("a")));
+        layered.put(key("b"), CachedOutput.of(0, new byte[1], new byte[0]));
+        assertNotNull(fast.get(key("b")));
+        assertNotNull(slow.get(key("b")));
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecutableResolverTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    };
+
+    private static File createExecutable(File directory, String name, long lastModified) throws Exception {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), "#!/bin/sh\n".getBytes(US_ASCII));
+        assertTrue(file.setExecutable(true));
+        assertTrue(file.setLastModified(lastModified));
+        assertTrue(directory.setLastModified(lastModified));
+        return file;
+    }
+
+    private static void assertNotFound(ExecutableResolver resolver, String executable) {
+        try {
+            resolver.resolve(executable);
+            fail("should have thrown");
+        } catch (ExecutableResolver.ExecutableNotFoundException ignore) {
+        }
+    }
+
+    @Test
+    public void resolve_cachesUntilExpiryThenRevalidates() throws Exception {
+        Assume.assumeFalse("posix file permissions", Tests.isPlatformWindows());
+        File first = temporaryFolder.newFolder(), second = temporaryFolder.newFolder();
+        assertTrue(first.setLastModified(10_000));
+        File original = createExecutable(second, "thing", 10_000);
+        ExecutableResolver resolver = ExecutableResolver.builder()
+                .searchPath(Arrays.asList(first, second))
+                .ttl(Duration.ofSeconds(10))
+                .clock(clock)
+                .build();
+        assertEquals(original, resolver.resolve("thing"));
+        File shadowing = createExecutable(first, "thing", 20_000);
+        assertEquals("cached", original, resolver.resolve("thing"));
+        now.addAndGet(10_000);
+        assertEquals("revalidated", shadowing, resolver.resolve("thing"));
+    }
+
+    @Test
+    public void resolve_notFoundIsCached() throws Exception {
+        Assume.assumeFalse("posix file permissions", Tests.isPlatformWindows());
+        File directory = temporaryFolder.newFolder();
+        assertTrue(directory.setLastModified(10_000));
+        ExecutableResolver resolver = ExecutableResolver.builder()
+                .searchPath(directory.getAbsolutePath())
+                .ttl(Duration.ofSeconds(10))
+                .clock(clock)
+                .build();
+        assertNotFound(resolver, "missing");
+        File file = createExecutable(directory, "missing", 10_000);
+        now.addAndGet(10_000);
+        assertNotFound(resolver, "missing"); // directory modification time is unchanged, so renewed
+        resolver.invalidateAll();
+        assertEquals(file, resolver.resolve("missing"));
+    }
+
+    @Test
+    public void isDirectory() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        ExecutableResolver resolver = ExecutableResolver.builder().ttl(Duration.ofSeconds(10)).clock(clock).build();
+        assertTrue(resolver.isDirectory(null));
+        assertTrue(resolver.isDirectory(directory));
+        assertTrue(directory.delete());
+        assertTrue("cached", resolver.isDirectory(directory));
+        now.addAndGet(10_000);
+        assertFalse(resolver.isDirectory(directory));
+    }
+
+    @Test
+    public void launch() throws Exception {
+        Assume.assumeFalse("echo is a shell builtin on Windows", Tests.isPlatformWindows());
+        ExecutableResolver resolver = ExecutableResolver.create();
+        ProcessTracker tracker = new ShutdownHookProcessTracker();
+        SubprocessLauncher launcher = new ResolvingSubprocessLauncher(new BasicSubprocessLauncher(tracker), resolver);
+        ProcessResult<String, String> result = Subprocess.running("echo").arg("hello")
+                .build()
+                .launcher(launcher)
+                .outputStrings(US_ASCII)
+                .launch()
+                .await();
+        assertEquals("stdout", "hello", result.content().stdout().trim());
+        try {
+            Subprocess.running("no-such-executable-" + Long.toHexString(now.get()))
+                    .build()
+                    .launcher(launcher)
+                    .launch();
+            fail("should have thrown");
+        } catch (ExecutableResolver.ExecutableNotFoundException ignore) {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.mike10004.subprocess;
+
+import com.google.common.primitives.Bytes;
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FileRegionStreamInputTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public FileRegionStreamInputTest(int trial) {
+        super(trial);
+    }
+
+    private File createDataFile(byte[] data) throws Exception {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void fromFileRegion_launch() throws Exception {
+        byte[] data = randomBytes(3 * 1024 * 1024 + 17, 1);
+        File file = createDataFile(data);
+        int offset = 1024 * 1024 - 3, length = 1024 * 1024 + 100;
+        ProcessResult<byte[], byte[]> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputInMemory(StreamInput.fromFileRegion(file.toPath(), offset, length))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        assertArrayEquals("stdout", Arrays.copyOfRange(data, offset, offset + length), result.content().stdout());
+    }
+
+    @Test
+    public void concat_launch() throws Exception {
+        byte[] fileData = randomBytes(200_000, 2);
+        byte[] memoryData = randomBytes(5_000, 3);
+        File file = createDataFile(fileData);
+        StreamInput input = StreamInput.concat(
+                StreamInput.fromFileRegion(file.toPath(), 100, 50_000),
+                StreamInput.wrap(memoryData),
+                StreamInput.empty(),
+                StreamInput.fromFile(file));
+        byte[] expected = Bytes.concat(Arrays.copyOfRange(fileData, 100, 50_100), memoryData, fileData);
+        ProcessResult<byte[], byte[]> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputInMemory(input)
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        assertArrayEquals("stdout", expected, result.content().stdout());
+        assertArrayEquals("read", expected, input.read());
+    }
+
+    @Test
+    public void fromFile_redirected() throws Exception {
+        byte[] data = randomBytes(100_000, 4);
+        File file = createDataFile(data);
+        StreamInput input = StreamInput.fromFile(file);
+        assertEquals(ProcessBuilder.Redirect.Type.READ, Streams.inputRedirect(input).type());
+        ProcessResult<byte[], byte[]> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputInMemory(input)
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        assertArrayEquals("stdout", data, result.content().stdout());
+    }
+
+    @Test
+    public void fromFileRegion_truncatedAtEndOfFile() throws Exception {
+        byte[] data = randomBytes(1000, 5);
+        File file = createDataFile(data);
+        assertArrayEquals(Arrays.copyOfRange(data, 900, 1000), StreamInput.fromFileRegion(file.toPath(), 900, 500).read());
+        assertEquals(0, StreamInput.fromFileRegion(file.toPath(), 2000, 10).read().length);
+    }
+
+    @Test
+    public void fromFile_redirectFixedAtControlConstruction() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "later.dat");
+        PredefinedStreamControl absent = PredefinedStreamControl.builder().stdin(StreamInput.fromFile(file)).build();
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertEquals("absent at construction", ProcessBuilder.Redirect.Type.PIPE, absent.redirectInput().type());
+        PredefinedStreamControl present = PredefinedStreamControl.builder().stdin(StreamInput.fromFile(file)).build();
+        Files.delete(file.toPath());
+        assertEquals("present at construction", ProcessBuilder.Redirect.Type.READ, present.redirectInput().type());
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GeneratedStreamInputTest extends SubprocessTestBase {
+
+    public GeneratedStreamInputTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void fromLines_launch() throws Exception {
+        int numRecords = 200_000;
+        StreamInput input = StreamInput.fromLines(() -> IntStream.range(0, numRecords).mapToObj(i -> "record " + i).iterator(), StandardCharsets.UTF_8);
+        ProcessResult<LineIndexedText, LineIndexedText> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputIndexedLines(StandardCharsets.UTF_8, input)
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        LineIndexedText stdout = result.content().stdout();
+        assertEquals("line count", numRecords, stdout.lineCount());
+        assertEquals("record 12345", stdout.line(12345));
+    }
+
+    @Test
+    public void fromLines_encoding() throws Exception {
+        List<String> lines = Arrays.asList("plain", "", "café 日本語 😀", "last");
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16, StandardCharsets.ISO_8859_1)) {
+            byte[] expected = lines.stream().map(line -> line + "\n").collect(Collectors.joining()).getBytes(charset);
+            assertArrayEquals(charset.name(), expected, StreamInput.fromLines(lines::iterator, charset).read());
+        }
+        assertEquals("empty", 0, StreamInput.fromLines(Collections::emptyIterator, StandardCharsets.UTF_8).read().length);
+    }
+
+    @Test
+    public void fromLines_longLines() throws Exception {
+        String longLine = String.join("", Collections.nCopies(20000, "é"));
+        byte[] expected = (longLine + "\n" + longLine + "\n").getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, StreamInput.fromLines(() -> Arrays.asList(longLine, longLine).iterator(), StandardCharsets.UTF_8).read());
+    }
+
+    @Test
+    public void fromBuffers() throws Exception {
+        ByteBuffer first = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer second = ByteBuffer.allocateDirect(2);
+        second.put((byte) 4).put((byte) 5).flip();
+        StreamInput input = StreamInput.fromBuffers(() -> Arrays.asList(first, empty, second).iterator());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, input.read());
+        assertArrayEquals("positions unchanged", new byte[]{1, 2, 3, 4, 5}, input.read());
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.mike10004.subprocess;
+
+import com.google.common.io.Files;
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class GroupCommitFileWriterTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public GroupCommitFileWriterTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void launch_manyConcurrent() throws Exception {
+        Random random = new Random(getClass().getName().hashCode());
+        int numProcesses = 8;
+        try (GroupCommitFileWriter writer = GroupCommitFileWriter.builder().segmentSize(1024).build()) {
+            List<byte[]> inputs = new ArrayList<>();
+            List<ProcessMonitor<File, File>> monitors = new ArrayList<>();
+            for (int i = 0; i < numProcesses; i++) {
+                byte[] input = new byte[64 * 1024 + random.nextInt(1024)];
+                random.nextBytes(input);
+                inputs.add(input);
+                monitors.add(Tests.runningPythonFile(Tests.pyCat())
+                        .build()
+                        .launcher(TRACKER)
+                        .outputTempFiles(writer, temporaryFolder.getRoot().toPath(), StreamInput.wrap(input))
+                        .launch());
+            }
+            for (int i = 0; i < numProcesses; i++) {
+                ProcessResult<File, File> result = monitors.get(i).await();
+                assertEquals("exit code", 0, result.exitCode());
+                assertArrayEquals("stdout " + i, inputs.get(i), Files.toByteArray(result.content().stdout()));
+                assertEquals("stderr " + i, 0, result.content().stderr().length());
+            }
+        }
+    }
+
+    @Test
+    public void smallWritesAndSync() throws Exception {
+        File file = temporaryFolder.newFile();
+        try (GroupCommitFileWriter writer = GroupCommitFileWriter.builder().maxPendingBytesPerFile(100).build()) {
+            byte[] expected = new byte[10000];
+            try (OutputStream out = writer.open(file)) {
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] = (byte) i;
+                    out.write(i);
+                }
+                writer.sync();
+                assertEquals("length after sync", expected.length, file.length());
+            }
+            assertArrayEquals("content", expected, Files.toByteArray(file));
+        }
+    }
+
+    @Test
+    public void syncWaitsForBytesBeyondOneBatch() throws Exception {
+        File file = temporaryFolder.newFile();
+        CountDownLatch started = new CountDownLatch(1);
+        GroupCommitFileWriter.Builder builder = GroupCommitFileWriter.builder()
+                .segmentSize(16)
+                .maxBatchBuffers(1)
+                .threadFactory(r -> new Thread(() -> {
+                    try {
+                        started.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    r.run();
+                }));
+        try (GroupCommitFileWriter writer = builder.build();
+             OutputStream out = writer.open(file)) {
+            byte[] chunk = new byte[16];
+            int numChunks = 50;
+            for (int i = 0; i < numChunks; i++) {
+                out.write(chunk);
+            }
+            // the writer thread starts after sync() is requested, so its first pass sees the request with 50 buffers queued
+            new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignore) {
+                }
+                started.countDown();
+            }).start();
+            writer.sync();
+            assertEquals("length after sync", chunk.length * numChunks, file.length());
+        }
+    }
+
+    @Test
+    public void openAfterClose() throws Exception {
+        GroupCommitFileWriter writer = GroupCommitFileWriter.create();
+        writer.close();
+        try {
+            writer.open(temporaryFolder.newFile());
+            fail("should have thrown");
+        } catch (IOException ignore) {
+        }
+    }
+}
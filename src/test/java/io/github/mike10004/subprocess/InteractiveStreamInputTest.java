@@ -0,0 +1,83 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InteractiveStreamInputTest extends SubprocessTestBase {
+
+    public InteractiveStreamInputTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void manySmallWrites() throws Exception {
+        InteractiveStreamInput stdin = InteractiveStreamInput.create(1024);
+        ProcessMonitor<String, String> monitor = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputStrings(StandardCharsets.UTF_8, stdin)
+                .launch();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String command = "command " + i + "\n";
+            stdin.write(command, StandardCharsets.UTF_8);
+            expected.append(command);
+        }
+        assertTrue("flushed", stdin.flush(5, TimeUnit.SECONDS));
+        stdin.close();
+        ProcessResult<String, String> result = monitor.await(10, TimeUnit.SECONDS);
+        assertEquals("exit code", 0, result.exitCode());
+        assertEquals("stdout", expected.toString(), result.content().stdout());
+    }
+
+    @Test
+    public void writeAfterProcessExits() throws Exception {
+        InteractiveStreamInput stdin = InteractiveStreamInput.create();
+        ProcessMonitor<String, String> monitor = Tests.runningPythonFile(Tests.pyReadInput())
+                .build()
+                .launcher(TRACKER)
+                .outputStrings(StandardCharsets.UTF_8, stdin)
+                .launch();
+        stdin.write("hello\n\n", StandardCharsets.UTF_8);
+        ProcessResult<String, String> result = monitor.await(10, TimeUnit.SECONDS);
+        assertEquals("stdout", "hello", result.content().stdout().trim());
+        try {
+            stdin.write("too late\n", StandardCharsets.UTF_8);
+            fail("should have thrown");
+        } catch (IOException ignore) {
+        }
+    }
+
+    @Test
+    public void offer_backpressure() throws Exception {
+        InteractiveStreamInput input = InteractiveStreamInput.create(8);
+        InputStream source = input.openStream();
+        assertTrue(input.offer(new byte[]{1, 2, 3, 4, 5}, 0, TimeUnit.MILLISECONDS));
+        assertEquals(3, input.remainingCapacity());
+        assertFalse("full", input.offer(new byte[]{6, 7, 8, 9}, 10, TimeUnit.MILLISECONDS));
+        byte[] buffer = new byte[16];
+        assertEquals("read everything available", 5, source.read(buffer));
+        assertTrue(input.offer(new byte[]{6, 7, 8, 9}, 0, TimeUnit.MILLISECONDS));
+        input.close();
+        assertEquals(4, source.read(buffer));
+        assertArrayEquals(new byte[]{6, 7, 8, 9}, Arrays.copyOf(buffer, 4));
+        assertEquals("end of stream", -1, source.read(buffer));
+        try {
+            input.openStream();
+            fail("should have thrown");
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JobGraphTest extends SubprocessTestBase {
+
+    public JobGraphTest(int trial) {
+        super(trial);
+    }
+
+    /**
+     * Launcher that records the last argument of each subprocess it launches.
+     */
+    private static class RecordingLauncher implements SubprocessLauncher {
+
+        private final SubprocessLauncher delegate = new BasicSubprocessLauncher(TRACKER);
+        public final List<String> launched = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public <C extends StreamControl, SO, SE> ProcessMonitor<SO, SE> launch(Subprocess subprocess, StreamContext<C, SO, SE> streamContext) throws SubprocessException {
+            List<String> arguments = subprocess.arguments();
+            launched.add(arguments.get(arguments.size() - 1));
+            return delegate.launch(subprocess, streamContext);
+        }
+    }
+
+    private static SubprocessJob<String, String> exitJob(int code) {
+        return SubprocessJob.of(Tests.runningPythonFile("nht_exit.py").arg(String.valueOf(code)).build(),
+                StreamContexts.strings(US_ASCII, null));
+    }
+
+    private static SubprocessJob<String, String> echoJob(String text) {
+        return SubprocessJob.of(Tests.runningPythonFile(Tests.pyEcho()).arg(text).build(),
+                StreamContexts.strings(US_ASCII, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_cycle() {
+        JobGraph.<String, String>builder()
+                .node("a", exitJob(0))
+                .node("b", exitJob(0))
+                .node("c", exitJob(0))
+                .dependsOn("b", "a", "c")
+                .dependsOn("c", "b")
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_undefinedDependency() {
+        JobGraph.<String, String>builder()
+                .node("a", exitJob(0))
+                .dependsOn("a", "b")
+                .build();
+    }
+
+    @Test
+    public void criticalPathCost() {
+        JobGraph<String, String> graph = JobGraph.<String, String>builder()
+                .node("a", exitJob(0))
+                .node("b", exitJob(0))
+                .node("c", exitJob(0))
+                .node("d", exitJob(0))
+                .dependsOn("b", "a")
+                .dependsOn("c", "a")
+                .dependsOn("d", "b", "c")
+                .cost("c", 10)
+                .build();
+        assertEquals("d", 1, graph.criticalPathCost("d"));
+        assertEquals("b", 2, graph.criticalPathCost("b"));
+        assertEquals("c", 11, graph.criticalPathCost("c"));
+        assertEquals("a", 12, graph.criticalPathCost("a"));
+        assertEquals("dependencies", Arrays.asList("b", "c"), graph.dependencies("d"));
+    }
+
+    @Test
+    public void launch_skipsDependentsOfFailure() throws Exception {
+        JobGraph<String, String> graph = JobGraph.<String, String>builder()
+                .node("generate", exitJob(0))
+                .node("compile", exitJob(1))
+                .node("test", exitJob(0))
+                .node("package", exitJob(0))
+                .node("docs", exitJob(0))
+                .dependsOn("compile", "generate")
+                .dependsOn("test", "compile")
+                .dependsOn("package", "test")
+                .dependsOn("docs", "generate")
+                .build();
+        GraphResult<String, String> result = graph.launch(new BasicSubprocessLauncher(TRACKER),
+                BatchOptions.builder().concurrency(2).build()).await(30, TimeUnit.SECONDS);
+        assertFalse("success", result.isSuccess());
+        assertEquals("generate", NodeResult.Status.SUCCEEDED, result.node("generate").status());
+        assertEquals("compile", NodeResult.Status.FAILED, result.node("compile").status());
+        assertEquals("test", NodeResult.Status.SKIPPED, result.node("test").status());
+        assertEquals("package", NodeResult.Status.SKIPPED, result.node("package").status());
+        assertEquals("docs", NodeResult.Status.SUCCEEDED, result.node("docs").status());
+        NodeResult<String, String> generate = result.node("generate"), compile = result.node("compile");
+        assertNotNull("run time", generate.runTime());
+        assertTrue("compile started after generate ended", compile.startOffset().compareTo(generate.endOffset()) >= 0);
+        assertNull("skipped start", result.node("test").startOffset());
+    }
+
+    @Test
+    public void launch_criticalPathFirst() throws Exception {
+        assertEquals("critical path first", Arrays.asList("long1", "long2", "long3", "short"), launchOrder(true));
+        assertEquals("insertion order", Arrays.asList("short", "long1", "long2", "long3"), launchOrder(false));
+    }
+
+    private List<String> launchOrder(boolean criticalPathFirst) throws Exception {
+        JobGraph<String, String> graph = JobGraph.<String, String>builder()
+                .node("short", echoJob("short"))
+                .node("long1", echoJob("long1"))
+                .node("long2", echoJob("long2"))
+                .node("long3", echoJob("long3"))
+                .dependsOn("long2", "long1")
+                .dependsOn("long3", "long2")
+                .cost("long3", 5)
+                .criticalPathFirst(criticalPathFirst)
+                .build();
+        RecordingLauncher launcher = new RecordingLauncher();
+        GraphResult<String, String> result = graph.launch(launcher, BatchOptions.builder().concurrency(1).build()).await(30, TimeUnit.SECONDS);
+        assertTrue("success", result.isSuccess());
+        assertEquals("stdout", "long3", result.node("long3").result().content().stdout());
+        return launcher.launched;
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        InteractiveStreamInput neverEnding = InteractiveStreamInput.create();
+        JobGraph<String, String> graph = JobGraph.<String, String>builder()
+                .node("cat", SubprocessJob.of(Tests.runningPythonFile(Tests.pyCat()).build(), StreamContexts.strings(US_ASCII, neverEnding)))
+                .node("after", exitJob(0))
+                .dependsOn("after", "cat")
+                .build();
+        GraphMonitor<String, String> monitor = graph.launch(new BasicSubprocessLauncher(TRACKER), BatchOptions.defaults());
+        List<Process> undestroyed = monitor.destroyAll(5, TimeUnit.SECONDS);
+        assertEquals("undestroyed", Collections.emptyList(), undestroyed);
+        GraphResult<String, String> result = monitor.await(30, TimeUnit.SECONDS);
+        assertEquals("cat", NodeResult.Status.CANCELLED, result.node("cat").status());
+        assertEquals("after", NodeResult.Status.SKIPPED, result.node("after").status());
+    }
+}
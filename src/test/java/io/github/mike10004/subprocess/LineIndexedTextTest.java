@@ -0,0 +1,68 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LineIndexedTextTest extends SubprocessTestBase {
+
+    public LineIndexedTextTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void launch() throws Exception {
+        List<String> lines = IntStream.range(0, 5000).mapToObj(i -> "line " + i + " é").collect(Collectors.toList());
+        String text = String.join("\n", lines) + "\n";
+        ProcessResult<LineIndexedText, LineIndexedText> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputIndexedLines(StandardCharsets.UTF_8, StreamInput.wrap(text.getBytes(StandardCharsets.UTF_8)))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        LineIndexedText stdout = result.content().stdout();
+        assertEquals("line count", lines.size(), stdout.lineCount());
+        assertEquals("line", lines.get(1234), stdout.line(1234));
+        assertEquals("range", lines.subList(100, 110), stdout.lines(100, 110));
+        assertEquals("all", lines, stdout.stream().collect(Collectors.toList()));
+        assertEquals("text", text, stdout.toString());
+        assertEquals("stderr", 0, result.content().stderr().lineCount());
+    }
+
+    @Test
+    public void terminators() throws Exception {
+        assertEquals(Collections.emptyList(), index("").lines());
+        assertEquals(Collections.singletonList(""), index("\n").lines());
+        assertEquals(Arrays.asList("a", "", "b"), index("a\r\n\nb").lines());
+        assertEquals(Arrays.asList("a", "b"), index("a\nb\r\n").lines());
+        assertEquals(Arrays.asList("b", "c"), index("a\nb\nc\nd").lines(1, 3));
+        assertEquals(Collections.singletonList("c"), index("a\nb\nc\nd").lines(1, 3).subList(1, 2));
+    }
+
+    @Test
+    public void isIndexable() {
+        assertFalse(LineIndexedText.isIndexable(StandardCharsets.UTF_16));
+        assertFalse(LineIndexedText.isIndexable(Charset.forName("UTF-32")));
+    }
+
+    private static LineIndexedText index(String text) throws Exception {
+        LineIndexedText.IndexingBucket bucket = new LineIndexedText.IndexingBucket(StandardCharsets.US_ASCII);
+        try (OutputStream out = bucket.openStream()) {
+            for (byte b : text.getBytes(StandardCharsets.US_ASCII)) {
+                out.write(b);
+            }
+        }
+        return bucket.toText();
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFileCaptureTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public MappedFileCaptureTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void outputMapped() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add("line " + i);
+        }
+        lines.add("");
+        lines.add("last");
+        String text = String.join("\n", lines) + "\n";
+        ProcessResult<MappedFileCapture, MappedFileCapture> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputMapped(temporaryFolder.getRoot().toPath(), StreamInput.wrap(text.getBytes(StandardCharsets.UTF_8)))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        try (MappedFileCapture stdout = result.content().stdout();
+             MappedFileCapture stderr = result.content().stderr()) {
+            assertEquals("size", text.length(), stdout.size());
+            ByteBuffer buffer = stdout.buffer();
+            assertTrue("read only", buffer.isReadOnly());
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertEquals("content", text, new String(bytes, StandardCharsets.UTF_8));
+            List<String> actualLines;
+            try (Stream<String> stream = stdout.lines(StandardCharsets.UTF_8)) {
+                actualLines = stream.collect(Collectors.toList());
+            }
+            assertEquals("lines", lines, actualLines);
+            assertEquals("stderr size", 0, stderr.size());
+            assertFalse("stderr lines", stderr.lines(StandardCharsets.UTF_8).findAny().isPresent());
+        }
+        assertFalse("deleted on close", result.content().stdout().file().exists());
+    }
+
+    @Test
+    public void lines_crlfAndUnterminated() throws Exception {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), "a\r\nb\n\nc".getBytes(StandardCharsets.US_ASCII));
+        try (MappedFileCapture capture = new MappedFileCapture(file)) {
+            List<String> lines = capture.lines(StandardCharsets.US_ASCII).collect(Collectors.toList());
+            assertEquals(Arrays.asList("a", "b", "", "c"), lines);
+            List<String> utf16Lines = capture.lines(StandardCharsets.UTF_16LE).collect(Collectors.toList());
+            assertEquals("fallback line count", 1, utf16Lines.size());
+        }
+    }
+}
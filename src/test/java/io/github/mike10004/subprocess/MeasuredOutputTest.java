@@ -0,0 +1,106 @@
+package io.github.mike10004.subprocess;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MeasuredOutputTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public MeasuredOutputTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void measured_cat() throws Exception {
+        byte[] bytes = new byte[256 * 1024];
+        new Random(getClass().getName().hashCode()).nextBytes(bytes);
+        long expectedLines = 0;
+        for (byte b : bytes) {
+            if (b == '\n') {
+                expectedLines++;
+            }
+        }
+        if (bytes[bytes.length - 1] != '\n') {
+            expectedLines++;
+        }
+        ProcessResult<Measured<byte[]>, Measured<byte[]>> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputInMemory(StreamInput.wrap(bytes))
+                .measured()
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        Measured<byte[]> stdout = result.content().stdout();
+        assertArrayEquals("stdout", bytes, stdout.value());
+        StreamStatistics stats = stdout.statistics();
+        assertEquals("byte count", bytes.length, stats.byteCount());
+        assertEquals("line count", expectedLines, stats.lineCount());
+        assertEquals("digest", Hashing.sha256().hashBytes(bytes).toString(), stats.digestHex());
+        assertNotNull("first byte time", stats.firstByteTime());
+        assertTrue("first <= last", !stats.lastByteTime().isBefore(stats.firstByteTime()));
+        StreamStatistics stderrStats = result.content().stderr().statistics();
+        assertEquals("stderr byte count", 0, stderrStats.byteCount());
+        assertEquals("stderr line count", 0, stderrStats.lineCount());
+        assertNull("stderr first byte time", stderrStats.firstByteTime());
+    }
+
+    @Test
+    public void measuringStreamOutput() throws Exception {
+        ByteBucket bucket = ByteBucket.create();
+        MeasuringStreamOutput output = new MeasuringStreamOutput(bucket, "MD5");
+        byte[] text = "foo\nbar\n\nbaz".getBytes(StandardCharsets.US_ASCII);
+        try (OutputStream out = output.openStream()) {
+            out.write(text, 0, 5);
+            out.write(text[5]);
+            out.write(text, 6, text.length - 6);
+        }
+        StreamStatistics stats = output.statistics();
+        assertArrayEquals("captured", text, bucket.dump());
+        assertEquals("lines", 4, stats.lineCount());
+        assertEquals("bytes", text.length, stats.byteCount());
+        String expectedMd5 = BaseEncoding.base16().lowerCase().encode(MessageDigest.getInstance("MD5").digest(text));
+        assertEquals("md5", expectedMd5, stats.digestHex());
+    }
+
+    @Test
+    public void measured_redirectingDelegate() throws Exception {
+        byte[] bytes = "foo\nbar\n".getBytes(StandardCharsets.US_ASCII);
+        ProcessResult<Measured<MappedFileCapture>, Measured<MappedFileCapture>> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .output(StreamContexts.measuring(StreamContexts.outputMapped(temporaryFolder.getRoot().toPath(), StreamInput.wrap(bytes)), "SHA-256"))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        Measured<MappedFileCapture> stdout = result.content().stdout();
+        try (MappedFileCapture capture = stdout.value()) {
+            assertEquals("file size", bytes.length, capture.size());
+        }
+        result.content().stderr().value().close();
+        StreamStatistics stats = stdout.statistics();
+        assertEquals("byte count", bytes.length, stats.byteCount());
+        assertEquals("line count", 2, stats.lineCount());
+        assertEquals("digest", Hashing.sha256().hashBytes(bytes).toString(), stats.digestHex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void measured_unsupportedAlgorithm() {
+        Subprocess.running("true").build().launcher(TRACKER).measured("NOT-A-DIGEST");
+    }
+}
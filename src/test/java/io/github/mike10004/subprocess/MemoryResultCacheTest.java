@@ -0,0 +1,108 @@
+package io.github.mike10004.subprocess;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MemoryResultCacheTest {
+
+    private static CacheKey key(String arg) {
+        return CacheKey.compute(Subprocess.running("echo").arg(arg).build(), false, null);
+    }
+
+    private static CachedOutput output(int length) {
+        return CachedOutput.of(0, new byte[length], new byte[0]);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        MemoryResultCache cache = MemoryResultCache.builder().maxEntries(2).build();
+        cache.put(key("a"), output(1));
+        cache.put(key("b"), output(1));
+        assertNotNull(cache.get(key("a")));
+        cache.put(key("c"), output(1));
+        assertNull("b evicted", cache.get(key("b")));
+        assertNotNull(cache.get(key("a")));
+        assertNotNull(cache.get(key("c")));
+    }
+
+    @Test
+    public void evictsBySize() {
+        MemoryResultCache cache = MemoryResultCache.builder().maxBytes(10).build();
+        cache.put(key("a"), output(4));
+        cache.put(key("b"), output(4));
+        cache.put(key("c"), output(4));
+        assertNull("a evicted", cache.get(key("a")));
+        assertEquals("total bytes", 8, cache.totalBytes());
+        cache.put(key("d"), output(11));
+        assertNull("too large", cache.get(key("d")));
+    }
+
+    @Test
+    public void expires() {
+        AtomicLong now = new AtomicLong(1000);
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now.get());
+            }
+        };
+        MemoryResultCache cache = MemoryResultCache.builder().ttl(Duration.ofSeconds(10)).clock(clock).build();
+        cache.put(key("a"), output(1));
+        now.addAndGet(9_999);
+        assertNotNull(cache.get(key("a")));
+        now.addAndGet(1);
+        assertNull(cache.get(key("a")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void keysDistinguishDefinitions() {
+        assertEquals(key("a"), key("a"));
+        assertEquals(false, key("a").equals(key("b")));
+        CacheKey merged = CacheKey.compute(Subprocess.running("echo").arg("a").build(), true, null);
+        assertEquals(false, key("a").equals(merged));
+        CacheKey withEnv = CacheKey.compute(Subprocess.running("echo").arg("a").env("X", "1").build(), false, null);
+        assertEquals(false, key("a").equals(withEnv));
+    }
+
+    @Test
+    public void keysCoverInheritedEnvironment() {
+        Map<String, String> parent = System.getenv();
+        Assume.assumeFalse("JVM environment is empty", parent.isEmpty());
+        String name = parent.keySet().iterator().next();
+        String value = parent.get(name);
+        CacheKey inherited = key("a");
+        CacheKey sameValue = CacheKey.compute(Subprocess.running("echo").arg("a").env(name, value).build(), false, null);
+        assertEquals("explicit variable with inherited value", inherited, sameValue);
+        CacheKey otherValue = CacheKey.compute(Subprocess.running("echo").arg("a").env(name, value + "-other").build(), false, null);
+        assertEquals("inherited variable with different value", false, inherited.equals(otherValue));
+        CacheKey removed = CacheKey.compute(Subprocess.running("echo").arg("a").unsetEnv(name).build(), false, null);
+        assertEquals("removed variable", false, inherited.equals(removed));
+        CacheKey snapshot = CacheKey.compute(Subprocess.running("echo").arg("a").env(Subprocess.EnvironmentMode.SNAPSHOT).build(), false, null);
+        assertEquals("snapshot of the same environment", inherited, snapshot);
+        CacheKey empty = CacheKey.compute(Subprocess.running("echo").arg("a").env(Subprocess.EnvironmentMode.EMPTY).env(name, value).build(), false, null);
+        assertEquals("empty environment", false, inherited.equals(empty));
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MergedOutputTest extends SubprocessTestBase {
+
+    public MergedOutputTest(int trial) {
+        super(trial);
+    }
+
+    private static Subprocess stereo() {
+        return Tests.runningPythonFile("nht_stereo.py")
+                .env("PYTHONUNBUFFERED", "1")
+                .args("a", "b", "c", "d", "e")
+                .build();
+    }
+
+    @Test
+    public void outputMerged() throws Exception {
+        ProcessResult<String, Void> result = stereo()
+                .launcher(TRACKER)
+                .outputMerged(US_ASCII)
+                .launch()
+                .await();
+        assertEquals("exit code", 0, result.exitCode());
+        assertEquals("merged", String.format("a%nb%nc%nd%ne%n"), result.content().stdout());
+        assertNull("stderr", result.content().stderr());
+    }
+
+    @Test
+    public void outputMergedInMemory_withInput() throws Exception {
+        byte[] data = "hello".getBytes(US_ASCII);
+        ProcessResult<byte[], Void> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .outputMergedInMemory(StreamInput.wrap(data))
+                .launch()
+                .await();
+        assertArrayEquals("merged", data, result.content().stdout());
+    }
+
+    @Test
+    public void outputInterleaved() throws Exception {
+        ProcessResult<InterleavedOutput, Void> result = stereo()
+                .launcher(TRACKER)
+                .outputInterleaved()
+                .launch()
+                .await();
+        InterleavedOutput output = result.content().stdout();
+        assertEquals("stdout", String.format("a%nc%ne%n"), new String(output.bytes(InterleavedOutput.Origin.STDOUT), US_ASCII));
+        assertEquals("stderr", String.format("b%nd%n"), new String(output.bytes(InterleavedOutput.Origin.STDERR), US_ASCII));
+        assertEquals("total length", 10, output.bytes().length);
+        Set<InterleavedOutput.Origin> origins = output.chunks().stream().map(InterleavedOutput.Chunk::origin).collect(Collectors.toSet());
+        assertEquals("origins", EnumSet.allOf(InterleavedOutput.Origin.class), origins);
+        long previous = -1;
+        for (InterleavedOutput.Chunk chunk : output.chunks()) {
+            assertTrue("timestamps nondecreasing", chunk.elapsedNanos() >= previous);
+            previous = chunk.elapsedNanos();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelMapTest extends SubprocessTestBase {
+
+    public ParallelMapTest(int trial) {
+        super(trial);
+    }
+
+    private static Stream<String> inputs(int count) {
+        return IntStream.range(0, count).mapToObj(i -> String.join("", Collections.nCopies(i, "x")));
+    }
+
+    @Test
+    public void map_stdin_ordered() {
+        SubprocessLauncher launcher = new BasicSubprocessLauncher(TRACKER);
+        Subprocess length = Tests.runningPythonFile("nht_length.py").build();
+        List<MapResult<String, String, String>> results;
+        try (Stream<MapResult<String, String, String>> stream = ParallelMap.builder(launcher).concurrency(3).build()
+                .map(inputs(20), input -> length.launcher(launcher)
+                        .outputStrings(US_ASCII, StreamInput.wrap(input.getBytes(US_ASCII)))
+                        .job())) {
+            results = stream.collect(Collectors.toList());
+        }
+        assertEquals("count", 20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            MapResult<String, String, String> result = results.get(i);
+            assertEquals("index", i, result.index());
+            assertEquals("success", true, result.isSuccess());
+            assertEquals("stdout", String.valueOf(result.input().length()), result.result().content().stdout().trim());
+        }
+    }
+
+    @Test
+    public void map_argument_unordered() {
+        SubprocessTemplate template = SubprocessTemplate.of(Tests.runningPythonFile(Tests.pyEcho()).arg("placeholder").build());
+        int slot = template.argumentCount() - 1;
+        Set<String> outputs;
+        try (Stream<MapResult<String, String, String>> stream = ParallelMap.builder(new BasicSubprocessLauncher(TRACKER))
+                .concurrency(4)
+                .ordered(false)
+                .build()
+                .map(IntStream.range(0, 25).mapToObj(String::valueOf),
+                        input -> SubprocessJob.of(template.withArg(slot, input), StreamContexts.strings(US_ASCII, null)))) {
+            outputs = stream.map(r -> r.result().content().stdout()).collect(Collectors.toSet());
+        }
+        assertEquals("outputs", IntStream.range(0, 25).mapToObj(String::valueOf).collect(Collectors.toSet()), outputs);
+    }
+
+    @Test
+    public void map_closeEarly() {
+        Subprocess exit = Tests.runningPythonFile("nht_exit.py").build();
+        long count;
+        try (Stream<MapResult<Integer, Void, Void>> stream = ParallelMap.builder(new BasicSubprocessLauncher(TRACKER)).concurrency(2).build()
+                .map(Stream.iterate(0, i -> i + 1), input -> SubprocessJob.of(exit, StreamContexts.sinkhole()))) {
+            count = stream.limit(5).count();
+        }
+        assertEquals("count", 5, count);
+    }
+
+    @Test
+    public void map_launchesNothingUntilConsumed() throws Exception {
+        Subprocess exit = Tests.runningPythonFile("nht_exit.py").build();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        try (Stream<MapResult<Integer, Void, Void>> stream = ParallelMap.builder(new BasicSubprocessLauncher(TRACKER)).concurrency(2).build()
+                .map(Stream.iterate(0, i -> i + 1).peek(i -> consumed.incrementAndGet()), input -> {
+                    created.incrementAndGet();
+                    return SubprocessJob.of(exit, StreamContexts.sinkhole());
+                })) {
+            Thread.sleep(250);
+            assertEquals("inputs consumed before terminal operation", 0, consumed.get());
+            assertEquals("jobs created before terminal operation", 0, created.get());
+            assertEquals("first result", 0, stream.findFirst().get().index());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PipelineTest extends SubprocessTestBase {
+
+    public PipelineTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void pipe_native() throws Exception {
+        Assume.assumeTrue("native pipelines require Java 9+", PipelineMissionControl.isNativePipelineSupported());
+        testCatCatLength(true);
+    }
+
+    @Test
+    public void pipe_relayed() throws Exception {
+        testCatCatLength(false);
+    }
+
+    private void testCatCatLength(boolean nativePipeline) throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(getClass().getName().hashCode()).nextBytes(data);
+        PipelineResult<String, String> result = Subprocess.pipe(
+                    Tests.runningPythonFile(Tests.pyCat()).build(),
+                    Tests.runningPythonFile(Tests.pyCat()).build(),
+                    Tests.runningPythonFile("nht_length.py").build())
+                .launcher(TRACKER)
+                .outputStrings(US_ASCII, StreamInput.wrap(data))
+                .launch(nativePipeline)
+                .await();
+        assertEquals("exit codes", Arrays.asList(0, 0, 0), result.exitCodes());
+        assertEquals("stdout", String.valueOf(data.length), result.content().stdout());
+        assertEquals("stages", 3, result.stages().size());
+        assertEquals("active", 0, TRACKER.activeCount());
+    }
+
+    @Test
+    public void pipe_stageStderrAndExitCodes() throws Exception {
+        PipelineResult<String, String> result = Subprocess.pipe(
+                    Tests.runningPythonFile("nht_stereo.py").args("foo", "bar").build(),
+                    Tests.runningPythonFile("nht_exit.py").arg("3").build())
+                .launcher(TRACKER)
+                .outputStrings(US_ASCII)
+                .launch()
+                .await();
+        assertEquals("exit codes", Arrays.asList(0, 3), result.exitCodes());
+        assertEquals("exit code", 3, result.exitCode());
+        assertEquals("first stage stderr", "bar", result.stages().get(0).content().stderr().trim());
+        assertEquals("first stage stdout", "", result.stages().get(0).content().stdout());
+    }
+
+    @Test
+    public void pipe_inMemory() throws Exception {
+        byte[] data = "hello, world".getBytes(US_ASCII);
+        PipelineMonitor<byte[], byte[]> monitor = Subprocess.pipe(
+                    Tests.runningPythonFile(Tests.pyCat()).build(),
+                    Tests.runningPythonFile(Tests.pyCat()).build())
+                .launcher(TRACKER)
+                .outputInMemory(StreamInput.wrap(data))
+                .launch();
+        assertEquals("processes", 2, monitor.processes().size());
+        PipelineResult<byte[], byte[]> result = monitor.await();
+        assertArrayEquals("stdout", data, result.content().stdout());
+    }
+}
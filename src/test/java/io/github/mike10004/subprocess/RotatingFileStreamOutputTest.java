@@ -0,0 +1,173 @@
+package io.github.mike10004.subprocess;
+
+import com.google.common.io.Files;
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RotatingFileStreamOutputTest extends SubprocessTestBase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public RotatingFileStreamOutputTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void rotatesBySize() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "daemon.log");
+        RotatingFileStreamOutput output = RotatingFileStreamOutput.builder(file)
+                .maxSegmentBytes(100)
+                .retainedSegments(100)
+                .build();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (OutputStream out = output.openStream()) {
+            for (int i = 0; i < 50; i++) {
+                byte[] line = String.format("line %02d%n", i).getBytes(StandardCharsets.US_ASCII);
+                out.write(line);
+                out.flush();
+                expected.write(line);
+            }
+        }
+        List<File> segments = output.listRotatedSegments();
+        assertTrue("expect several segments", segments.size() >= 4);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        for (File segment : segments) {
+            assertTrue("segment too large: " + segment.length(), segment.length() <= 100);
+            actual.write(Files.toByteArray(segment));
+        }
+        actual.write(Files.toByteArray(file));
+        assertArrayEquals("concatenated segments", expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void retainsAndCompresses() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "daemon.log");
+        RotatingFileStreamOutput output = RotatingFileStreamOutput.builder(file)
+                .maxSegmentBytes(1000)
+                .retainedSegments(2)
+                .compressRotated(CompressionFormat.GZIP)
+                .build();
+        byte[] chunk = new byte[1000];
+        try (OutputStream out = output.openStream()) {
+            for (int i = 0; i < 6; i++) {
+                Arrays.fill(chunk, (byte) ('a' + i));
+                out.write(chunk);
+            }
+        }
+        assertTrue("compression finished", output.awaitCompression(5, TimeUnit.SECONDS));
+        List<File> segments = output.listRotatedSegments();
+        assertEquals("retained segments: " + segments, 2, segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            File segment = segments.get(i);
+            assertTrue("compressed: " + segment, segment.getName().endsWith(".gz"));
+            byte[] content = CompressionFormat.GZIP.decompressing(segment).read();
+            assertEquals("length", 1000, content.length);
+            assertEquals("content of " + segment, (byte) ('a' + 3 + i), content[0]);
+        }
+        assertEquals("active file", 1000, file.length());
+    }
+
+    @Test
+    public void pruneIgnoresForeignSiblings() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "app.log");
+        File logrotated = new File(temporaryFolder.getRoot(), "app.log.1");
+        File old = new File(temporaryFolder.getRoot(), "app.log.old");
+        Files.write(new byte[]{1}, logrotated);
+        Files.write(new byte[]{2}, old);
+        RotatingFileStreamOutput output = RotatingFileStreamOutput.builder(file)
+                .maxSegmentBytes(100)
+                .retainedSegments(2)
+                .build();
+        try (OutputStream out = output.openStream()) {
+            for (int i = 0; i < 5; i++) {
+                out.write(new byte[100]);
+            }
+        }
+        List<File> segments = output.listRotatedSegments();
+        assertEquals("retained segments: " + segments, 2, segments.size());
+        assertFalse("foreign file listed", segments.contains(logrotated) || segments.contains(old));
+        assertTrue("logrotate-style sibling survives", logrotated.isFile());
+        assertTrue("other sibling survives", old.isFile());
+    }
+
+    @Test
+    public void rotatesByAge() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "daemon.log");
+        RotatingFileStreamOutput output = RotatingFileStreamOutput.builder(file)
+                .maxSegmentBytes(0)
+                .maxSegmentAge(Duration.ofMillis(50))
+                .build();
+        try (OutputStream out = output.openStream()) {
+            out.write("first\n".getBytes(StandardCharsets.US_ASCII));
+            Thread.sleep(100);
+            out.write("second\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        List<File> segments = output.listRotatedSegments();
+        assertEquals("segments", 1, segments.size());
+        assertEquals("first\n", Files.asCharSource(segments.get(0), StandardCharsets.US_ASCII).read());
+        assertEquals("second\n", Files.asCharSource(file, StandardCharsets.US_ASCII).read());
+    }
+
+    @Test
+    public void bufferedBytesWrittenAfterFlushDelay() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "daemon.log");
+        RotatingFileStreamOutput output = RotatingFileStreamOutput.builder(file)
+                .maxFlushDelay(Duration.ofMillis(10))
+                .build();
+        byte[] bytes = "hello".getBytes(StandardCharsets.US_ASCII);
+        try (OutputStream out = output.openStream()) {
+            out.write(bytes);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (file.length() < bytes.length && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals("written while stream open", bytes.length, file.length());
+        }
+    }
+
+    @Test
+    public void launch_predefinedControl() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "stdout.log");
+        byte[] bytes = new byte[64 * 1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + (i % 26));
+        }
+        RotatingFileStreamOutput output = RotatingFileStreamOutput.builder(file)
+                .maxSegmentBytes(16 * 1024)
+                .retainedSegments(10)
+                .build();
+        PredefinedStreamControl control = PredefinedStreamControl.builder()
+                .stdout(output)
+                .stdin(StreamInput.wrap(bytes))
+                .build();
+        ProcessResult<?, ?> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .output(StreamContexts.predefinedNonCapturing(control))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        for (File segment : output.listRotatedSegments()) {
+            actual.write(Files.toByteArray(segment));
+        }
+        actual.write(Files.toByteArray(file));
+        assertArrayEquals("content", bytes, actual.toByteArray());
+    }
+}
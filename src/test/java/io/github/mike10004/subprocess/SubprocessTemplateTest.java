@@ -0,0 +1,84 @@
+package io.github.mike10004.subprocess;
+
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SubprocessTemplateTest extends SubprocessTestBase {
+
+    public SubprocessTemplateTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void overrides_arguments() throws Exception {
+        Subprocess base = Tests.runningPythonFile(Tests.pyEcho()).args("a", "b", "c").build();
+        SubprocessTemplate template = SubprocessTemplate.of(base);
+        int a = template.argumentCount() - 3; // on Windows, the first argument is the script
+        Subprocess variant = template.overrides().arg(a, "x").arg(a + 2, "y").arg(a, "z").build();
+        assertEquals("arguments", Arrays.asList("z", "b", "y"), variant.arguments().subList(a, a + 3));
+        assertEquals("template arguments", base.arguments(), template.build().arguments());
+        ProcessResult<String, String> result = variant.launcher(TRACKER)
+                .outputStrings(US_ASCII)
+                .launch()
+                .await();
+        assertEquals("stdout", "z b y", result.content().stdout());
+    }
+
+    @Test
+    public void overrides_environment() throws Exception {
+        Subprocess base = Tests.runningPythonFile("nht_env.py")
+                .args("FOO", "BAR")
+                .env("FOO", "1")
+                .env("BAR", "2")
+                .build();
+        SubprocessTemplate template = SubprocessTemplate.of(base);
+        Subprocess variant = template.overrides().env("BAR", "3").env("BAZ", "4").build();
+        Map<String, String> expected = new HashMap<>();
+        expected.put("FOO", "1");
+        expected.put("BAR", "3");
+        expected.put("BAZ", "4");
+        assertEquals("environment", expected, variant.environment());
+        assertEquals("environment", expected, new HashMap<>(variant.environment()));
+        assertEquals("template environment", base.environment(), template.build().environment());
+        ProcessResult<String, String> result = variant.launcher(TRACKER)
+                .outputStrings(US_ASCII)
+                .launch()
+                .await();
+        assertEquals("exit code", 0, result.exitCode());
+        List<String> lines = Arrays.asList(result.content().stdout().trim().split("\\r?\\n"));
+        assertEquals("lines", 2, lines.size());
+        assertEquals("FOO", true, lines.contains("FOO=1"));
+        assertEquals("BAR", true, lines.contains("BAR=3"));
+    }
+
+    @Test
+    public void noOverrides() {
+        SubprocessTemplate template = SubprocessTemplate.of(Subprocess.running("true").build());
+        assertSame(template.build(), template.overrides().build());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void overrides_argumentOutOfRange() {
+        SubprocessTemplate.of(Subprocess.running("echo").arg("a").build()).withArg(1, "b");
+    }
+
+    @Test
+    public void of_invalidWorkingDirectory() {
+        try {
+            SubprocessTemplate.of(Subprocess.running("true").from(new File("/nonexistent/directory")).build());
+            fail("should have thrown");
+        } catch (SubprocessLaunchException ignore) {
+        }
+    }
+}
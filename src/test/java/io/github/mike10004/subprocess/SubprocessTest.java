@@ -278,6 +278,50 @@ public class SubprocessTest extends SubprocessTestBase {
         assertEquals("FOO", expectedFoo, result.get("FOO"));
     }
 
+    @Test
+    public void launch_env_empty() throws Exception {
+        Subprocess.Builder builder = Tests.runningPythonFile(Tests.getPythonFile("nht_env.py"))
+                .env(Subprocess.EnvironmentMode.EMPTY)
+                .env("PATH", System.getenv("PATH"))
+                .env("FOO", "bar");
+        Map<String, String> result = launchEnv(builder, userVarName, homeVarName, "FOO");
+        assertEquals("printed", ImmutableMap.of("FOO", "bar"), result);
+    }
+
+    @Test
+    public void launch_env_snapshotWithRemoved() throws Exception {
+        String expectedUser = System.getProperty("user.name");
+        Subprocess.Builder builder = Tests.runningPythonFile(Tests.getPythonFile("nht_env.py"))
+                .env(Subprocess.EnvironmentMode.SNAPSHOT)
+                .unsetEnv(homeVarName);
+        Map<String, String> result = launchEnv(builder, userVarName, homeVarName);
+        assertEquals("printed", ImmutableMap.of(userVarName, expectedUser), result);
+    }
+
+    @Test
+    public void launch_env_inheritedWithRemoved() throws Exception {
+        String expectedHome = FileUtils.getTempDirectory().getAbsolutePath();
+        Subprocess.Builder builder = Tests.runningPythonFile(Tests.getPythonFile("nht_env.py"))
+                .unsetEnv(userVarName)
+                .unsetEnv(homeVarName)
+                .env(homeVarName, expectedHome);
+        Map<String, String> result = launchEnv(builder, userVarName, homeVarName);
+        assertEquals("printed", ImmutableMap.of(homeVarName, expectedHome), result);
+    }
+
+    private Map<String, String> launchEnv(Subprocess.Builder builder, String...varnamesArray) throws InterruptedException {
+        ProcessResult<String, String> result = builder.arg("--skip_undefined")
+                .args(Arrays.asList(varnamesArray))
+                .build()
+                .launcher(TRACKER)
+                .outputStrings(Charset.defaultCharset())
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        return splitLines(result.content().stdout()).stream()
+                .map(line -> Iterables.toArray(NHT_ENV_SPLITTER.split(line), String.class))
+                .collect(Collectors.toMap(a -> a[0], a -> a[1]));
+    }
+
     private static void assertCongruent(Map<String, String> printedEnv, String...varnamesArray) {
         assertEquals("variable names", ImmutableSet.copyOf(varnamesArray), printedEnv.keySet());
     }
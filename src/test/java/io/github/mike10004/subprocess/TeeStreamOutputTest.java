@@ -0,0 +1,145 @@
+package io.github.mike10004.subprocess;
+
+import com.google.common.io.Files;
+import io.github.mike10004.subprocess.test.Tests;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TeeStreamOutputTest extends SubprocessTestBase {
+
+    public TeeStreamOutputTest(int trial) {
+        super(trial);
+    }
+
+    @Test
+    public void launch_teeToBucketAndFile() throws Exception {
+        byte[] bytes = new byte[512 * 1024];
+        new Random(getClass().getName().hashCode()).nextBytes(bytes);
+        ByteBucket bucket = ByteBucket.create();
+        File file = File.createTempFile("TeeStreamOutputTest", ".dat");
+        ByteBucket stderr = ByteBucket.create();
+        PredefinedStreamControl control = PredefinedStreamControl.builder()
+                .stdout(StreamOutput.tee(bucket, () -> new FileOutputStream(file)))
+                .stderr(stderr)
+                .stdin(StreamInput.wrap(bytes))
+                .build();
+        ProcessResult<?, ?> result = Tests.runningPythonFile(Tests.pyCat())
+                .build()
+                .launcher(TRACKER)
+                .output(StreamContexts.predefinedNonCapturing(control))
+                .launch().await();
+        assertEquals("exit code", 0, result.exitCode());
+        assertArrayEquals("bucket", bytes, bucket.dump());
+        assertArrayEquals("file", bytes, Files.toByteArray(file));
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void slowSinkDoesNotStallOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream slowSink = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.write(b, off, len);
+            }
+        };
+        ByteBucket fastSink = ByteBucket.create();
+        TeeStreamOutput tee = TeeStreamOutput.builder()
+                .sink(() -> slowSink)
+                .sink(fastSink)
+                .queueCapacity(4)
+                .overflowPolicy(TeeStreamOutput.OverflowPolicy.DISCARD)
+                .build();
+        byte[] chunk = {1, 2, 3, 4};
+        int numChunks = 100;
+        try (OutputStream out = tee.openStream()) {
+            try {
+                for (int i = 0; i < numChunks; i++) {
+                    out.write(chunk);
+                    int expectedLength = chunk.length * (i + 1);
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (fastSink.dump().length < expectedLength && System.nanoTime() < deadline) {
+                        Thread.sleep(1);
+                    }
+                    assertEquals("fast sink received bytes while slow sink is stalled", expectedLength, fastSink.dump().length);
+                }
+            } finally {
+                release.countDown();
+            }
+        }
+        assertTrue("slow sink lost some bytes", slowSink.size() < chunk.length * numChunks);
+    }
+
+    @Test
+    public void failingSinkDoesNotAffectOthers() throws Exception {
+        ByteBucket goodSink = ByteBucket.create();
+        StreamOutput badSink = () -> new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("purposeful");
+            }
+        };
+        TeeStreamOutput tee = TeeStreamOutput.builder().sink(badSink).sink(goodSink).build();
+        byte[] bytes = "hello, world".getBytes();
+        OutputStream out = tee.openStream();
+        out.write(bytes);
+        try {
+            out.close();
+            fail("should have thrown");
+        } catch (IOException e) {
+            assertEquals("purposeful", e.getMessage());
+        }
+        assertArrayEquals("good sink", bytes, goodSink.dump());
+    }
+
+    @Test(timeout = 10000)
+    public void uncheckedSinkFailureDoesNotBlockWriters() throws Exception {
+        ByteBucket goodSink = ByteBucket.create();
+        UncheckedIOException purposeful = new UncheckedIOException(new IOException("purposeful"));
+        StreamOutput badSink = () -> new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw purposeful;
+            }
+        };
+        TeeStreamOutput tee = TeeStreamOutput.builder()
+                .sink(badSink)
+                .sink(goodSink)
+                .queueCapacity(1)
+                .overflowPolicy(TeeStreamOutput.OverflowPolicy.BLOCK)
+                .build();
+        byte[] chunk = "hello, world".getBytes();
+        int numChunks = 100;
+        OutputStream out = tee.openStream();
+        for (int i = 0; i < numChunks; i++) {
+            out.write(chunk);
+        }
+        try {
+            out.close();
+            fail("should have thrown");
+        } catch (IOException e) {
+            assertEquals("cause", purposeful, e.getCause());
+        }
+        assertEquals("good sink", chunk.length * numChunks, goodSink.dump().length);
+    }
+}
@@ -0,0 +1,69 @@
+#!/usr/bin/env python3
+# -*- coding: utf-8 -*-
+
+"""Answers requests on standard input with responses on standard output.
+
+Each request is a line, or, with --length-prefixed, a payload preceded by its
+length as a four-byte big-endian integer. The response to 'ping' is 'pong', the
+response to 'pid' is the process ID, the request 'exit' causes the process to
+exit without responding, the request 'hang' causes the process to stop
+reading and never respond, and the response to any other request is the request
+in upper case. With --ignore-input, the process never reads standard input."""
+
+import os
+import struct
+import sys
+import time
+from argparse import ArgumentParser
+
+
+def read_request(stdin, length_prefixed):
+    if length_prefixed:
+        header = stdin.read(4)
+        if len(header) < 4:
+            return None
+        length, = struct.unpack('>i', header)
+        return stdin.read(length)
+    line = stdin.readline()
+    if not line:
+        return None
+    return line.rstrip(b'\n')
+
+
+def write_response(stdout, response, length_prefixed):
+    if length_prefixed:
+        stdout.write(struct.pack('>i', len(response)))
+        stdout.write(response)
+    else:
+        stdout.write(response + b'\n')
+    stdout.flush()
+
+
+def main():
+    parser = ArgumentParser()
+    parser.add_argument("--length-prefixed", action='store_true')
+    parser.add_argument("--ignore-input", action='store_true')
+    args = parser.parse_args()
+    while args.ignore_input:
+        time.sleep(60)
+    stdin, stdout = sys.stdin.buffer, sys.stdout.buffer
+    while True:
+        request = read_request(stdin, args.length_prefixed)
+        if request is None:
+            return 0
+        if request == b'exit':
+            return 3
+        if request == b'hang':
+            while True:
+                time.sleep(60)
+        if request == b'ping':
+            response = b'pong'
+        elif request == b'pid':
+            response = str(os.getpid()).encode('ascii')
+        else:
+            response = request.upper()
+        write_response(stdout, response, args.length_prefixed)
+
+
+if __name__ == '__main__':
+    exit(main())